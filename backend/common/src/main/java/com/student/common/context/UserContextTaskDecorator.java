@@ -0,0 +1,34 @@
+package com.student.common.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 用户上下文传递装饰器
+ * 提交异步任务时捕获当前线程的用户上下文和忽略数据权限标志，在执行线程上恢复，执行完毕后还原；
+ * 平台线程池复用线程、虚拟线程每个任务一个新线程，两种情况下数据权限拦截器都能拿到发起请求的用户
+ */
+public class UserContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        UserContext context = UserContextHolder.getContext();
+        boolean ignoreDataPermission = UserContextHolder.isIgnoreDataPermission();
+        return () -> {
+            UserContext previousContext = UserContextHolder.getContext();
+            boolean previousIgnore = UserContextHolder.isIgnoreDataPermission();
+            UserContextHolder.setContext(context);
+            UserContextHolder.setIgnoreDataPermission(ignoreDataPermission);
+            try {
+                runnable.run();
+            } finally {
+                UserContextHolder.clear();
+                if (previousContext != null) {
+                    UserContextHolder.setContext(previousContext);
+                }
+                if (previousIgnore) {
+                    UserContextHolder.setIgnoreDataPermission(true);
+                }
+            }
+        };
+    }
+}
@@ -7,9 +7,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
-import org.apache.ibatis.reflection.DefaultReflectorFactory;
-import org.apache.ibatis.reflection.MetaObject;
-import org.apache.ibatis.reflection.SystemMetaObject;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +28,12 @@ public class DataPermissionInterceptor implements InnerInterceptor {
     @Autowired
     private DataPermissionSqlParser sqlParser;
 
+    @Autowired
+    private DataPermissionPlanCache planCache;
+
+    @Autowired
+    private MapperPermissionIndex permissionIndex;
+
     @Override
     public void beforeQuery(Executor executor, MappedStatement ms, Object parameter,
             RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
@@ -49,24 +52,19 @@ public class DataPermissionInterceptor implements InnerInterceptor {
         // 3. 获取原始SQL
         String originalSql = boundSql.getSql();
 
-        // 4. 解析并修改SQL
-        String modifiedSql = sqlParser.addDataPermission(originalSql, context, ruleRegistry);
+        // 4. 获取改写计划（按SQL和角色缓存）
+        DataPermissionPlan plan = getPlan(originalSql, context);
 
         // 如果SQL没有变化，不做处理
-        if (originalSql.equals(modifiedSql)) {
+        if (plan.isUnchanged()) {
             return;
         }
 
         log.debug("Original SQL: {}", originalSql);
-        log.debug("Modified SQL: {}", modifiedSql);
-
-        // 5. 使用反射修改BoundSql中的sql字段
-        MetaObject metaObject = MetaObject.forObject(
-                boundSql,
-                SystemMetaObject.DEFAULT_OBJECT_FACTORY,
-                SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY,
-                new DefaultReflectorFactory());
-        metaObject.setValue("sql", modifiedSql);
+        log.debug("Modified SQL: {}", plan.getSql());
+
+        // 5. 替换BoundSql中的SQL，权限条件作为JDBC参数绑定
+        plan.bind(boundSql, context, ms.getConfiguration());
     }
 
     @Override
@@ -98,23 +96,26 @@ public class DataPermissionInterceptor implements InnerInterceptor {
         }
 
         // 6. 解析并修改SQL，添加teacher_id限制
-        String modifiedSql = sqlParser.addDataPermission(originalSql, context, ruleRegistry);
+        DataPermissionPlan plan = getPlan(originalSql, context);
 
         // 如果SQL没有变化，不做处理
-        if (originalSql.equals(modifiedSql)) {
+        if (plan.isUnchanged()) {
             return;
         }
 
         log.debug("Original UPDATE SQL: {}", originalSql);
-        log.debug("Modified UPDATE SQL: {}", modifiedSql);
-
-        // 7. 使用反射修改BoundSql中的sql字段
-        MetaObject metaObject = MetaObject.forObject(
-                boundSql,
-                SystemMetaObject.DEFAULT_OBJECT_FACTORY,
-                SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY,
-                new DefaultReflectorFactory());
-        metaObject.setValue("sql", modifiedSql);
+        log.debug("Modified UPDATE SQL: {}", plan.getSql());
+
+        // 7. 替换BoundSql中的SQL，权限条件作为JDBC参数绑定
+        plan.bind(boundSql, context, ms.getConfiguration());
+    }
+
+    /**
+     * 获取SQL改写计划，未命中缓存时解析SQL编译
+     */
+    private DataPermissionPlan getPlan(String originalSql, UserContext context) {
+        return planCache.getOrCompile(originalSql, context,
+                () -> sqlParser.compile(originalSql, context, ruleRegistry));
     }
 
     /**
@@ -126,31 +127,11 @@ public class DataPermissionInterceptor implements InnerInterceptor {
             return true;
         }
 
-        // 检查@IgnoreDataPermission注解
-        try {
-            String mapperId = ms.getId();
-            // mapperId格式: com.student.course.mapper.CourseEnrollmentMapper.selectByStudentAndCourses
-            int lastDotIndex = mapperId.lastIndexOf('.');
-            if (lastDotIndex > 0) {
-                String className = mapperId.substring(0, lastDotIndex);
-                String methodName = mapperId.substring(lastDotIndex + 1);
-
-                // 加载Mapper接口类
-                Class<?> mapperClass = Class.forName(className);
-
-                // 查找方法（简化处理，只匹配方法名）
-                for (java.lang.reflect.Method method : mapperClass.getMethods()) {
-                    if (method.getName().equals(methodName)) {
-                        // 检查是否有@IgnoreDataPermission注解
-                        if (method.isAnnotationPresent(com.student.common.annotation.IgnoreDataPermission.class)) {
-                            log.debug("跳过数据权限过滤: {}", mapperId);
-                            return true;
-                        }
-                    }
-                }
-            }
-        } catch (ClassNotFoundException e) {
-            log.warn("无法加载Mapper类进行注解检查: {}", ms.getId());
+        // 检查@IgnoreDataPermission注解（启动时预建索引，O(1)查找）
+        MapperPermissionIndex.Decision decision = permissionIndex.getDecision(ms.getId());
+        if (decision.isIgnoreDataPermission()) {
+            log.debug("跳过数据权限过滤: {}", ms.getId());
+            return true;
         }
 
         return false;
@@ -0,0 +1,144 @@
+package com.student.common.datapermission;
+
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import com.student.common.context.UserContext;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 数据权限改写计划
+ * 同一条SQL在同一角色下的改写结果是固定的，只有上下文字段的取值不同。
+ * 权限条件以JDBC占位符"?"输出，执行时只需向BoundSql插入对应的参数映射，
+ * 同一角色的所有用户共享同一条SQL文本，可复用服务端预编译语句。
+ */
+public class DataPermissionPlan {
+
+    /**
+     * 附加参数名前缀，取值通过BoundSql.setAdditionalParameter传入
+     */
+    private static final String PARAMETER_PREFIX = "__dp_ctx_";
+
+    /**
+     * 改写后的SQL（权限条件为"?"占位符）
+     */
+    private final String sql;
+
+    /**
+     * 每个权限占位符对应的UserContext字段名（如：studentId），按出现顺序排列
+     */
+    private final List<String> contextFields;
+
+    /**
+     * 每个权限占位符在改写后SQL全部"?"中的下标，升序
+     */
+    private final int[] parameterIndexes;
+
+    /**
+     * SQL是否无需改写
+     */
+    private final boolean unchanged;
+
+    /**
+     * 权限占位符的参数映射，首次绑定时按Configuration构建
+     */
+    private volatile List<ParameterMapping> parameterMappings;
+
+    private DataPermissionPlan(String sql, List<String> contextFields, int[] parameterIndexes, boolean unchanged) {
+        this.sql = sql;
+        this.contextFields = contextFields;
+        this.parameterIndexes = parameterIndexes;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * 创建"无需改写"的计划
+     */
+    public static DataPermissionPlan unchanged() {
+        return new DataPermissionPlan(null, Collections.emptyList(), new int[0], true);
+    }
+
+    /**
+     * 创建改写计划
+     *
+     * @param sql              改写后的SQL
+     * @param contextFields    权限占位符对应的上下文字段
+     * @param parameterIndexes 权限占位符在全部"?"中的下标
+     */
+    public static DataPermissionPlan of(String sql, List<String> contextFields, int[] parameterIndexes) {
+        if (contextFields.size() != parameterIndexes.length) {
+            throw new IllegalArgumentException("contextFields size must equal parameterIndexes length");
+        }
+        return new DataPermissionPlan(sql, List.copyOf(contextFields), parameterIndexes.clone(), false);
+    }
+
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getContextFields() {
+        return contextFields;
+    }
+
+    /**
+     * 将计划应用到BoundSql：替换SQL、插入参数映射并设置上下文取值
+     *
+     * @param boundSql      待改写的BoundSql
+     * @param context       用户上下文
+     * @param configuration MyBatis配置
+     */
+    public void bind(BoundSql boundSql, UserContext context, Configuration configuration) {
+        PluginUtils.MPBoundSql mpBoundSql = PluginUtils.mpBoundSql(boundSql);
+        List<ParameterMapping> mappings = getParameterMappings(configuration);
+
+        List<ParameterMapping> merged = new ArrayList<>(mpBoundSql.parameterMappings());
+        for (int i = 0; i < parameterIndexes.length; i++) {
+            merged.add(parameterIndexes[i], mappings.get(i));
+        }
+        for (String field : contextFields) {
+            boundSql.setAdditionalParameter(PARAMETER_PREFIX + field, contextValue(context, field));
+        }
+
+        mpBoundSql.sql(sql);
+        mpBoundSql.parameterMappings(merged);
+    }
+
+    /**
+     * 构建权限占位符的参数映射（上下文字段均为Long类型）
+     */
+    private List<ParameterMapping> getParameterMappings(Configuration configuration) {
+        List<ParameterMapping> mappings = parameterMappings;
+        if (mappings == null) {
+            List<ParameterMapping> built = new ArrayList<>(contextFields.size());
+            for (String field : contextFields) {
+                built.add(new ParameterMapping.Builder(configuration, PARAMETER_PREFIX + field, Long.class).build());
+            }
+            mappings = Collections.unmodifiableList(built);
+            parameterMappings = mappings;
+        }
+        return mappings;
+    }
+
+    /**
+     * 从UserContext获取字段值
+     */
+    static Object contextValue(UserContext context, String fieldName) {
+        if (fieldName == null) {
+            return null;
+        }
+        return switch (fieldName) {
+            case "userId" -> context.getUserId();
+            case "studentId" -> context.getStudentId();
+            case "teacherId" -> context.getTeacherId();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.student.common.datapermission;
+
+import com.student.common.context.UserContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 数据权限改写计划缓存
+ * key = 角色 + 上下文字段非空掩码 + 规范化SQL，命中时只需一次哈希查找，无需再解析/输出SQL。
+ * 规则重新加载时由DataPermissionRuleRegistry整体失效。
+ */
+@Component
+@Slf4j
+public class DataPermissionPlanCache {
+
+    private final Map<String, DataPermissionPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存代次，失效时递增，防止失效期间用旧规则编译的计划被写回缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Value("${data-permission.plan-cache.max-size:4096}")
+    private int maxSize;
+
+    /**
+     * 获取改写计划，未命中时编译并写入缓存
+     *
+     * @param sql      原始SQL
+     * @param context  用户上下文
+     * @param compiler 计划编译器
+     * @return 改写计划
+     */
+    public DataPermissionPlan getOrCompile(String sql, UserContext context, Supplier<DataPermissionPlan> compiler) {
+        String key = buildKey(sql, context);
+        DataPermissionPlan plan = plans.get(key);
+        if (plan != null) {
+            hits.increment();
+            return plan;
+        }
+
+        misses.increment();
+        long gen = generation.get();
+        plan = compiler.get();
+        // 超出容量时不再缓存新计划，避免动态拼接SQL导致无限增长
+        if (plans.size() < maxSize && generation.get() == gen) {
+            plans.putIfAbsent(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 清空全部计划
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        plans.clear();
+        log.info("Data permission plan cache invalidated");
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 构建缓存key
+     */
+    private String buildKey(String sql, UserContext context) {
+        int mask = (context.getUserId() != null ? 1 : 0)
+                | (context.getStudentId() != null ? 2 : 0)
+                | (context.getTeacherId() != null ? 4 : 0);
+        return context.getUserType() + ":" + mask + ":" + normalize(sql);
+    }
+
+    /**
+     * 规范化SQL：合并引号外的连续空白字符
+     * MyBatis动态SQL生成的空白差异不影响改写结果
+     */
+    static String normalize(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                sb.append(c);
+                if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
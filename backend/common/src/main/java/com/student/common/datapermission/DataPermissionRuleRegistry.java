@@ -2,6 +2,7 @@ package com.student.common.datapermission;
 
 import com.student.common.entity.DataPermissionRuleEntity;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
@@ -22,6 +23,12 @@ public class DataPermissionRuleRegistry {
      */
     private final Map<String, DataPermissionRule> ruleCache = new ConcurrentHashMap<>();
 
+    /**
+     * SQL改写计划缓存，规则变化后必须失效
+     */
+    @Autowired
+    private DataPermissionPlanCache planCache;
+
     /**
      * 加载规则到缓存
      * 由具体的服务模块调用，传入从数据库查询的规则列表
@@ -36,6 +43,7 @@ public class DataPermissionRuleRegistry {
             DataPermissionRule rule = convertToRule(entity);
             ruleCache.put(key, rule);
         }
+        planCache.invalidateAll();
 
         log.info("Loaded {} data permission rules into cache", entities.size());
     }
@@ -46,6 +54,7 @@ public class DataPermissionRuleRegistry {
      */
     public void refreshCache() {
         ruleCache.clear();
+        planCache.invalidateAll();
         log.info("Data permission rule cache cleared");
     }
 
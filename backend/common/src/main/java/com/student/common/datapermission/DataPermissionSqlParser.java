@@ -4,7 +4,6 @@ import com.student.common.context.UserContext;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Expression;
-import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
@@ -23,6 +22,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 数据权限SQL解析器
@@ -33,67 +34,132 @@ import java.util.List;
 public class DataPermissionSqlParser {
 
     /**
-     * 添加数据权限过滤条件到SQL
+     * 上下文取值占位标记，编译时以列名形式写入AST，输出SQL后替换为JDBC占位符"?"
+     */
+    private static final String MARKER_PREFIX = "__dp_ctx_";
+    private static final String MARKER_SUFFIX = "__";
+    private static final Pattern MARKER_PATTERN = Pattern.compile("__dp_ctx_([A-Za-z]+)__");
+
+    /**
+     * 编译数据权限改写计划
+     * 结果只依赖SQL文本、用户类型以及上下文字段是否为空，不依赖字段的具体取值，可按此缓存复用
      *
      * @param originalSql 原始SQL
      * @param context     用户上下文
      * @param registry    权限规则注册表
-     * @return 修改后的SQL
+     * @return 改写计划
      */
-    public String addDataPermission(String originalSql, UserContext context, DataPermissionRuleRegistry registry) {
+    public DataPermissionPlan compile(String originalSql, UserContext context, DataPermissionRuleRegistry registry) {
         try {
             Statement statement = CCJSqlParserUtil.parse(originalSql);
 
             if (statement instanceof Select) {
                 Select select = (Select) statement;
-                processSelect(select, context, registry);
-                return select.toString();
+                if (!processSelect(select, context, registry)) {
+                    return DataPermissionPlan.unchanged();
+                }
+                return split(select.toString());
             }
 
-            return originalSql;
+            return DataPermissionPlan.unchanged();
         } catch (JSQLParserException e) {
             log.error("Failed to parse SQL for data permission: {}", originalSql, e);
             // 故障安全：解析失败时返回原SQL，不影响业务
-            return originalSql;
+            return DataPermissionPlan.unchanged();
+        }
+    }
+
+    /**
+     * 将改写后SQL中的占位标记替换为JDBC占位符，并记录其在全部"?"中的下标
+     */
+    private DataPermissionPlan split(String rewrittenSql) {
+        StringBuilder sql = new StringBuilder(rewrittenSql.length());
+        List<String> contextFields = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        Matcher matcher = MARKER_PATTERN.matcher(rewrittenSql);
+        int last = 0;
+        int placeholderCount = 0;
+        while (matcher.find()) {
+            String segment = rewrittenSql.substring(last, matcher.start());
+            placeholderCount += countPlaceholders(segment);
+            sql.append(segment).append('?');
+            contextFields.add(matcher.group(1));
+            indexes.add(placeholderCount);
+            placeholderCount++;
+            last = matcher.end();
+        }
+        sql.append(rewrittenSql.substring(last));
+        return DataPermissionPlan.of(sql.toString(), contextFields,
+                indexes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * 统计SQL片段中引号外的"?"数量（占位标记不会出现在引号内，片段边界一定在引号外）
+     */
+    private int countPlaceholders(String segment) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
         }
+        return count;
+    }
+
+    /**
+     * 生成上下文字段的占位标记
+     */
+    private String marker(String contextField) {
+        return MARKER_PREFIX + contextField + MARKER_SUFFIX;
     }
 
     /**
      * 处理SELECT语句
      */
-    private void processSelect(Select select, UserContext context, DataPermissionRuleRegistry registry) {
+    private boolean processSelect(Select select, UserContext context, DataPermissionRuleRegistry registry) {
+        boolean modified = false;
         if (select instanceof PlainSelect) {
-            processPlainSelect((PlainSelect) select, context, registry);
+            modified = processPlainSelect((PlainSelect) select, context, registry);
         } else if (select instanceof SetOperationList) {
             // 处理UNION等操作
             SetOperationList setOpList = (SetOperationList) select;
             List<Select> selects = setOpList.getSelects();
             if (selects != null) {
                 for (Select s : selects) {
-                    processSelect(s, context, registry);
+                    modified |= processSelect(s, context, registry);
                 }
             }
         } else if (select instanceof ParenthesedSelect) {
             // 处理括号包裹的SELECT
             ParenthesedSelect parenthesedSelect = (ParenthesedSelect) select;
-            processSelect(parenthesedSelect.getSelect(), context, registry);
+            modified = processSelect(parenthesedSelect.getSelect(), context, registry);
         }
+        return modified;
     }
 
     /**
      * 处理普通SELECT语句
      */
-    private void processPlainSelect(PlainSelect plainSelect, UserContext context, DataPermissionRuleRegistry registry) {
+    private boolean processPlainSelect(PlainSelect plainSelect, UserContext context, DataPermissionRuleRegistry registry) {
+        boolean modified = false;
         FromItem fromItem = plainSelect.getFromItem();
 
         // 处理主表
         if (fromItem instanceof Table) {
             Table table = (Table) fromItem;
-            addPermissionCondition(plainSelect, table, context, registry);
+            modified = addPermissionCondition(plainSelect, table, context, registry);
         } else if (fromItem instanceof ParenthesedSelect) {
             // 处理子查询
             ParenthesedSelect parenthesedSelect = (ParenthesedSelect) fromItem;
-            processSelect(parenthesedSelect.getSelect(), context, registry);
+            modified = processSelect(parenthesedSelect.getSelect(), context, registry);
         }
 
         // 处理JOIN
@@ -103,29 +169,30 @@ public class DataPermissionSqlParser {
                 FromItem joinItem = join.getRightItem();
                 if (joinItem instanceof Table) {
                     Table table = (Table) joinItem;
-                    addPermissionCondition(plainSelect, table, context, registry);
+                    modified |= addPermissionCondition(plainSelect, table, context, registry);
                 } else if (joinItem instanceof ParenthesedSelect) {
                     ParenthesedSelect parenthesedSelect = (ParenthesedSelect) joinItem;
-                    processSelect(parenthesedSelect.getSelect(), context, registry);
+                    modified |= processSelect(parenthesedSelect.getSelect(), context, registry);
                 }
             }
         }
+        return modified;
     }
 
     /**
      * 添加权限过滤条件
      */
-    private void addPermissionCondition(PlainSelect plainSelect, Table table, UserContext context, DataPermissionRuleRegistry registry) {
+    private boolean addPermissionCondition(PlainSelect plainSelect, Table table, UserContext context, DataPermissionRuleRegistry registry) {
         String tableName = table.getName();
         DataPermissionRule rule = registry.getRule(context.getUserType(), tableName);
 
         if (rule == null) {
-            return;  // 没有规则，不过滤
+            return false;  // 没有规则，不过滤
         }
 
         DataPermissionRule.FieldRule fieldRule = rule.getFieldRules().get(context.getUserType());
         if (fieldRule == null) {
-            return;  // 没有该角色的规则
+            return false;  // 没有该角色的规则
         }
 
         // 获取表别名
@@ -134,7 +201,7 @@ public class DataPermissionSqlParser {
         // 构建过滤条件
         Expression condition = buildCondition(alias, fieldRule, context);
         if (condition == null) {
-            return;
+            return false;
         }
 
         // 添加到WHERE子句
@@ -144,13 +211,15 @@ public class DataPermissionSqlParser {
         } else {
             plainSelect.setWhere(condition);
         }
+        return true;
     }
 
     /**
      * 构建过滤条件
+     * 上下文取值以占位标记写入，最终输出为"?"，由DataPermissionPlan绑定为JDBC参数
      */
     private Expression buildCondition(String alias, DataPermissionRule.FieldRule fieldRule, UserContext context) {
-        Object value = getContextValue(context, fieldRule.getContextField());
+        Object value = DataPermissionPlan.contextValue(context, fieldRule.getContextField());
         if (value == null) {
             log.warn("Context field {} is null for user {}", fieldRule.getContextField(), context.getUserId());
             return null;
@@ -162,20 +231,20 @@ public class DataPermissionSqlParser {
         // 根据过滤类型构建条件
         if ("SUBQUERY".equals(fieldRule.getFilterType())) {
             // 子查询类型
-            return buildSubqueryCondition(column, fieldRule, value);
+            return buildSubqueryCondition(column, fieldRule);
         } else {
             // 简单条件类型
             if ("=".equals(fieldRule.getOperator())) {
                 EqualsTo equalsTo = new EqualsTo();
                 equalsTo.setLeftExpression(column);
-                equalsTo.setRightExpression(new LongValue(value.toString()));
+                equalsTo.setRightExpression(new Column(marker(fieldRule.getContextField())));
                 return equalsTo;
             } else if ("IN".equals(fieldRule.getOperator())) {
                 // IN操作符（暂时简化处理）
                 InExpression inExpression = new InExpression();
                 inExpression.setLeftExpression(column);
                 List<Expression> expressions = new ArrayList<>();
-                expressions.add(new LongValue(value.toString()));
+                expressions.add(new Column(marker(fieldRule.getContextField())));
                 inExpression.setRightExpression(new ExpressionList(expressions));
                 return inExpression;
             }
@@ -187,7 +256,7 @@ public class DataPermissionSqlParser {
     /**
      * 构建子查询条件
      */
-    private Expression buildSubqueryCondition(Column column, DataPermissionRule.FieldRule fieldRule, Object value) {
+    private Expression buildSubqueryCondition(Column column, DataPermissionRule.FieldRule fieldRule) {
         try {
             String subquerySql = fieldRule.getSubquerySql();
             if (subquerySql == null || subquerySql.isEmpty()) {
@@ -195,7 +264,7 @@ public class DataPermissionSqlParser {
             }
 
             // 替换占位符
-            subquerySql = subquerySql.replace("?", value.toString());
+            subquerySql = subquerySql.replace("?", marker(fieldRule.getContextField()));
 
             // 解析子查询
             Statement statement = CCJSqlParserUtil.parse(subquerySql);
@@ -214,16 +283,4 @@ public class DataPermissionSqlParser {
 
         return null;
     }
-
-    /**
-     * 从UserContext获取字段值
-     */
-    private Object getContextValue(UserContext context, String fieldName) {
-        return switch (fieldName) {
-            case "userId" -> context.getUserId();
-            case "studentId" -> context.getStudentId();
-            case "teacherId" -> context.getTeacherId();
-            default -> null;
-        };
-    }
 }
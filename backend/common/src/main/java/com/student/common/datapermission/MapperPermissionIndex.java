@@ -0,0 +1,147 @@
+package com.student.common.datapermission;
+
+import com.student.common.annotation.IgnoreDataPermission;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mapper方法数据权限元数据索引
+ * 启动时遍历MyBatis已注册的Mapper接口，预先解析每个方法上的@IgnoreDataPermission，
+ * 拦截器按MappedStatement ID做O(1)查找，不再在每次查询时反射加载Mapper类。
+ */
+@Component
+@Slf4j
+public class MapperPermissionIndex implements SmartInitializingSingleton {
+
+    /**
+     * 决策索引：key = MappedStatement ID（Mapper全限定名.方法名）
+     */
+    private final Map<String, Decision> decisions = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+
+    /**
+     * 网关等无数据源的服务中不存在SqlSessionFactory
+     */
+    @Autowired
+    private ObjectProvider<SqlSessionFactory> sqlSessionFactories;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        sqlSessionFactories.orderedStream().forEach(factory -> index(factory.getConfiguration()));
+        log.info("Mapper permission index built: {} statements", decisions.size());
+    }
+
+    /**
+     * 索引Configuration中已注册的全部Mapper接口
+     */
+    private void index(Configuration configuration) {
+        for (Class<?> mapperClass : configuration.getMapperRegistry().getMappers()) {
+            Map<String, Decision> mapperDecisions = resolveMapper(mapperClass);
+            decisions.putAll(mapperDecisions);
+        }
+    }
+
+    /**
+     * 获取MappedStatement对应的数据权限决策
+     * 启动后新增的语句（如分页插件生成的COUNT语句）在首次访问时解析并缓存
+     *
+     * @param msId MappedStatement ID
+     * @return 决策
+     */
+    public Decision getDecision(String msId) {
+        Decision decision = decisions.get(msId);
+        if (decision != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            decision = decisions.computeIfAbsent(msId, this::resolveStatement);
+        }
+        if (decision.isIgnoreDataPermission()) {
+            ignored.increment();
+        }
+        return decision;
+    }
+
+    /**
+     * 获取索引统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("size", decisions.size());
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("ignored", ignored.sum());
+        return statistics;
+    }
+
+    /**
+     * 解析单个Mapper接口的全部方法
+     * 同名重载方法只要有一个标注@IgnoreDataPermission即视为忽略
+     */
+    private Map<String, Decision> resolveMapper(Class<?> mapperClass) {
+        Map<String, Decision> result = new HashMap<>();
+        for (Method method : mapperClass.getMethods()) {
+            String msId = mapperClass.getName() + "." + method.getName();
+            IgnoreDataPermission annotation = method.getAnnotation(IgnoreDataPermission.class);
+            if (annotation != null) {
+                result.put(msId, new Decision(true, annotation.reason()));
+            } else {
+                result.putIfAbsent(msId, Decision.APPLY);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 解析启动时未索引到的语句
+     */
+    private Decision resolveStatement(String msId) {
+        // mapperId格式: com.student.course.mapper.CourseEnrollmentMapper.selectByStudentAndCourses
+        int lastDotIndex = msId.lastIndexOf('.');
+        if (lastDotIndex <= 0) {
+            return Decision.APPLY;
+        }
+        String className = msId.substring(0, lastDotIndex);
+        try {
+            Decision decision = resolveMapper(Class.forName(className)).get(msId);
+            return decision != null ? decision : Decision.APPLY;
+        } catch (ClassNotFoundException e) {
+            log.warn("无法加载Mapper类进行注解检查: {}", msId);
+            return Decision.APPLY;
+        }
+    }
+
+    /**
+     * 数据权限决策
+     */
+    @Value
+    public static class Decision {
+
+        static final Decision APPLY = new Decision(false, null);
+
+        /**
+         * 是否忽略数据权限
+         */
+        boolean ignoreDataPermission;
+
+        /**
+         * 忽略原因
+         */
+        String reason;
+    }
+}
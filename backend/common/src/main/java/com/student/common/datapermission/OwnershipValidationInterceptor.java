@@ -8,6 +8,7 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.sql.SQLException;
@@ -21,6 +22,9 @@ import java.sql.SQLException;
 @Slf4j
 public class OwnershipValidationInterceptor implements InnerInterceptor {
 
+    @Autowired
+    private MapperPermissionIndex permissionIndex;
+
     @Override
     public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) throws SQLException {
         // 1. Check if should skip
@@ -69,6 +73,7 @@ public class OwnershipValidationInterceptor implements InnerInterceptor {
             return true;
         }
 
-        return false;
+        // Check @IgnoreDataPermission via the prebuilt mapper index
+        return permissionIndex.getDecision(ms.getId()).isIgnoreDataPermission();
     }
 }
@@ -0,0 +1,74 @@
+package com.student.common.result;
+
+import com.student.common.util.PageCursor;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * 不执行COUNT查询，客户端根据hasMore和nextCursor继续翻页；需要总数时由调用方显式查询后设置total
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 未指定每页条数时的默认值
+     */
+    public static final int DEFAULT_SIZE = 20;
+
+    /**
+     * 每页条数上限（与MyBatis-Plus分页插件的maxLimit一致）
+     */
+    public static final int MAX_SIZE = 500;
+
+    private List<T> records;
+    private Integer size;
+    private Boolean hasMore;
+
+    /**
+     * 下一页游标，没有更多数据时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 总数，仅在请求时指定withTotal=true时返回
+     */
+    private Long total;
+
+    /**
+     * 规范每页条数：为空时取默认值，限制在1到MAX_SIZE之间；查询前用它计算LIMIT size+1
+     */
+    public static int normalizeSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * 由多查一条的结果构建分页：rows最多size+1条，多出的一条只用于判断是否还有下一页
+     *
+     * @param rows      按(排序列, id)排序、最多size+1条的查询结果
+     * @param size      每页条数（已经过 {@link #normalizeSize(Integer)}）
+     * @param sortValue 取排序列的值（按主键排序时返回null）
+     * @param id        取主键ID
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, Object> sortValue, Function<T, Long> id) {
+        CursorPage<T> page = new CursorPage<>();
+        boolean hasMore = rows.size() > size;
+        List<T> records = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        page.setRecords(records);
+        page.setSize(size);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            page.setNextCursor(PageCursor.encode(sortValue.apply(last), id.apply(last)));
+        }
+        return page;
+    }
+}
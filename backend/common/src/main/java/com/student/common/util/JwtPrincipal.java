@@ -0,0 +1,48 @@
+package com.student.common.util;
+
+import lombok.Value;
+
+/**
+ * JWT验签后的用户身份
+ * 由JwtUtil.verify一次性解析得到，不可变，可安全地在线程间共享和缓存
+ */
+@Value
+public class JwtPrincipal {
+
+    /**
+     * 用户ID
+     */
+    Long userId;
+
+    /**
+     * 用户名
+     */
+    String username;
+
+    /**
+     * 用户类型：admin-管理员, teacher-教师, student-学生
+     */
+    String userType;
+
+    /**
+     * 学生ID（仅学生有值）
+     */
+    Long studentId;
+
+    /**
+     * 教师ID（仅教师有值）
+     */
+    Long teacherId;
+
+    /**
+     * 过期时间（毫秒时间戳）
+     */
+    long expiresAtMillis;
+
+    /**
+     * 判断在指定时间点是否已过期
+     */
+    public boolean isExpiredAt(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
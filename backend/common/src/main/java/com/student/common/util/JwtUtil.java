@@ -1,6 +1,7 @@
 package com.student.common.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
@@ -15,8 +16,14 @@ public class JwtUtil {
     private static final String SECRET = "student-system-jwt-secret-key-must-be-at-least-256-bits";
     private static final long EXPIRATION = 24 * 60 * 60 * 1000L;
 
+    /**
+     * 签名密钥与解析器只构建一次，二者均为不可变对象，线程安全
+     */
+    private static final SecretKey SIGN_KEY = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    private static final JwtParser PARSER = Jwts.parser().verifyWith(SIGN_KEY).build();
+
     private static SecretKey getSignKey() {
-        return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return SIGN_KEY;
     }
 
     public static String generateToken(Long userId, String username) {
@@ -51,11 +58,26 @@ public class JwtUtil {
     }
 
     public static Claims parseToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return PARSER.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * 验签并一次性解析出全部用户信息
+     * 过期或签名无效时抛出JwtException，调用方无需再逐个字段重复解析
+     *
+     * @param token JWT字符串（不含Bearer前缀）
+     * @return 不可变的用户身份
+     */
+    public static JwtPrincipal verify(String token) {
+        Claims claims = parseToken(token);
+        return new JwtPrincipal(
+                toLong(claims.get("userId")),
+                claims.get("username", String.class),
+                claims.get("userType", String.class),
+                toLong(claims.get("studentId")),
+                toLong(claims.get("teacherId")),
+                claims.getExpiration().getTime()
+        );
     }
 
     public static Long getUserId(String token) {
@@ -75,26 +97,12 @@ public class JwtUtil {
 
     public static Long getStudentId(String token) {
         Claims claims = parseToken(token);
-        Object studentId = claims.get("studentId");
-        if (studentId == null) {
-            return null;
-        }
-        if (studentId instanceof Integer) {
-            return ((Integer) studentId).longValue();
-        }
-        return (Long) studentId;
+        return toLong(claims.get("studentId"));
     }
 
     public static Long getTeacherId(String token) {
         Claims claims = parseToken(token);
-        Object teacherId = claims.get("teacherId");
-        if (teacherId == null) {
-            return null;
-        }
-        if (teacherId instanceof Integer) {
-            return ((Integer) teacherId).longValue();
-        }
-        return (Long) teacherId;
+        return toLong(claims.get("teacherId"));
     }
 
     public static boolean isTokenExpired(String token) {
@@ -105,4 +113,14 @@ public class JwtUtil {
             return true;
         }
     }
+
+    private static Long toLong(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.valueOf(value.toString());
+    }
 }
@@ -0,0 +1,83 @@
+package com.student.common.util;
+
+import com.student.common.exception.BusinessException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页（keyset）的游标
+ *
+ * 记录上一页最后一行的排序列值和主键ID，编码为URL安全的Base64字符串交给客户端，
+ * 客户端原样传回即可，不需要理解其内容。下一页查询条件为 (排序列, id) 严格位于游标之后，
+ * 走索引定位，不随翻页深度变慢。
+ */
+@Getter
+public class PageCursor {
+
+    private static final char SEPARATOR = ':';
+
+    /**
+     * 排序列的值（按主键排序时为空）
+     */
+    private final String sortValue;
+
+    /**
+     * 主键ID
+     */
+    private final Long id;
+
+    private PageCursor(String sortValue, Long id) {
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param sortValue 排序列的值，可为空
+     * @param id        主键ID
+     */
+    public static String encode(Object sortValue, Long id) {
+        String raw = sortValue == null ? String.valueOf(id) : id + String.valueOf(SEPARATOR) + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标，为空表示第一页
+     *
+     * @return 游标，cursor为空时返回null
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.indexOf(SEPARATOR);
+            if (index < 0) {
+                return new PageCursor(null, Long.parseLong(raw));
+            }
+            return new PageCursor(raw.substring(index + 1), Long.parseLong(raw.substring(0, index)));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(400, "无效的分页游标");
+        }
+    }
+
+    /**
+     * 排序列为时间类型时的值
+     */
+    public LocalDateTime getSortValueAsDateTime() {
+        if (sortValue == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(sortValue);
+        } catch (DateTimeParseException e) {
+            throw new BusinessException(400, "无效的分页游标");
+        }
+    }
+}
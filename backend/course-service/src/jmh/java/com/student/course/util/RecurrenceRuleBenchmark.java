@@ -0,0 +1,170 @@
+package com.student.course.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 课表展开基准：按周期直接定位的RecurrenceRule与原先从首次日期逐日推进的实现对比
+ * （原实现在INTERVAL>1且指定BYDAY时会多产生日期，两者返回的次数不同，这里只比较耗时）
+ *
+ * 运行：mvn -Pjmh -pl backend/course-service -am test-compile exec:java \
+ *      -Dexec.classpathScope=test -Dexec.mainClass=com.student.course.util.RecurrenceRuleBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecurrenceRuleBenchmark {
+
+    private static final String[] DAYS = {"MO", "TU", "WE", "TH", "FR"};
+
+    /**
+     * 课表中的周期性事件数
+     */
+    @Param({"200", "2000"})
+    private int events;
+
+    /**
+     * 查询范围开始距事件首次日期的天数（0为从首次日期起查询）
+     */
+    @Param({"0", "365"})
+    private int offsetDays;
+
+    private final List<RecurrenceRule> rules = new ArrayList<>();
+    private final List<LegacyRule> legacyRules = new ArrayList<>();
+    private final List<LocalDate> startDates = new ArrayList<>();
+    private LocalDate rangeStart;
+    private LocalDate rangeEnd;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate termStart = LocalDate.of(2024, 9, 2);
+        for (int i = 0; i < events; i++) {
+            String byDay = DAYS[random.nextInt(DAYS.length)]
+                    + (random.nextBoolean() ? "," + DAYS[random.nextInt(DAYS.length)] : "");
+            String rule = "FREQ=WEEKLY;INTERVAL=" + (1 + random.nextInt(2)) + ";BYDAY=" + byDay;
+            rules.add(RecurrenceRule.parse(rule));
+            legacyRules.add(LegacyRule.parse(rule));
+            startDates.add(termStart.plusDays(random.nextInt(7)));
+        }
+        rangeStart = termStart.plusDays(offsetDays);
+        rangeEnd = rangeStart.plusWeeks(20);
+    }
+
+    @Benchmark
+    public long arithmetic() {
+        long total = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            total += rules.get(i).occurrenceEpochDays(startDates.get(i), rangeStart, rangeEnd).count();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long dayByDay() {
+        long total = 0;
+        for (int i = 0; i < legacyRules.size(); i++) {
+            total += legacyRules.get(i).generateOccurrences(startDates.get(i), rangeStart, rangeEnd).size();
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecurrenceRuleBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 原实现：从首次日期起逐次推进，WEEKLY+BYDAY逐日查找下一个匹配的星期
+     */
+    static class LegacyRule {
+        private RecurrenceRule.Frequency frequency;
+        private int interval = 1;
+        private final Set<DayOfWeek> byDay = EnumSet.noneOf(DayOfWeek.class);
+
+        static LegacyRule parse(String ruleStr) {
+            LegacyRule rule = new LegacyRule();
+            for (String part : ruleStr.split(";")) {
+                String[] kv = part.split("=");
+                switch (kv[0]) {
+                    case "FREQ" -> rule.frequency = RecurrenceRule.Frequency.valueOf(kv[1]);
+                    case "INTERVAL" -> rule.interval = Integer.parseInt(kv[1]);
+                    case "BYDAY" -> {
+                        for (String day : kv[1].split(",")) {
+                            rule.byDay.add(switch (day) {
+                                case "MO" -> DayOfWeek.MONDAY;
+                                case "TU" -> DayOfWeek.TUESDAY;
+                                case "WE" -> DayOfWeek.WEDNESDAY;
+                                case "TH" -> DayOfWeek.THURSDAY;
+                                case "FR" -> DayOfWeek.FRIDAY;
+                                case "SA" -> DayOfWeek.SATURDAY;
+                                default -> DayOfWeek.SUNDAY;
+                            });
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+            return rule;
+        }
+
+        List<LocalDate> generateOccurrences(LocalDate startDate, LocalDate rangeStart, LocalDate rangeEnd) {
+            List<LocalDate> occurrences = new ArrayList<>();
+            LocalDate current = startDate;
+            while (current != null && !current.isAfter(rangeEnd)) {
+                if (!current.isBefore(rangeStart) && (byDay.isEmpty() || byDay.contains(current.getDayOfWeek()))) {
+                    occurrences.add(current);
+                }
+                current = next(current);
+            }
+            return occurrences;
+        }
+
+        private LocalDate next(LocalDate current) {
+            switch (frequency) {
+                case DAILY:
+                    return current.plusDays(interval);
+                case WEEKLY:
+                    if (byDay.isEmpty()) {
+                        return current.plusWeeks(interval);
+                    }
+                    LocalDate next = current.plusDays(1);
+                    for (int checked = 0; checked < 7 * interval; checked++) {
+                        if (byDay.contains(next.getDayOfWeek())) {
+                            return next;
+                        }
+                        next = next.plusDays(1);
+                    }
+                    return current.plusWeeks(interval);
+                case MONTHLY:
+                    return current.plusMonths(interval);
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.student.course.cache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.student.common.context.UserContext;
+import com.student.common.context.UserContextHolder;
+import com.student.common.datapermission.DataPermissionRuleRegistry;
+import com.student.course.dto.CourseCacheEvent;
+import com.student.course.entity.CourseInfo;
+import com.student.course.mapper.CourseInfoMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 课程两级缓存（本地Caffeine + Redis）
+ *
+ * 课程信息和选课中心的课程列表读多写少，按ID缓存课程、按查询条件缓存列表页。
+ * 课程变更时删除Redis中的课程、递增列表版本号，并通过RabbitMQ广播失效事件清除各实例的本地缓存。
+ * 已选人数和满员状态变化频繁，不随课程缓存失效，而是单独缓存（默认2秒）后覆盖到返回结果上。
+ * 提交前已从数据库读到旧数据的加载可能在删除之后才写入Redis，因此删除后延迟再删一次课程缓存；
+ * 列表缓存键带版本号，旧版本的写入不会再被读到。
+ *
+ * 受数据权限限制的角色（如教师只能看到自己的课程）不走缓存，直接查询数据库。
+ */
+@Slf4j
+@Component
+public class CourseCatalogCache {
+
+    private static final String COURSE_KEY_PREFIX = "course:info:";
+    private static final String CATALOG_KEY_PREFIX = "course:catalog:";
+    private static final String CATALOG_VERSION_KEY = "course:catalog:version";
+    private static final String COURSE_TABLE = "course_info";
+
+    @Autowired
+    private CourseInfoMapper courseInfoMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private DataPermissionRuleRegistry ruleRegistry;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${rabbitmq.exchange.course-cache:course.cache.exchange}")
+    private String cacheExchange;
+
+    @Value("${course.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${course.cache.local.max-size:5000}")
+    private long localMaxSize;
+
+    @Value("${course.cache.local.catalog-max-size:1000}")
+    private long localCatalogMaxSize;
+
+    @Value("${course.cache.local.expire-seconds:60}")
+    private long localExpireSeconds;
+
+    @Value("${course.cache.redis.course-ttl-seconds:600}")
+    private long redisCourseTtlSeconds;
+
+    @Value("${course.cache.redis.catalog-ttl-seconds:120}")
+    private long redisCatalogTtlSeconds;
+
+    /**
+     * 课程变更后第二次删除缓存的延迟，需大于一次缓存加载（查库并写入Redis）的耗时
+     */
+    @Value("${course.cache.redis.evict-delay-millis:1000}")
+    private long evictDelayMillis;
+
+    @Value("${course.cache.seat-ttl-millis:2000}")
+    private long seatTtlMillis;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private Cache<Long, CourseInfo> courseCache;
+
+    private Cache<String, CatalogPage> catalogCache;
+
+    private Cache<Long, SeatSnapshot> seatCache;
+
+    /**
+     * 课程列表缓存版本，列表缓存键包含版本号，课程变更后旧版本的列表自然失效
+     */
+    private volatile long catalogVersion;
+
+    @PostConstruct
+    public void init() {
+        courseCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localExpireSeconds))
+                .build();
+        catalogCache = Caffeine.newBuilder()
+                .maximumSize(localCatalogMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localExpireSeconds))
+                .build();
+        seatCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofMillis(seatTtlMillis))
+                .build();
+
+        try {
+            String version = stringRedisTemplate.opsForValue().get(CATALOG_VERSION_KEY);
+            catalogVersion = version == null ? 0 : Long.parseLong(version);
+        } catch (Exception e) {
+            log.warn("读取课程列表缓存版本失败，使用初始版本", e);
+        }
+    }
+
+    /**
+     * 按ID获取课程（返回副本，已选人数和状态为最新）
+     *
+     * @return 课程，不存在时返回null
+     */
+    public CourseInfo getCourse(Long id) {
+        if (!isCacheable()) {
+            return courseInfoMapper.selectById(id);
+        }
+        CourseInfo course = courseCache.get(id, this::loadCourse);
+        if (course == null) {
+            return null;
+        }
+        return withSeats(List.of(course)).get(0);
+    }
+
+    /**
+     * 生成列表缓存的查询条件键：每个参数编码为"长度:值"，null编码为"-"，
+     * 不同的参数组合不会得到相同的键（如null与字符串"null"、值中含分隔符）
+     */
+    public static String filterKey(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            if (part == null) {
+                key.append('-');
+            } else {
+                String value = part.toString();
+                key.append(value.length()).append(':').append(value);
+            }
+            key.append('|');
+        }
+        return key.toString();
+    }
+
+    /**
+     * 获取课程列表页
+     *
+     * @param filterKey 查询条件（包含分页参数），由 {@link #filterKey(Object...)} 生成
+     * @param loader    缓存未命中时查询数据库
+     * @return 列表页（记录为副本，已选人数和状态为最新）
+     */
+    public CatalogPage getCatalogPage(String filterKey, Supplier<CatalogPage> loader) {
+        if (!isCacheable()) {
+            return loader.get();
+        }
+        String key = catalogVersion + ":" + DigestUtils.md5DigestAsHex(filterKey.getBytes(StandardCharsets.UTF_8));
+        CatalogPage page = catalogCache.get(key, k -> loadCatalogPage(k, loader));
+        return new CatalogPage(withSeats(page.getRecords()), page.getTotal());
+    }
+
+    /**
+     * 课程信息变更（创建、修改、删除）：事务提交后删除Redis缓存并广播失效事件
+     */
+    public void evictCourses(Collection<Long> courseIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(courseIds));
+        afterCommit(() -> {
+            Long version = null;
+            try {
+                if (!ids.isEmpty()) {
+                    stringRedisTemplate.delete(ids.stream().map(id -> COURSE_KEY_PREFIX + id).toList());
+                }
+                version = stringRedisTemplate.opsForValue().increment(CATALOG_VERSION_KEY);
+            } catch (Exception e) {
+                log.warn("删除课程Redis缓存失败: courseIds={}", ids, e);
+            }
+
+            CourseCacheEvent event = new CourseCacheEvent();
+            event.setType(CourseCacheEvent.TYPE_COURSE);
+            event.setCourseIds(ids);
+            event.setCatalogVersion(version);
+            onEvent(event);
+            publish(event);
+
+            if (!ids.isEmpty()) {
+                taskScheduler.schedule(() -> evictCoursesAgain(ids), Instant.now().plusMillis(evictDelayMillis));
+            }
+        });
+    }
+
+    /**
+     * 延迟二次删除：清除并发加载在第一次删除后写回的旧课程数据
+     */
+    private void evictCoursesAgain(List<Long> ids) {
+        try {
+            stringRedisTemplate.delete(ids.stream().map(id -> COURSE_KEY_PREFIX + id).toList());
+        } catch (Exception e) {
+            log.warn("延迟删除课程Redis缓存失败: courseIds={}", ids, e);
+        }
+
+        CourseCacheEvent event = new CourseCacheEvent();
+        event.setType(CourseCacheEvent.TYPE_COURSE);
+        event.setCourseIds(ids);
+        onEvent(event);
+        publish(event);
+    }
+
+    /**
+     * 已选人数变更：事务提交后广播座位失效事件，课程和列表缓存保持不变
+     */
+    public void evictSeats(Collection<Long> courseIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(courseIds));
+        if (ids.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            CourseCacheEvent event = new CourseCacheEvent();
+            event.setType(CourseCacheEvent.TYPE_SEATS);
+            event.setCourseIds(ids);
+            onEvent(event);
+            publish(event);
+        });
+    }
+
+    /**
+     * 处理失效事件，清除本地缓存
+     */
+    public void onEvent(CourseCacheEvent event) {
+        List<Long> ids = event.getCourseIds() == null ? List.of() : event.getCourseIds();
+        if (CourseCacheEvent.TYPE_SEATS.equals(event.getType())) {
+            seatCache.invalidateAll(ids);
+            return;
+        }
+
+        if (event.getCatalogVersion() != null && event.getCatalogVersion() > catalogVersion) {
+            catalogVersion = event.getCatalogVersion();
+        }
+        courseCache.invalidateAll(ids);
+        seatCache.invalidateAll(ids);
+        catalogCache.invalidateAll();
+    }
+
+    /**
+     * 当前用户的课程查询不受数据权限限制时才使用缓存
+     */
+    private boolean isCacheable() {
+        if (!enabled) {
+            return false;
+        }
+        UserContext context = UserContextHolder.getContext();
+        if (context == null || context.isAdmin() || context.getUserType() == null) {
+            return true;
+        }
+        return ruleRegistry.getRule(context.getUserType(), COURSE_TABLE) == null;
+    }
+
+    private CourseInfo loadCourse(Long id) {
+        String key = COURSE_KEY_PREFIX + id;
+        try {
+            String json = stringRedisTemplate.opsForValue().get(key);
+            if (json != null) {
+                return objectMapper.readValue(json, CourseInfo.class);
+            }
+        } catch (Exception e) {
+            log.warn("读取课程Redis缓存失败: courseId={}", id, e);
+        }
+
+        CourseInfo course = courseInfoMapper.selectById(id);
+        if (course != null) {
+            writeRedis(key, course, redisCourseTtlSeconds);
+        }
+        return course;
+    }
+
+    private CatalogPage loadCatalogPage(String key, Supplier<CatalogPage> loader) {
+        String redisKey = CATALOG_KEY_PREFIX + key;
+        try {
+            String json = stringRedisTemplate.opsForValue().get(redisKey);
+            if (json != null) {
+                return objectMapper.readValue(json, CatalogPage.class);
+            }
+        } catch (Exception e) {
+            log.warn("读取课程列表Redis缓存失败: key={}", redisKey, e);
+        }
+
+        CatalogPage page = loader.get();
+        writeRedis(redisKey, page, redisCatalogTtlSeconds);
+        return page;
+    }
+
+    private void writeRedis(String key, Object value, long ttlSeconds) {
+        try {
+            stringRedisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value), ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入课程Redis缓存失败: key={}", key, e);
+        }
+    }
+
+    /**
+     * 复制缓存的课程，并用单独缓存的已选人数和状态覆盖
+     */
+    private List<CourseInfo> withSeats(List<CourseInfo> courses) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (CourseInfo course : courses) {
+            ids.add(course.getId());
+        }
+        Map<Long, SeatSnapshot> seats = ids.isEmpty() ? Map.of() : seatCache.getAll(ids, this::loadSeats);
+
+        List<CourseInfo> result = new ArrayList<>(courses.size());
+        for (CourseInfo course : courses) {
+            CourseInfo copy = new CourseInfo();
+            BeanUtils.copyProperties(course, copy);
+            SeatSnapshot seat = seats.get(course.getId());
+            if (seat != null) {
+                copy.setEnrolledStudents(seat.getEnrolledStudents());
+                copy.setStatus(seat.getStatus());
+            }
+            result.add(copy);
+        }
+        return result;
+    }
+
+    private Map<Long, SeatSnapshot> loadSeats(Set<? extends Long> ids) {
+        Map<Long, SeatSnapshot> seats = new HashMap<>();
+        for (CourseInfo course : courseInfoMapper.selectSeatsByIds(ids)) {
+            seats.put(course.getId(), new SeatSnapshot(course.getEnrolledStudents(), course.getStatus()));
+        }
+        return seats;
+    }
+
+    private void publish(CourseCacheEvent event) {
+        try {
+            rabbitTemplate.convertAndSend(cacheExchange, "", event);
+        } catch (Exception e) {
+            log.warn("广播课程缓存失效事件失败，其他实例的本地缓存将在过期后刷新: courseIds={}",
+                    event.getCourseIds(), e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 缓存的课程列表页
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CatalogPage {
+        private List<CourseInfo> records;
+        private long total;
+    }
+
+    /**
+     * 已选人数与状态
+     */
+    @lombok.Value
+    static class SeatSnapshot {
+        Integer enrolledStudents;
+        Integer status;
+    }
+}
@@ -0,0 +1,115 @@
+package com.student.course.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.student.course.entity.CourseNotification;
+import com.student.course.mapper.CourseNotificationMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 通知正文本地缓存
+ *
+ * 通知发布后标题、正文不再修改，而同一条通知会被成百上千个接收人反复查看。
+ * "我的通知"查询只从数据库取接收记录和通知的短字段，正文（TEXT）从这里取，
+ * 未命中的通知一次批量查询补齐，避免每行查一次course_notification。
+ */
+@Slf4j
+@Component
+public class NotificationBodyCache {
+
+    @Autowired
+    private CourseNotificationMapper notificationMapper;
+
+    @Value("${notification.body-cache.max-size:2000}")
+    private long maxSize;
+
+    @Value("${notification.body-cache.expire-minutes:30}")
+    private long expireMinutes;
+
+    private Cache<Long, NotificationBody> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 批量获取通知正文，未命中的一次性从数据库加载
+     *
+     * @param notificationIds 通知ID
+     * @return 通知ID -> 正文（不存在的通知不在结果中）
+     */
+    public Map<Long, NotificationBody> getAll(Collection<Long> notificationIds) {
+        Set<Long> ids = new LinkedHashSet<>(notificationIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        return cache.getAll(ids, this::loadAll);
+    }
+
+    /**
+     * 移除缓存的通知正文（通知删除时调用）
+     */
+    public void evict(Long notificationId) {
+        cache.invalidate(notificationId);
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", cache.estimatedSize());
+        stats.put("hitCount", cache.stats().hitCount());
+        stats.put("missCount", cache.stats().missCount());
+        stats.put("hitRate", cache.stats().hitRate());
+        return stats;
+    }
+
+    private Map<Long, NotificationBody> loadAll(Set<? extends Long> ids) {
+        List<CourseNotification> notifications = notificationMapper.selectBodiesByIds(ids);
+
+        Map<Long, NotificationBody> bodies = new HashMap<>();
+        for (CourseNotification notification : notifications) {
+            bodies.put(notification.getId(), NotificationBody.of(notification));
+        }
+        log.debug("加载通知正文: requested={}, loaded={}", ids.size(), bodies.size());
+        return bodies;
+    }
+
+    /**
+     * 不可变的通知正文
+     */
+    @lombok.Value
+    public static class NotificationBody {
+        Long id;
+        Long courseId;
+        String title;
+        String content;
+        String notificationType;
+        Integer priority;
+
+        static NotificationBody of(CourseNotification notification) {
+            return new NotificationBody(notification.getId(), notification.getCourseId(),
+                    notification.getTitle(), notification.getContent(),
+                    notification.getNotificationType(), notification.getPriority());
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.student.course.cache;
+
+import com.student.course.dto.UserUnreadCountDTO;
+import com.student.course.mapper.NotificationReceiveMapper;
+import com.student.course.websocket.NotificationWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户未读通知数量计数器（Redis）
+ *
+ * 首次读取时从数据库COUNT一次写入Redis，之后由分发、标记已读增减，前端轮询只读Redis。
+ * 计数变化后合并一段时间内的变更，通过STOMP推送给在线用户。
+ * 只维护已被读取过的用户，未初始化的计数不做增减，下次读取时从数据库加载；
+ * 已初始化的用户记录在有序集合中，定时与数据库对账，纠正加载与增减并发时的偏差；
+ * 对账以比较并写入的方式覆盖计数，不会吞掉对账期间发生的增减。
+ */
+@Slf4j
+@Component
+public class NotificationUnreadCounter {
+
+    private static final String COUNT_KEY_PREFIX = "notification:unread:";
+    private static final String TRACKED_USERS_KEY = "notification:unread-users";
+    private static final String RECONCILE_LOCK_KEY = "notification:unread-reconcile-lock";
+
+    /**
+     * 增加计数（仅已初始化的计数）：KEYS=计数 ARGV[1]=增量，返回每个计数的新值，未初始化的返回-1
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final DefaultRedisScript<List> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local result = {} " +
+            "for i, key in ipairs(KEYS) do " +
+            "  if redis.call('EXISTS', key) == 1 then result[i] = redis.call('INCRBY', key, ARGV[1]) " +
+            "  else result[i] = -1 end " +
+            "end " +
+            "return result", List.class);
+
+    /**
+     * 减一（不小于0，仅已初始化的计数）：KEYS[1]=计数，返回新值，未初始化返回-1
+     */
+    private static final DefaultRedisScript<Long> DECREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local value = redis.call('DECR', KEYS[1]) " +
+            "if value < 0 then redis.call('INCRBY', KEYS[1], -value) return 0 end " +
+            "return value", Long.class);
+
+    /**
+     * 对账写入：计数仍为读取时的值才覆盖（期间有增减则放弃，下次对账再比较），同时刷新过期时间和跟踪时间
+     * KEYS[1]=计数 KEYS[2]=已初始化用户集合 ARGV[1]=读取时的值 ARGV[2]=数据库计数 ARGV[3]=过期毫秒数
+     * ARGV[4]=当前时间 ARGV[5]=用户ID，返回1表示已写入
+     */
+    private static final DefaultRedisScript<Long> RECONCILE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+            "redis.call('ZADD', KEYS[2], ARGV[4], ARGV[5]) " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private NotificationReceiveMapper receiveMapper;
+
+    @Autowired
+    private NotificationWebSocketHandler webSocketHandler;
+
+    @Value("${notification.unread.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${notification.unread.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    @Value("${notification.unread.reconcile-interval-ms:600000}")
+    private long reconcileIntervalMs;
+
+    /**
+     * 正在从数据库加载的用户，同一用户的并发未命中只查一次
+     */
+    private final Map<Long, CompletableFuture<Long>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 待推送的计数（用户ID -> 最新值），定时合并推送
+     */
+    private final Map<Long, Long> pendingPushes = new ConcurrentHashMap<>();
+
+    /**
+     * 获取未读数量，未初始化时从数据库加载
+     */
+    public long get(Long userId) {
+        String value = stringRedisTemplate.opsForValue().get(countKey(userId));
+        if (value != null) {
+            return Long.parseLong(value);
+        }
+
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        CompletableFuture<Long> inFlight = loading.putIfAbsent(userId, future);
+        if (inFlight != null) {
+            return inFlight.join();
+        }
+        try {
+            Long count = receiveMapper.countUnreadByUserId(userId);
+            long unread = count == null ? 0 : count;
+            // 其他实例已先写入时以其为准（之后的增减已累加在上面）
+            Boolean created = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(countKey(userId), String.valueOf(unread), Duration.ofHours(ttlHours));
+            if (Boolean.TRUE.equals(created)) {
+                track(userId);
+            } else {
+                String current = stringRedisTemplate.opsForValue().get(countKey(userId));
+                unread = current == null ? unread : Long.parseLong(current);
+            }
+            future.complete(unread);
+            return unread;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(userId, future);
+        }
+    }
+
+    /**
+     * 分发写入接收记录后增加计数
+     *
+     * @param userIds  本批接收人
+     * @param inserted 实际插入的行数，少于接收人数说明有重复投递，无法确定哪些用户新增，直接清除计数
+     */
+    public void onReceived(List<Long> userIds, int inserted) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                List<String> keys = userIds.stream().map(this::countKey).toList();
+                if (inserted < userIds.size()) {
+                    stringRedisTemplate.delete(keys);
+                    return;
+                }
+                @SuppressWarnings("unchecked")
+                List<Long> values = stringRedisTemplate.execute(INCREMENT_SCRIPT, keys, "1");
+                if (values == null) {
+                    return;
+                }
+                for (int i = 0; i < values.size(); i++) {
+                    if (values.get(i) >= 0) {
+                        pendingPushes.put(userIds.get(i), values.get(i));
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("增加未读计数失败，清除后将从数据库重新加载: users={}", userIds.size(), e);
+                evict(userIds);
+            }
+        });
+    }
+
+    /**
+     * 标记一条通知已读后减少计数
+     */
+    public void onRead(Long userId) {
+        afterCommit(() -> {
+            try {
+                Long value = stringRedisTemplate.execute(DECREMENT_SCRIPT, List.of(countKey(userId)));
+                if (value != null && value >= 0) {
+                    pendingPushes.put(userId, value);
+                }
+            } catch (Exception e) {
+                log.warn("减少未读计数失败，清除后将从数据库重新加载: userId={}", userId, e);
+                evict(List.of(userId));
+            }
+        });
+    }
+
+    /**
+     * 全部标记已读后计数清零
+     */
+    public void onAllRead(Long userId) {
+        afterCommit(() -> {
+            try {
+                seed(userId, 0);
+                pendingPushes.put(userId, 0L);
+            } catch (Exception e) {
+                log.warn("重置未读计数失败，清除后将从数据库重新加载: userId={}", userId, e);
+                evict(List.of(userId));
+            }
+        });
+    }
+
+    /**
+     * 合并推送计数变化（同一用户在间隔内多次变化只推送最新值）
+     */
+    @Scheduled(fixedDelayString = "${notification.unread.push-interval-ms:1000}")
+    public void flushPushes() {
+        if (pendingPushes.isEmpty()) {
+            return;
+        }
+        Map<Long, Object> payloads = new HashMap<>();
+        for (Long userId : new ArrayList<>(pendingPushes.keySet())) {
+            Long count = pendingPushes.remove(userId);
+            if (count != null) {
+                payloads.put(userId, Map.of("unreadCount", count));
+            }
+        }
+        if (!payloads.isEmpty()) {
+            webSocketHandler.sendToUsers(payloads, NotificationWebSocketHandler.UNREAD_DESTINATION);
+        }
+    }
+
+    /**
+     * 与数据库对账：按批读取已初始化的用户，重新COUNT，纠正偏差并推送
+     */
+    @Scheduled(fixedDelayString = "${notification.unread.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        try {
+            // 多实例部署时每个周期只由一个实例对账
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, "1",
+                    Duration.ofMillis(Math.max(reconcileIntervalMs / 2, 1000)));
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+
+            long expiredBefore = System.currentTimeMillis() - Duration.ofHours(ttlHours).toMillis();
+            stringRedisTemplate.opsForZSet().removeRangeByScore(TRACKED_USERS_KEY, 0, expiredBefore);
+
+            int checked = 0;
+            int drifted = 0;
+            for (long start = 0; ; start += reconcileBatchSize) {
+                Set<String> members = stringRedisTemplate.opsForZSet()
+                        .range(TRACKED_USERS_KEY, start, start + reconcileBatchSize - 1);
+                if (members == null || members.isEmpty()) {
+                    break;
+                }
+                List<Long> userIds = members.stream().map(Long::valueOf).toList();
+                drifted += reconcileBatch(userIds);
+                checked += userIds.size();
+                if (members.size() < reconcileBatchSize) {
+                    break;
+                }
+            }
+            log.info("未读计数对账完成: users={}, drifted={}", checked, drifted);
+        } catch (Exception e) {
+            log.error("未读计数对账失败", e);
+        }
+    }
+
+    private int reconcileBatch(List<Long> userIds) {
+        List<String> cached = stringRedisTemplate.opsForValue()
+                .multiGet(userIds.stream().map(this::countKey).toList());
+        Map<Long, Long> actual = new HashMap<>();
+        for (UserUnreadCountDTO row : receiveMapper.selectUnreadCounts(userIds)) {
+            actual.put(row.getUserId(), row.getCount());
+        }
+
+        int drifted = 0;
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            String value = cached == null ? null : cached.get(i);
+            if (value == null) {
+                // 计数已过期，下次读取时重新加载
+                stringRedisTemplate.opsForZSet().remove(TRACKED_USERS_KEY, userId.toString());
+                continue;
+            }
+            long count = actual.getOrDefault(userId, 0L);
+            if (Long.parseLong(value) != count) {
+                drifted++;
+                Long written = stringRedisTemplate.execute(RECONCILE_SCRIPT,
+                        List.of(countKey(userId), TRACKED_USERS_KEY), value, String.valueOf(count),
+                        String.valueOf(Duration.ofHours(ttlHours).toMillis()),
+                        String.valueOf(System.currentTimeMillis()), userId.toString());
+                if (written != null && written == 1) {
+                    log.debug("未读计数偏差已纠正: userId={}, redis={}, db={}", userId, value, count);
+                    pendingPushes.put(userId, count);
+                } else {
+                    log.debug("未读计数对账期间有变更，留待下次对账: userId={}", userId);
+                }
+            }
+        }
+        return drifted;
+    }
+
+    private void seed(Long userId, long count) {
+        stringRedisTemplate.opsForValue().set(countKey(userId), String.valueOf(count), Duration.ofHours(ttlHours));
+        track(userId);
+    }
+
+    private void track(Long userId) {
+        stringRedisTemplate.opsForZSet().add(TRACKED_USERS_KEY, userId.toString(), System.currentTimeMillis());
+    }
+
+    private void evict(Collection<Long> userIds) {
+        try {
+            stringRedisTemplate.delete(userIds.stream().map(this::countKey).toList());
+        } catch (Exception e) {
+            log.error("清除未读计数失败: users={}", userIds.size(), e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String countKey(Long userId) {
+        return COUNT_KEY_PREFIX + userId;
+    }
+}
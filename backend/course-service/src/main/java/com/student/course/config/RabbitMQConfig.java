@@ -2,15 +2,19 @@ package com.student.course.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.student.course.websocket.WebSocketPresenceRegistry;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 
 /**
  * RabbitMQ配置类
@@ -27,9 +31,39 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-key.notification}")
     private String notificationRoutingKey;
 
+    @Value("${rabbitmq.queue.course-notification-dlq:course.notification.dlq}")
+    private String notificationDeadLetterQueue;
+
+    @Value("${rabbitmq.routing-key.notification-dlq:course.notification.failed}")
+    private String notificationDeadLetterRoutingKey;
+
+    @Value("${notification.fanout.max-attempts:3}")
+    private int notificationMaxAttempts;
+
+    @Value("${notification.fanout.retry-interval-ms:5000}")
+    private long notificationRetryIntervalMs;
+
     @Value("${rabbitmq.queue.teacher-name-sync:teacher.name.sync.queue}")
     private String teacherNameSyncQueue;
 
+    @Value("${rabbitmq.queue.course-enrollment:course.enrollment.queue}")
+    private String enrollmentQueue;
+
+    @Value("${rabbitmq.routing-key.enrollment:course.enrollment}")
+    private String enrollmentRoutingKey;
+
+    @Value("${rabbitmq.exchange.course-cache:course.cache.exchange}")
+    private String courseCacheExchange;
+
+    @Value("${rabbitmq.exchange.websocket-push:websocket.push.exchange}")
+    private String webSocketPushExchange;
+
+    @Value("${course.enrollment.persist-batch-size:200}")
+    private int enrollmentBatchSize;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
     /**
      * 声明通知队列
      */
@@ -39,6 +73,15 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    /**
+     * 声明通知死信队列（分发重试次数用尽的通知消息，排查后可移回通知队列重新分发）
+     */
+    @Bean
+    public Queue notificationDeadLetterQueue() {
+        return QueueBuilder.durable(notificationDeadLetterQueue)
+                .build();
+    }
+
     /**
      * 声明教师姓名同步队列
      */
@@ -48,6 +91,15 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    /**
+     * 声明选课持久化队列
+     */
+    @Bean
+    public Queue enrollmentQueue() {
+        return QueueBuilder.durable(enrollmentQueue)
+                .build();
+    }
+
     /**
      * 声明课程交换机（Direct类型）
      */
@@ -68,6 +120,74 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    /**
+     * 声明课程缓存失效交换机（Fanout类型，广播给所有实例）
+     */
+    @Bean
+    public FanoutExchange courseCacheExchange() {
+        return ExchangeBuilder.fanoutExchange(courseCacheExchange)
+                .durable(true)
+                .build();
+    }
+
+    /**
+     * 声明课程缓存失效队列（每个实例一个匿名队列，实例停止后自动删除）
+     */
+    @Bean
+    public Queue courseCacheQueue() {
+        return new AnonymousQueue();
+    }
+
+    /**
+     * 绑定课程缓存失效队列到交换机
+     */
+    @Bean
+    public Binding courseCacheBinding() {
+        return BindingBuilder
+                .bind(courseCacheQueue())
+                .to(courseCacheExchange());
+    }
+
+    /**
+     * 声明WebSocket推送转发交换机（Direct类型，路由键为目标实例的节点ID）
+     */
+    @Bean
+    public DirectExchange webSocketPushExchange() {
+        return ExchangeBuilder.directExchange(webSocketPushExchange)
+                .durable(true)
+                .build();
+    }
+
+    /**
+     * 声明WebSocket推送转发队列（每个实例一个匿名队列，实例停止后自动删除）
+     */
+    @Bean
+    public Queue webSocketPushQueue() {
+        return new AnonymousQueue();
+    }
+
+    /**
+     * 按本实例节点ID绑定WebSocket推送转发队列
+     */
+    @Bean
+    public Binding webSocketPushNodeBinding(WebSocketPresenceRegistry presenceRegistry) {
+        return BindingBuilder
+                .bind(webSocketPushQueue())
+                .to(webSocketPushExchange())
+                .with(presenceRegistry.getNodeId());
+    }
+
+    /**
+     * 绑定WebSocket广播路由键（所有实例都接收）
+     */
+    @Bean
+    public Binding webSocketPushBroadcastBinding() {
+        return BindingBuilder
+                .bind(webSocketPushQueue())
+                .to(webSocketPushExchange())
+                .with(WebSocketPresenceRegistry.BROADCAST_ROUTING_KEY);
+    }
+
     /**
      * 绑定通知队列到交换机
      */
@@ -79,6 +199,28 @@ public class RabbitMQConfig {
                 .with(notificationRoutingKey);
     }
 
+    /**
+     * 绑定通知死信队列到交换机
+     */
+    @Bean
+    public Binding notificationDeadLetterBinding() {
+        return BindingBuilder
+                .bind(notificationDeadLetterQueue())
+                .to(courseExchange())
+                .with(notificationDeadLetterRoutingKey);
+    }
+
+    /**
+     * 绑定选课持久化队列到交换机
+     */
+    @Bean
+    public Binding enrollmentBinding() {
+        return BindingBuilder
+                .bind(enrollmentQueue())
+                .to(courseExchange())
+                .with(enrollmentRoutingKey);
+    }
+
     /**
      * 绑定教师姓名同步队列到系统交换机
      */
@@ -121,6 +263,55 @@ public class RabbitMQConfig {
         factory.setMessageConverter(messageConverter());
         factory.setConcurrentConsumers(3);
         factory.setMaxConcurrentConsumers(10);
+        if (virtualThreadsEnabled) {
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("rabbit-listener-"));
+        }
+        return factory;
+    }
+
+    /**
+     * 通知分发监听器容器工厂
+     * 分发失败时在本实例内按退避间隔重试（从断点继续），重试次数用尽后转发到通知死信队列
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory notificationContainerFactory(
+            ConnectionFactory connectionFactory, RabbitTemplate rabbitTemplate) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setConcurrentConsumers(3);
+        factory.setMaxConcurrentConsumers(10);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(notificationMaxAttempts)
+                .backOffOptions(notificationRetryIntervalMs, 2.0, notificationRetryIntervalMs * 4)
+                .recoverer(new RepublishMessageRecoverer(rabbitTemplate, courseExchange, notificationDeadLetterRoutingKey))
+                .build());
+        if (virtualThreadsEnabled) {
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("rabbit-notification-"));
+        }
+        return factory;
+    }
+
+    /**
+     * 选课持久化批量监听器容器工厂
+     * 一次拉取多条消息交给监听器，批量写入数据库
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory enrollmentBatchContainerFactory(
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(enrollmentBatchSize);
+        factory.setPrefetchCount(enrollmentBatchSize * 2);
+        factory.setReceiveTimeout(500L);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(2);
+        if (virtualThreadsEnabled) {
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("rabbit-enrollment-"));
+        }
         return factory;
     }
 }
@@ -0,0 +1,23 @@
+package com.student.course.config;
+
+import com.student.common.context.UserContextTaskDecorator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 线程模型配置
+ *
+ * spring.threads.virtual.enabled=true 时，Spring Boot自动把Tomcat请求处理、@Async默认执行器
+ * (applicationTaskExecutor)和@Scheduled调度器切换为虚拟线程；自定义的RabbitMQ监听器容器工厂
+ * 在RabbitMQConfig中按同一开关设置执行器。此处注册的TaskDecorator会被自动配置的异步执行器使用，
+ * 把提交方的用户上下文带到执行线程。
+ */
+@Configuration
+public class ThreadingConfig {
+
+    @Bean
+    public TaskDecorator userContextTaskDecorator() {
+        return new UserContextTaskDecorator();
+    }
+}
@@ -1,6 +1,9 @@
 package com.student.course.config;
 
+import com.student.course.websocket.WebSocketAuthInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -8,11 +11,17 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 
 /**
  * WebSocket配置类
+ *
+ * 每个实例使用自己的简单消息代理，只负责本实例上的会话；
+ * 用户在哪个实例在线由WebSocketPresenceRegistry记录在Redis中，跨实例推送经RabbitMQ转发到目标实例
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private WebSocketAuthInterceptor webSocketAuthInterceptor;
+
     /**
      * 配置消息代理
      */
@@ -36,4 +45,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    /**
+     * 客户端入站通道：CONNECT时校验JWT并绑定用户身份
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(webSocketAuthInterceptor);
+    }
 }
@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 附件搜索控制器
@@ -57,11 +58,18 @@ public class AttachmentSearchController {
         return Result.success(results);
     }
 
-    @Operation(summary = "重新索引所有附件", description = "为数据库中所有附件重新建立Elasticsearch索引")
+    @Operation(summary = "重新索引所有附件", description = "为数据库中所有附件重新建立Elasticsearch索引，中断后再次调用从断点继续")
     @PostMapping("/reindex")
-    public Result<Integer> reindexAllAttachments() {
-        log.info("收到重新索引请求");
-        int count = searchService.reindexAllAttachments();
+    public Result<Integer> reindexAllAttachments(
+            @Parameter(description = "是否忽略上次进度从头开始") @RequestParam(defaultValue = "false") boolean restart) {
+        log.info("收到重新索引请求: restart={}", restart);
+        int count = searchService.reindexAllAttachments(restart);
         return Result.success(count);
     }
+
+    @Operation(summary = "查询重新索引进度")
+    @GetMapping("/reindex/progress")
+    public Result<Map<String, Object>> getReindexProgress() {
+        return Result.success(searchService.getReindexProgress());
+    }
 }
@@ -1,5 +1,7 @@
 package com.student.course.controller;
 
+import com.student.common.annotation.RequireRole;
+import com.student.common.result.CursorPage;
 import com.student.common.result.Result;
 import com.student.course.entity.CourseAttachment;
 import com.student.course.service.CourseAttachmentService;
@@ -12,6 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 课程附件控制器
@@ -71,6 +74,13 @@ public class CourseAttachmentController {
         return Result.success();
     }
 
+    @Operation(summary = "查询文档内容提取指标")
+    @GetMapping("/extraction/metrics")
+    @RequireRole({"admin"})
+    public Result<Map<String, Object>> getExtractionMetrics() {
+        return Result.success(attachmentService.getExtractionMetrics());
+    }
+
     @Operation(summary = "获取所有附件和统计信息（附件管理界面专用）")
     @GetMapping("/all")
     public Result<AttachmentManagementVO> getAllAttachmentsWithStatistics(
@@ -83,4 +93,18 @@ public class CourseAttachmentController {
                 courseId, attachmentType, current, size);
         return Result.success(result);
     }
+
+    @Operation(summary = "游标分页查询附件（附件管理界面滚动加载/导出）")
+    @GetMapping("/all/cursor")
+    public Result<CursorPage<CourseAttachment>> getAttachmentsByCursor(
+            @Parameter(description = "课程ID（可选）") @RequestParam(required = false) Long courseId,
+            @Parameter(description = "附件类型（可选）") @RequestParam(required = false) String attachmentType,
+            @Parameter(description = "上一页返回的游标，第一页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数") @RequestParam(defaultValue = "10") Integer size,
+            @Parameter(description = "是否返回总数") @RequestParam(defaultValue = "false") boolean withTotal) {
+
+        CursorPage<CourseAttachment> page = attachmentService.getAttachmentsByCursor(
+                courseId, attachmentType, cursor, size, withTotal);
+        return Result.success(page);
+    }
 }
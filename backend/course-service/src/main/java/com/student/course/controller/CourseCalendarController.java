@@ -1,9 +1,11 @@
 package com.student.course.controller;
 
+import com.student.common.annotation.RequireRole;
 import com.student.common.result.Result;
 import com.student.course.entity.CourseCalendar;
 import com.student.course.service.CourseCalendarService;
 import com.student.course.service.SemesterService;
+import com.student.course.vo.CalendarGenerationVO;
 import com.student.course.vo.SemesterVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -135,6 +137,16 @@ public class CourseCalendarController {
         return Result.success(count);
     }
 
+    @Operation(summary = "按学期批量生成所有课程日历")
+    @RequireRole({"admin"})
+    @PostMapping("/generate/semester")
+    public Result<CalendarGenerationVO> generateSemesterCalendar(
+            @Parameter(description = "学期名称，为空时使用当前学期") @RequestParam(required = false) String semester) {
+
+        CalendarGenerationVO result = calendarService.generateSemesterCalendar(semester);
+        return Result.success(result);
+    }
+
     @Operation(summary = "获取课程的原始日历记录（不展开）")
     @GetMapping("/raw/{courseId}")
     public Result<List<CourseCalendar>> getRawCourseCalendar(@PathVariable Long courseId) {
@@ -2,6 +2,7 @@ package com.student.course.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.student.common.annotation.RequireRole;
+import com.student.common.result.CursorPage;
 import com.student.common.result.Result;
 import com.student.course.entity.CourseEnrollment;
 import com.student.course.service.CourseEnrollmentService;
@@ -43,6 +44,17 @@ public class CourseEnrollmentController {
         return Result.success(enrollment);
     }
 
+    @Operation(summary = "预热选课座位")
+    @RequireRole({"admin"})
+    @PostMapping("/seats/warmup")
+    public Result<Integer> warmUpSeats(
+            @Parameter(description = "学期") @RequestParam String semester,
+            @Parameter(description = "是否覆盖已有预热数据") @RequestParam(defaultValue = "false") Boolean force) {
+
+        int warmed = enrollmentService.warmUpSeats(semester, force);
+        return Result.success(warmed);
+    }
+
     @Operation(summary = "学生退课")
     @PostMapping("/drop/{enrollmentId}")
     public Result<Void> dropCourse(
@@ -78,6 +90,19 @@ public class CourseEnrollmentController {
         return Result.success(page);
     }
 
+    @Operation(summary = "查询课程的选课学生（游标分页）")
+    @RequireRole({"admin", "teacher"})
+    @GetMapping("/students/{courseId}/cursor")
+    public Result<CursorPage<CourseEnrollment>> getCourseStudentsByCursor(
+            @PathVariable Long courseId,
+            @Parameter(description = "上一页返回的游标，第一页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数") @RequestParam(defaultValue = "10") Integer size,
+            @Parameter(description = "是否返回总数") @RequestParam(defaultValue = "false") boolean withTotal) {
+
+        CursorPage<CourseEnrollment> page = enrollmentService.getCourseStudentsByCursor(courseId, cursor, size, withTotal);
+        return Result.success(page);
+    }
+
     @Operation(summary = "检查是否已选课")
     @GetMapping("/check")
     public Result<Boolean> checkEnrollment(
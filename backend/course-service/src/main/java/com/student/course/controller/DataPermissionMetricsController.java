@@ -0,0 +1,45 @@
+package com.student.course.controller;
+
+import com.student.common.annotation.RequireRole;
+import com.student.common.datapermission.DataPermissionPlanCache;
+import com.student.common.datapermission.MapperPermissionIndex;
+import com.student.common.result.Result;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据权限运行指标控制器
+ */
+@Tag(name = "数据权限指标", description = "数据权限索引与SQL改写缓存命中情况")
+@RestController
+@RequestMapping("/course/data-permission")
+@RequireRole({"admin"})
+public class DataPermissionMetricsController {
+
+    @Autowired
+    private MapperPermissionIndex permissionIndex;
+
+    @Autowired
+    private DataPermissionPlanCache planCache;
+
+    @Operation(summary = "查询数据权限指标")
+    @GetMapping("/metrics")
+    public Result<Map<String, Object>> getMetrics() {
+        Map<String, Object> planStatistics = new HashMap<>();
+        planStatistics.put("size", planCache.size());
+        planStatistics.put("hits", planCache.getHitCount());
+        planStatistics.put("misses", planCache.getMissCount());
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("mapperIndex", permissionIndex.getStatistics());
+        metrics.put("planCache", planStatistics);
+        return Result.success(metrics);
+    }
+}
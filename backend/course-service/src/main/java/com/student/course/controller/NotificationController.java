@@ -2,15 +2,21 @@ package com.student.course.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.student.common.annotation.RequireRole;
+import com.student.common.result.CursorPage;
 import com.student.common.result.Result;
+import com.student.course.cache.NotificationBodyCache;
 import com.student.course.entity.CourseNotification;
+import com.student.course.vo.UserNotificationVO;
+import com.student.course.service.NotificationDispatchService;
 import com.student.course.service.NotificationService;
+import com.student.course.websocket.WebSocketPresenceRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -25,6 +31,15 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private WebSocketPresenceRegistry presenceRegistry;
+
+    @Autowired
+    private NotificationDispatchService dispatchService;
+
+    @Autowired
+    private NotificationBodyCache notificationBodyCache;
+
     /**
      * 创建并发送通知
      */
@@ -68,7 +83,7 @@ public class NotificationController {
      */
     @GetMapping("/my")
     @Operation(summary = "获取我的通知列表")
-    public Result<IPage<Map<String, Object>>> getMyNotifications(
+    public Result<IPage<UserNotificationVO>> getMyNotifications(
             @RequestHeader(value = "userId", required = false) Long userId,
             @RequestParam(required = false) Integer isRead,
             @RequestParam(defaultValue = "1") Integer current,
@@ -77,7 +92,31 @@ public class NotificationController {
             if (userId == null) {
                 return Result.error("用户未登录");
             }
-            IPage<Map<String, Object>> page = notificationService.getUserNotifications(userId, isRead, current, size);
+            IPage<UserNotificationVO> page = notificationService.getUserNotifications(userId, isRead, current, size);
+            return Result.success(page);
+        } catch (Exception e) {
+            log.error("获取我的通知列表失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取用户的通知列表（游标分页，深翻页不变慢，默认不返回总数）
+     */
+    @GetMapping("/my/cursor")
+    @Operation(summary = "获取我的通知列表（游标分页）")
+    public Result<CursorPage<UserNotificationVO>> getMyNotificationsByCursor(
+            @RequestHeader(value = "userId", required = false) Long userId,
+            @RequestParam(required = false) Integer isRead,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            if (userId == null) {
+                return Result.error("用户未登录");
+            }
+            CursorPage<UserNotificationVO> page =
+                    notificationService.getUserNotificationsByCursor(userId, isRead, cursor, size, withTotal);
             return Result.success(page);
         } catch (Exception e) {
             log.error("获取我的通知列表失败", e);
@@ -173,4 +212,39 @@ public class NotificationController {
             return Result.error(e.getMessage());
         }
     }
+
+    /**
+     * 获取WebSocket连接指标（本实例及各实例的连接数）
+     */
+    @RequireRole({"admin"})
+    @GetMapping("/ws/metrics")
+    @Operation(summary = "获取WebSocket连接指标")
+    public Result<Map<String, Object>> getWebSocketMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("nodeId", presenceRegistry.getNodeId());
+        metrics.put("localConnections", presenceRegistry.getLocalConnectionCount());
+        metrics.put("localUsers", presenceRegistry.getLocalUserCount());
+        metrics.put("nodes", presenceRegistry.getNodeStatistics());
+        return Result.success(metrics);
+    }
+
+    /**
+     * 获取定时通知调度指标（各优先级待发送和已到期数量）
+     */
+    @RequireRole({"admin"})
+    @GetMapping("/dispatch/metrics")
+    @Operation(summary = "获取定时通知调度指标")
+    public Result<Map<String, Object>> getDispatchMetrics() {
+        return Result.success(dispatchService.getStatistics());
+    }
+
+    /**
+     * 获取通知正文本地缓存指标（本实例的缓存条数和命中率）
+     */
+    @RequireRole({"admin"})
+    @GetMapping("/body-cache/metrics")
+    @Operation(summary = "获取通知正文缓存指标")
+    public Result<Map<String, Object>> getBodyCacheMetrics() {
+        return Result.success(notificationBodyCache.getStatistics());
+    }
 }
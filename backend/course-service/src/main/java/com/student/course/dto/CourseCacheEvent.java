@@ -0,0 +1,41 @@
+package com.student.course.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 课程缓存失效事件
+ * 课程变更后通过RabbitMQ广播给所有course-service实例，清除各自的本地缓存
+ */
+@Data
+public class CourseCacheEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 课程信息变更（课程与课程列表缓存失效）
+     */
+    public static final String TYPE_COURSE = "COURSE";
+
+    /**
+     * 已选人数变更（只刷新座位信息）
+     */
+    public static final String TYPE_SEATS = "SEATS";
+
+    /**
+     * 事件类型
+     */
+    private String type;
+
+    /**
+     * 变更的课程ID
+     */
+    private List<Long> courseIds;
+
+    /**
+     * 变更后的课程列表缓存版本（仅课程信息变更时有值）
+     */
+    private Long catalogVersion;
+}
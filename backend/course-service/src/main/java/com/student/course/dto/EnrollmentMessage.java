@@ -0,0 +1,51 @@
+package com.student.course.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 选课持久化消息
+ * Redis预占座位成功后投递到RabbitMQ，由消费者批量写入course_enrollment
+ */
+@Data
+public class EnrollmentMessage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 课程ID
+     */
+    private Long courseId;
+
+    /**
+     * 学生ID
+     */
+    private Long studentId;
+
+    /**
+     * 学生姓名
+     */
+    private String studentName;
+
+    /**
+     * 学号
+     */
+    private String studentNumber;
+
+    /**
+     * 班级ID
+     */
+    private Long classId;
+
+    /**
+     * 班级名称
+     */
+    private String className;
+
+    /**
+     * 选课时间（以预占成功时间为准）
+     */
+    private LocalDateTime enrollmentTime;
+}
@@ -0,0 +1,41 @@
+package com.student.course.dto;
+
+import lombok.Data;
+
+/**
+ * 通知统计数据 DTO（单次条件聚合查询的结果）
+ */
+@Data
+public class NotificationStatisticsDTO {
+
+    /**
+     * 通知总数
+     */
+    private Long totalCount;
+
+    /**
+     * 各类型数量：公告 / 作业 / 考试 / 停课
+     */
+    private Long announcementCount;
+    private Long homeworkCount;
+    private Long examCount;
+    private Long cancelCount;
+
+    /**
+     * 各发送状态数量：待发送 / 发送中 / 已发送 / 发送失败
+     */
+    private Long pendingCount;
+    private Long sendingCount;
+    private Long sentCount;
+    private Long failedCount;
+
+    /**
+     * 总发送人数
+     */
+    private Long totalSendCount;
+
+    /**
+     * 总已读人数
+     */
+    private Long totalReadCount;
+}
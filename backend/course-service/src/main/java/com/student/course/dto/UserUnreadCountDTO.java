@@ -0,0 +1,20 @@
+package com.student.course.dto;
+
+import lombok.Data;
+
+/**
+ * 用户未读通知数量 DTO
+ */
+@Data
+public class UserUnreadCountDTO {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 未读通知数量
+     */
+    private Long count;
+}
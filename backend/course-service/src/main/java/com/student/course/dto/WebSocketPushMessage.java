@@ -0,0 +1,37 @@
+package com.student.course.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebSocket推送转发消息
+ * 目标用户连接在其他course-service实例上时，通过RabbitMQ转发给该实例，由其推送给本地会话
+ */
+@Data
+public class WebSocketPushMessage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 目标用户ID，为空表示广播给所有在线用户
+     */
+    private List<Long> userIds;
+
+    /**
+     * 推送内容
+     */
+    private Object payload;
+
+    /**
+     * 按用户区分的推送内容（有值时忽略userIds和payload）
+     */
+    private Map<Long, Object> userPayloads;
+
+    /**
+     * 用户目的地，为空表示通知队列
+     */
+    private String destination;
+}
@@ -0,0 +1,45 @@
+package com.student.course.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * 课程日历展开索引
+ * 每个日历事件的每次发生对应一行（一次性事件一行，周期性事件按重复规则展开），
+ * 由CalendarOccurrenceService在事件变更时重建，按日期范围查询时走(course_id, occurrence_date)索引
+ */
+@Data
+@TableName("course_calendar_occurrence")
+public class CourseCalendarOccurrence implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 日历事件ID
+     */
+    private Long eventId;
+
+    /**
+     * 课程ID
+     */
+    private Long courseId;
+
+    /**
+     * 发生日期
+     */
+    private LocalDate occurrenceDate;
+
+    /**
+     * 开始时间（冗余，用于排序）
+     */
+    private LocalTime startTime;
+}
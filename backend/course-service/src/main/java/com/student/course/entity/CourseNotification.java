@@ -60,6 +60,11 @@ public class CourseNotification extends BaseEntity {
      */
     private Integer sendStatus;
 
+    /**
+     * 投递到通知队列的时间（为空表示尚未投递）
+     */
+    private LocalDateTime queuedTime;
+
     /**
      * 发送时间
      */
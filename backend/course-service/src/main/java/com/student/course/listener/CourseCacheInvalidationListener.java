@@ -0,0 +1,27 @@
+package com.student.course.listener;
+
+import com.student.course.cache.CourseCatalogCache;
+import com.student.course.dto.CourseCacheEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 课程缓存失效监听器
+ * 接收其他实例（包括本实例）广播的课程变更事件，清除本地缓存
+ */
+@Slf4j
+@Component
+public class CourseCacheInvalidationListener {
+
+    @Autowired
+    private CourseCatalogCache courseCatalogCache;
+
+    @RabbitListener(queues = "#{courseCacheQueue.name}")
+    public void handleCacheEvent(CourseCacheEvent event) {
+        courseCatalogCache.onEvent(event);
+        log.debug("课程缓存失效: type={}, courseIds={}, catalogVersion={}",
+                event.getType(), event.getCourseIds(), event.getCatalogVersion());
+    }
+}
@@ -0,0 +1,118 @@
+package com.student.course.listener;
+
+import com.student.course.cache.CourseCatalogCache;
+import com.student.course.dto.EnrollmentMessage;
+import com.student.course.entity.CourseEnrollment;
+import com.student.course.mapper.CourseEnrollmentMapper;
+import com.student.course.mapper.CourseInfoMapper;
+import com.student.course.service.EnrollmentSeatService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 选课持久化监听器
+ * 批量消费Redis预占成功的选课消息，多行插入course_enrollment后按课程同步已选人数
+ */
+@Slf4j
+@Component
+public class EnrollmentPersistListener {
+
+    @Autowired
+    private CourseEnrollmentMapper enrollmentMapper;
+
+    @Autowired
+    private CourseInfoMapper courseInfoMapper;
+
+    @Autowired
+    private EnrollmentSeatService seatService;
+
+    @Autowired
+    private CourseCatalogCache courseCatalogCache;
+
+    @RabbitListener(queues = "${rabbitmq.queue.course-enrollment:course.enrollment.queue}",
+            containerFactory = "enrollmentBatchContainerFactory")
+    public void handleEnrollments(List<EnrollmentMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<CourseEnrollment> enrollments = new ArrayList<>(messages.size());
+        Set<Long> courseIds = new LinkedHashSet<>();
+        for (EnrollmentMessage message : messages) {
+            enrollments.add(toEnrollment(message));
+            courseIds.add(message.getCourseId());
+        }
+
+        int written;
+        try {
+            written = enrollmentMapper.insertBatchSkipDuplicate(enrollments);
+        } catch (Exception e) {
+            // 批量中任一行出错整条语句回滚，逐条写入找出失败的行并释放其座位
+            log.error("批量写入选课记录失败，改为逐条写入: size={}", enrollments.size(), e);
+            written = insertOneByOne(enrollments);
+        }
+
+        // 以选课记录为准同步课程已选人数，天然幂等
+        courseInfoMapper.syncEnrollmentCounts(new ArrayList<>(courseIds));
+        courseCatalogCache.evictSeats(courseIds);
+
+        // 已处理的预占不再等待落库（写入失败的已在逐条写入时释放）
+        Map<Long, List<Long>> studentsByCourse = new HashMap<>();
+        for (EnrollmentMessage message : messages) {
+            studentsByCourse.computeIfAbsent(message.getCourseId(), k -> new ArrayList<>()).add(message.getStudentId());
+        }
+        try {
+            studentsByCourse.forEach(seatService::confirmPersisted);
+        } catch (Exception e) {
+            // 对账任务会按选课记录移除
+            log.warn("移除预占时间记录失败: courses={}", studentsByCourse.size(), e);
+        }
+
+        log.info("选课记录批量落库完成: messages={}, written={}, courses={}",
+                messages.size(), written, courseIds.size());
+    }
+
+    /**
+     * 逐条写入，单条失败时释放Redis座位，避免座位被永久占用
+     */
+    private int insertOneByOne(List<CourseEnrollment> enrollments) {
+        int inserted = 0;
+        for (CourseEnrollment enrollment : enrollments) {
+            try {
+                enrollmentMapper.insert(enrollment);
+                inserted++;
+            } catch (DuplicateKeyException e) {
+                log.debug("选课记录已存在: studentId={}, courseId={}",
+                        enrollment.getStudentId(), enrollment.getCourseId());
+            } catch (Exception e) {
+                log.error("写入选课记录失败，释放座位: studentId={}, courseId={}",
+                        enrollment.getStudentId(), enrollment.getCourseId(), e);
+                seatService.release(enrollment.getCourseId(), enrollment.getStudentId());
+            }
+        }
+        return inserted;
+    }
+
+    private CourseEnrollment toEnrollment(EnrollmentMessage message) {
+        CourseEnrollment enrollment = new CourseEnrollment();
+        enrollment.setCourseId(message.getCourseId());
+        enrollment.setStudentId(message.getStudentId());
+        enrollment.setStudentName(message.getStudentName());
+        enrollment.setStudentNumber(message.getStudentNumber());
+        enrollment.setClassId(message.getClassId());
+        enrollment.setClassName(message.getClassName());
+        enrollment.setEnrollmentTime(message.getEnrollmentTime());
+        enrollment.setStatus(1);
+        return enrollment;
+    }
+}
@@ -4,14 +4,13 @@ import com.student.common.result.Result;
 import com.student.course.entity.CourseNotification;
 import com.student.course.feign.StudentFeignClient;
 import com.student.course.mapper.CourseNotificationMapper;
+import com.student.course.service.NotificationFanoutService;
 import com.student.course.service.NotificationService;
-import com.student.course.websocket.NotificationWebSocketHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,75 +28,62 @@ public class NotificationListener {
     private CourseNotificationMapper notificationMapper;
 
     @Autowired
-    private NotificationWebSocketHandler webSocketHandler;
+    private NotificationFanoutService notificationFanoutService;
 
     @Autowired
     private StudentFeignClient studentFeignClient;
 
     /**
      * 监听通知队列
+     *
+     * 分发失败时记为失败并抛出异常，由容器按退避间隔重试（从断点继续），重试次数用尽后转入通知死信队列
      */
-    @RabbitListener(queues = "${rabbitmq.queue.course-notification}")
+    @RabbitListener(queues = "${rabbitmq.queue.course-notification}", containerFactory = "notificationContainerFactory")
     public void handleNotification(Map<String, Object> message) {
-        try {
-            log.info("收到通知消息: {}", message);
-
-            Long notificationId = Long.valueOf(message.get("notificationId").toString());
-            Long courseId = Long.valueOf(message.get("courseId").toString());
-            String targetType = message.get("targetType").toString();
-            String sendMethod = message.get("sendMethod").toString();
-
-            // 查询通知详情
-            CourseNotification notification = notificationMapper.selectById(notificationId);
-            if (notification == null) {
-                log.error("通知不存在: notificationId={}", notificationId);
-                return;
-            }
+        log.info("收到通知消息: {}", message);
 
-            // 获取目标用户列表
-            List<Long> targetUserIds = getTargetUserIds(courseId, targetType);
-            log.info("目标用户数量: {}", targetUserIds.size());
-
-            // 发送通知给每个用户
-            int successCount = 0;
-            for (Long userId : targetUserIds) {
-                try {
-                    // 创建通知接收记录
-                    notificationService.createNotificationReceive(
-                            notificationId,
-                            userId,
-                            null, // 用户名可以从用户服务获取
-                            sendMethod
-                    );
-
-                    // 如果用户在线，通过WebSocket推送
-                    if (sendMethod.contains("websocket") && webSocketHandler.isUserOnline(userId)) {
-                        Map<String, Object> wsMessage = new HashMap<>();
-                        wsMessage.put("notificationId", notificationId);
-                        wsMessage.put("title", notification.getTitle());
-                        wsMessage.put("content", notification.getContent());
-                        wsMessage.put("notificationType", notification.getNotificationType());
-                        wsMessage.put("priority", notification.getPriority());
-                        wsMessage.put("courseId", notification.getCourseId());
+        Long notificationId;
+        Long courseId;
+        String targetType;
+        String sendMethod;
+        try {
+            notificationId = Long.valueOf(message.get("notificationId").toString());
+            courseId = Long.valueOf(message.get("courseId").toString());
+            targetType = message.get("targetType").toString();
+            sendMethod = message.get("sendMethod").toString();
+        } catch (Exception e) {
+            // 格式错误的消息重试也不会成功，直接丢弃
+            log.error("通知消息格式错误: {}", message, e);
+            return;
+        }
 
-                        webSocketHandler.sendNotificationToUser(userId, wsMessage);
-                    }
+        // 查询通知详情
+        CourseNotification notification = notificationMapper.selectById(notificationId);
+        if (notification == null) {
+            log.error("通知不存在: notificationId={}", notificationId);
+            return;
+        }
 
-                    successCount++;
-                } catch (Exception e) {
-                    log.error("发送通知给用户失败: userId={}", userId, e);
-                }
-            }
+        // 获取目标用户列表
+        List<Long> targetUserIds = getTargetUserIds(courseId, targetType);
+        log.info("目标用户数量: {}", targetUserIds.size());
 
-            // 更新通知发送状态
-            notificationService.updateNotificationSendStatus(notificationId, 2, successCount);
+        // 按块批量写入接收记录并推送在线用户，支持断点续发
+        int successCount;
+        try {
+            successCount = notificationFanoutService.fanOut(notification, targetUserIds, sendMethod);
+        } catch (RuntimeException e) {
+            // 已完成的块保留在断点记录中，重试时从断点继续
+            log.error("通知分发中断，等待重试: notificationId={}", notificationId, e);
+            notificationService.updateNotificationSendStatus(notificationId, 3, null);
+            throw e;
+        }
 
-            log.info("通知发送完成: notificationId={}, successCount={}/{}",
-                    notificationId, successCount, targetUserIds.size());
+        // 更新通知发送状态
+        notificationService.updateNotificationSendStatus(notificationId, 2, successCount);
 
-        } catch (Exception e) {
-            log.error("处理通知消息失败", e);
-        }
+        log.info("通知发送完成: notificationId={}, successCount={}/{}",
+                notificationId, successCount, targetUserIds.size());
     }
 
     /**
@@ -1,8 +1,10 @@
 package com.student.course.listener;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.rabbitmq.client.Channel;
 import com.student.common.mq.dto.BaseMessage;
+import com.student.course.cache.CourseCatalogCache;
 import com.student.course.entity.CourseInfo;
 import com.student.course.mapper.CourseInfoMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +16,7 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -27,6 +30,9 @@ public class TeacherNameSyncListener {
     @Autowired
     private CourseInfoMapper courseInfoMapper;
 
+    @Autowired
+    private CourseCatalogCache courseCatalogCache;
+
     @RabbitListener(queues = "${rabbitmq.queue.teacher-name-sync}")
     public void handleTeacherNameChange(
             @Payload BaseMessage<?> message,
@@ -42,12 +48,22 @@ public class TeacherNameSyncListener {
             Long teacherId = Long.valueOf(payloadMap.get("teacherId").toString());
             String newName = (String) payloadMap.get("newName");
 
+            // Collect affected course ids for cache eviction
+            LambdaQueryWrapper<CourseInfo> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.select(CourseInfo::getId).eq(CourseInfo::getTeacherId, teacherId);
+            List<Long> courseIds = courseInfoMapper.selectList(queryWrapper).stream()
+                    .map(CourseInfo::getId)
+                    .toList();
+
             // Update all courses for this teacher
             LambdaUpdateWrapper<CourseInfo> updateWrapper = new LambdaUpdateWrapper<>();
             updateWrapper.eq(CourseInfo::getTeacherId, teacherId)
                     .set(CourseInfo::getTeacherName, newName);
 
             int updatedCount = courseInfoMapper.update(null, updateWrapper);
+            if (!courseIds.isEmpty()) {
+                courseCatalogCache.evictCourses(courseIds);
+            }
 
             log.info("Teacher name synchronized: teacherId={}, newName={}, coursesUpdated={}",
                     teacherId, newName, updatedCount);
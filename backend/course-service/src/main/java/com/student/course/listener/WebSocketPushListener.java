@@ -0,0 +1,29 @@
+package com.student.course.listener;
+
+import com.student.course.dto.WebSocketPushMessage;
+import com.student.course.websocket.NotificationWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket推送转发监听器
+ * 接收其他实例转发来的推送（按本实例节点ID路由或广播），推送给本实例上的会话
+ */
+@Slf4j
+@Component
+public class WebSocketPushListener {
+
+    @Autowired
+    private NotificationWebSocketHandler webSocketHandler;
+
+    @RabbitListener(queues = "#{webSocketPushQueue.name}")
+    public void handlePush(WebSocketPushMessage message) {
+        webSocketHandler.deliverLocally(message);
+        log.debug("处理转发的WebSocket推送: users={}, destination={}",
+                message.getUserPayloads() != null ? message.getUserPayloads().size()
+                        : message.getUserIds() == null ? "all" : message.getUserIds().size(),
+                message.getDestination());
+    }
+}
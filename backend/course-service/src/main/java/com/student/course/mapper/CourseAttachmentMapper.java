@@ -5,7 +5,9 @@ import com.student.course.dto.AttachmentStatisticsDTO;
 import com.student.course.dto.AttachmentTypeStatisticsDTO;
 import com.student.course.entity.CourseAttachment;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -37,4 +39,35 @@ public interface CourseAttachmentMapper extends BaseMapper<CourseAttachment> {
             "WHERE status = 1 " +
             "GROUP BY attachment_type")
     List<AttachmentTypeStatisticsDTO> getTypeStatistics();
+
+    /**
+     * 批量累加下载/浏览次数（一条UPDATE，按附件ID取各自的增量）
+     *
+     * @param increments 附件ID及其downloadCount/viewCount增量
+     * @return 影响的行数
+     */
+    @Update("<script>" +
+            "UPDATE course_attachment SET " +
+            "download_count = download_count + CASE id " +
+            "<foreach collection='list' item='item'>WHEN #{item.id} THEN #{item.downloadCount} </foreach>" +
+            "ELSE 0 END, " +
+            "view_count = view_count + CASE id " +
+            "<foreach collection='list' item='item'>WHEN #{item.id} THEN #{item.viewCount} </foreach>" +
+            "ELSE 0 END " +
+            "WHERE id IN " +
+            "<foreach collection='list' item='item' open='(' separator=',' close=')'>#{item.id}</foreach>" +
+            "</script>")
+    int batchIncrementCounts(@Param("list") List<CourseAttachment> increments);
+
+    /**
+     * 批量标记附件已建立ES索引
+     *
+     * @param ids 附件ID
+     * @return 影响的行数
+     */
+    @Update("<script>" +
+            "UPDATE course_attachment SET es_indexed = 1 WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markEsIndexed(@Param("ids") List<Long> ids);
 }
@@ -2,11 +2,49 @@ package com.student.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.student.course.entity.CourseCalendar;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 /**
  * 课程日历Mapper
  */
 @Mapper
 public interface CourseCalendarMapper extends BaseMapper<CourseCalendar> {
+
+    /**
+     * 批量插入日历事件（多行INSERT，回填自增ID）
+     */
+    @Insert("<script>" +
+            "INSERT INTO course_calendar (course_id, event_type, event_title, event_description, event_date, " +
+            "start_time, end_time, location, week_day, week_number, is_recurring, recurrence_rule, color, status) VALUES " +
+            "<foreach collection='list' item='e' separator=','>" +
+            "(#{e.courseId}, #{e.eventType}, #{e.eventTitle}, #{e.eventDescription}, #{e.eventDate}, " +
+            "#{e.startTime}, #{e.endTime}, #{e.location}, #{e.weekDay}, #{e.weekNumber}, #{e.isRecurring}, " +
+            "#{e.recurrenceRule}, #{e.color}, #{e.status})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<CourseCalendar> events);
+
+    /**
+     * 查询学期内已存在周期性上课日历的课程ID
+     */
+    @Select("SELECT DISTINCT c.course_id FROM course_calendar c " +
+            "INNER JOIN course_info i ON i.id = c.course_id " +
+            "WHERE i.semester = #{semester} AND c.event_type = 'class' AND c.is_recurring = 1")
+    List<Long> selectCourseIdsWithRecurringClass(@Param("semester") String semester);
+
+    /**
+     * 查询没有UNTIL的有效周期性事件（主键游标分页，用于向后延展展开索引）
+     */
+    @Select("SELECT * FROM course_calendar " +
+            "WHERE id > #{afterId} AND is_recurring = 1 AND status <> 0 " +
+            "AND recurrence_rule NOT LIKE '%UNTIL=%' " +
+            "ORDER BY id LIMIT #{limit}")
+    List<CourseCalendar> selectOpenEndedRecurring(@Param("afterId") long afterId, @Param("limit") int limit);
 }
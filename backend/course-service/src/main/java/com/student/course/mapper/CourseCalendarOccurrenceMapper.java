@@ -0,0 +1,60 @@
+package com.student.course.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.student.course.entity.CourseCalendarOccurrence;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 课程日历展开索引Mapper
+ */
+@Mapper
+public interface CourseCalendarOccurrenceMapper extends BaseMapper<CourseCalendarOccurrence> {
+
+    /**
+     * 批量写入展开结果（已存在的(event_id, occurrence_date)忽略）
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO course_calendar_occurrence (event_id, course_id, occurrence_date, start_time) VALUES " +
+            "<foreach collection='list' item='o' separator=','>" +
+            "(#{o.eventId}, #{o.courseId}, #{o.occurrenceDate}, #{o.startTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatchIgnore(@Param("list") List<CourseCalendarOccurrence> occurrences);
+
+    /**
+     * 删除事件的全部展开结果
+     */
+    @Delete("DELETE FROM course_calendar_occurrence WHERE event_id = #{eventId}")
+    int deleteByEventId(@Param("eventId") Long eventId);
+
+    /**
+     * 按课程和日期范围查询（索引范围扫描），按日期、开始时间排序
+     */
+    @Select("<script>" +
+            "SELECT event_id, occurrence_date FROM course_calendar_occurrence " +
+            "WHERE course_id IN " +
+            "<foreach collection='courseIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "AND occurrence_date BETWEEN #{startDate} AND #{endDate} " +
+            "ORDER BY occurrence_date, start_time" +
+            "</script>")
+    List<CourseCalendarOccurrence> selectByCoursesAndRange(@Param("courseIds") Collection<Long> courseIds,
+                                                           @Param("startDate") LocalDate startDate,
+                                                           @Param("endDate") LocalDate endDate);
+
+    /**
+     * 查询尚未展开的有效日历事件ID（主键游标分页，用于补建索引）
+     */
+    @Select("SELECT c.id FROM course_calendar c " +
+            "WHERE c.id > #{afterId} AND c.status <> 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM course_calendar_occurrence o WHERE o.event_id = c.id) " +
+            "ORDER BY c.id LIMIT #{limit}")
+    List<Long> selectUnindexedEventIds(@Param("afterId") long afterId, @Param("limit") int limit);
+}
@@ -45,4 +45,14 @@ public interface CourseEnrollmentMapper extends BaseMapper<CourseEnrollment> {
 
         IPage<CourseEnrollment> selectCourseStudentsWithDetails(Page<CourseEnrollment> page,
                         @Param("courseId") Long courseId);
+
+        /**
+         * 批量插入选课记录（多行INSERT ... ON DUPLICATE KEY UPDATE，重复投递的消息由唯一索引去重）
+         *
+         * 不用INSERT IGNORE：IGNORE会把外键、截断、非空等错误也降级为警告，行被静默丢弃；
+         * 这里只吞掉重复键，其他错误照常抛出，由调用方逐条重试并释放座位
+         *
+         * @return 影响的行数（重复的行按驱动设置计0或1）
+         */
+        int insertBatchSkipDuplicate(@Param("list") List<CourseEnrollment> enrollments);
 }
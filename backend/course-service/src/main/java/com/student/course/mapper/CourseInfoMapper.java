@@ -1,11 +1,16 @@
 package com.student.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.student.common.annotation.IgnoreDataPermission;
 import com.student.course.entity.CourseInfo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 课程信息Mapper
  */
@@ -40,4 +45,39 @@ public interface CourseInfoMapper extends BaseMapper<CourseInfo> {
             "    update_time = NOW() " +
             "WHERE id = #{courseId}")
     int decrementEnrollmentAtomic(@Param("courseId") Long courseId);
+
+    /**
+     * 按选课记录重新计算课程的已选人数与满员状态（选课异步落库与对账使用）
+     *
+     * @param courseIds 课程ID列表
+     * @return 影响的行数
+     */
+    @Update("<script>" +
+            "UPDATE course_info ci " +
+            "LEFT JOIN (SELECT course_id, COUNT(*) AS cnt FROM course_enrollment " +
+            "           WHERE status = 1 AND course_id IN " +
+            "           <foreach collection='courseIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "           GROUP BY course_id) e ON ci.id = e.course_id " +
+            "SET ci.enrolled_students = COALESCE(e.cnt, 0), " +
+            "    ci.status = CASE WHEN ci.status = 0 THEN 0 " +
+            "                     WHEN COALESCE(e.cnt, 0) >= ci.max_students THEN 2 ELSE 1 END, " +
+            "    ci.update_time = NOW() " +
+            "WHERE ci.id IN " +
+            "<foreach collection='courseIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int syncEnrollmentCounts(@Param("courseIds") List<Long> courseIds);
+
+    /**
+     * 批量查询课程的已选人数与状态（课程缓存单独刷新座位信息使用）
+     *
+     * @param ids 课程ID列表
+     * @return 只包含id、enrolled_students、status的课程
+     */
+    @IgnoreDataPermission(reason = "课程已经过权限校验后才读取座位信息")
+    @Select("<script>" +
+            "SELECT id, enrolled_students, status FROM course_info " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<CourseInfo> selectSeatsByIds(@Param("ids") Collection<? extends Long> ids);
 }
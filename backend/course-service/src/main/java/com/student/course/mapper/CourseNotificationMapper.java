@@ -1,11 +1,18 @@
 package com.student.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.student.common.annotation.IgnoreDataPermission;
+import com.student.course.dto.NotificationStatisticsDTO;
 import com.student.course.entity.CourseNotification;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 课程通知Mapper
  */
@@ -50,4 +57,117 @@ public interface CourseNotificationMapper extends BaseMapper<CourseNotification>
             "    update_time = NOW() " +
             "WHERE id = #{notificationId}")
     int incrementReadCount(@Param("notificationId") Long notificationId);
+
+    /**
+     * 按ID批量查询通知正文（只取展示所需字段）
+     *
+     * 接收人查看通知时调用，接收记录已按user_id过滤，这里不再按创建人做数据权限过滤
+     *
+     * @param ids 通知ID
+     * @return 通知列表
+     */
+    @IgnoreDataPermission(reason = "接收人查看通知正文，权限已由notification_receive.user_id保证")
+    @Select("<script>" +
+            "SELECT id, course_id, title, content, notification_type, priority " +
+            "FROM course_notification " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<CourseNotification> selectBodiesByIds(@Param("ids") Collection<? extends Long> ids);
+
+    /**
+     * 通知统计（条件聚合，一次查询得到总数、类型分布、发送状态分布和已读人数）
+     *
+     * @param courseId  课程ID（为空时统计全部课程）
+     * @param startDate 创建时间下限
+     * @param endDate   创建时间上限
+     */
+    @Select("<script>" +
+            "SELECT " +
+            "COUNT(*) as totalCount, " +
+            "COALESCE(SUM(CASE WHEN notification_type = 'announcement' THEN 1 ELSE 0 END), 0) as announcementCount, " +
+            "COALESCE(SUM(CASE WHEN notification_type = 'homework' THEN 1 ELSE 0 END), 0) as homeworkCount, " +
+            "COALESCE(SUM(CASE WHEN notification_type = 'exam' THEN 1 ELSE 0 END), 0) as examCount, " +
+            "COALESCE(SUM(CASE WHEN notification_type = 'cancel' THEN 1 ELSE 0 END), 0) as cancelCount, " +
+            "COALESCE(SUM(CASE WHEN send_status = 0 THEN 1 ELSE 0 END), 0) as pendingCount, " +
+            "COALESCE(SUM(CASE WHEN send_status = 1 THEN 1 ELSE 0 END), 0) as sendingCount, " +
+            "COALESCE(SUM(CASE WHEN send_status = 2 THEN 1 ELSE 0 END), 0) as sentCount, " +
+            "COALESCE(SUM(CASE WHEN send_status = 3 THEN 1 ELSE 0 END), 0) as failedCount, " +
+            "COALESCE(SUM(send_count), 0) as totalSendCount, " +
+            "COALESCE(SUM(read_count), 0) as totalReadCount " +
+            "FROM course_notification " +
+            "WHERE status = 1 " +
+            "<if test='courseId != null'>AND course_id = #{courseId} </if>" +
+            "<if test='startDate != null and startDate != \"\"'>AND create_time &gt;= #{startDate} </if>" +
+            "<if test='endDate != null and endDate != \"\"'>AND create_time &lt;= #{endDate} </if>" +
+            "</script>")
+    NotificationStatisticsDTO getStatistics(@Param("courseId") Long courseId,
+                                            @Param("startDate") String startDate,
+                                            @Param("endDate") String endDate);
+
+    /**
+     * 认领待发送的通知（0=待发送 -> 1=发送中），只有一个实例能认领成功
+     *
+     * @return 1表示认领成功，0表示已被其他实例认领、已发送或已删除
+     */
+    @IgnoreDataPermission(reason = "调度任务按发送状态处理全部通知，没有用户上下文")
+    @Update("UPDATE course_notification " +
+            "SET send_status = 1, update_time = NOW() " +
+            "WHERE id = #{id} AND send_status = 0 AND status = 1")
+    int claimForSending(@Param("id") Long id);
+
+    /**
+     * 释放认领（投递到队列失败时恢复为待发送）
+     */
+    @IgnoreDataPermission(reason = "调度任务按发送状态处理全部通知，没有用户上下文")
+    @Update("UPDATE course_notification " +
+            "SET send_status = 0, update_time = NOW() " +
+            "WHERE id = #{id} AND send_status = 1")
+    int releaseClaim(@Param("id") Long id);
+
+    /**
+     * 按主键游标查询待发送的定时通知（只取调度所需字段）
+     *
+     * @param afterId 上一批最后一条的ID
+     * @param limit   最多返回条数
+     */
+    @IgnoreDataPermission(reason = "调度任务按发送状态处理全部通知，没有用户上下文")
+    @Select("SELECT id, priority, scheduled_time FROM course_notification " +
+            "WHERE is_scheduled = 1 AND send_status = 0 AND status = 1 AND id > #{afterId} " +
+            "ORDER BY id LIMIT #{limit}")
+    List<CourseNotification> selectPendingScheduled(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 记录通知已投递到通知队列（投递成功后调用，之后的发送中状态由通知监听器负责结束）
+     */
+    @IgnoreDataPermission(reason = "调度任务按发送状态处理全部通知，没有用户上下文")
+    @Update("UPDATE course_notification SET queued_time = NOW() WHERE id = #{id}")
+    int markQueued(@Param("id") Long id);
+
+    /**
+     * 按主键游标查询认领后长时间未投递到队列的定时通知（认领后、投递到队列前进程退出时遗留）
+     *
+     * 已投递到队列的通知可能仍在排队或分发中，不在此列
+     *
+     * @param before  认领时间早于该时间才视为遗留
+     * @param afterId 上一批最后一条的ID
+     * @param limit   最多返回条数
+     */
+    @IgnoreDataPermission(reason = "调度任务按发送状态处理全部通知，没有用户上下文")
+    @Select("SELECT id, priority, scheduled_time FROM course_notification " +
+            "WHERE is_scheduled = 1 AND send_status = 1 AND status = 1 AND queued_time IS NULL " +
+            "AND update_time < #{before} AND id > #{afterId} " +
+            "ORDER BY id LIMIT #{limit}")
+    List<CourseNotification> selectStuckSending(@Param("before") LocalDateTime before,
+                                                @Param("afterId") long afterId,
+                                                @Param("limit") int limit);
+
+    /**
+     * 释放遗留的认领（条件与selectStuckSending相同，多个实例同时处理时只有一个成功）
+     */
+    @IgnoreDataPermission(reason = "调度任务按发送状态处理全部通知，没有用户上下文")
+    @Update("UPDATE course_notification " +
+            "SET send_status = 0, update_time = NOW() " +
+            "WHERE id = #{id} AND send_status = 1 AND queued_time IS NULL AND update_time < #{before}")
+    int releaseStuckClaim(@Param("id") Long id, @Param("before") LocalDateTime before);
 }
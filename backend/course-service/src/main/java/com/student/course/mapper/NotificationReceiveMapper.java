@@ -1,11 +1,18 @@
 package com.student.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.student.common.annotation.IgnoreDataPermission;
+import com.student.course.dto.UserUnreadCountDTO;
 import com.student.course.entity.NotificationReceive;
+import com.student.course.vo.UserNotificationVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 通知接收记录Mapper
  */
@@ -17,4 +24,58 @@ public interface NotificationReceiveMapper extends BaseMapper<NotificationReceiv
      */
     @IgnoreDataPermission(reason = "notification_receive表使用userId字段，不需要student_id/teacher_id过滤")
     Long countUnreadByUserId(@Param("userId") Long userId);
+
+    /**
+     * 批量获取用户未读通知数量（没有未读通知的用户不在结果中）
+     */
+    @IgnoreDataPermission(reason = "notification_receive表使用userId字段，不需要student_id/teacher_id过滤")
+    List<UserUnreadCountDTO> selectUnreadCounts(@Param("userIds") List<Long> userIds);
+
+    /**
+     * 查询已有该通知接收记录的用户（分发重试时跳过已写入的用户）
+     */
+    @IgnoreDataPermission(reason = "通知分发按通知ID处理全部接收人，没有用户上下文")
+    List<Long> selectReceivedUserIds(@Param("notificationId") Long notificationId,
+                                     @Param("userIds") List<Long> userIds);
+
+    /**
+     * 批量插入通知接收记录（多行INSERT ... ON DUPLICATE KEY UPDATE，已存在的记录由uk_notification_user跳过）
+     *
+     * 不用INSERT IGNORE：IGNORE会把外键、截断、非空等错误也降级为警告，接收记录被静默丢弃
+     *
+     * @return 影响的行数（重复的行按驱动设置计0或1）
+     */
+    int insertBatchSkipDuplicate(@Param("list") List<NotificationReceive> receives);
+
+    /**
+     * 分页查询用户的通知（接收记录关联通知标题、类型等短字段，正文由调用方从缓存补齐）
+     *
+     * @param page   分页参数
+     * @param userId 用户ID
+     * @param isRead 是否已读（为空时不过滤）
+     */
+    @IgnoreDataPermission(reason = "按接收人user_id查询，course_notification不能再按创建人过滤")
+    IPage<UserNotificationVO> selectUserNotificationPage(Page<UserNotificationVO> page,
+                                                         @Param("userId") Long userId,
+                                                         @Param("isRead") Integer isRead);
+
+    /**
+     * 游标分页查询用户的通知，按(receive_time, id)倒序
+     *
+     * @param afterTime 游标的接收时间（第一页为空）
+     * @param afterId   游标的接收记录ID（第一页为空）
+     * @param limit     最多返回条数
+     */
+    @IgnoreDataPermission(reason = "按接收人user_id查询，course_notification不能再按创建人过滤")
+    List<UserNotificationVO> selectUserNotificationsAfter(@Param("userId") Long userId,
+                                                          @Param("isRead") Integer isRead,
+                                                          @Param("afterTime") LocalDateTime afterTime,
+                                                          @Param("afterId") Long afterId,
+                                                          @Param("limit") int limit);
+
+    /**
+     * 统计用户的通知数量
+     */
+    @IgnoreDataPermission(reason = "notification_receive表使用userId字段，不需要student_id/teacher_id过滤")
+    Long countUserNotifications(@Param("userId") Long userId, @Param("isRead") Integer isRead);
 }
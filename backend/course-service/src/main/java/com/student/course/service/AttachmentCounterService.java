@@ -0,0 +1,221 @@
+package com.student.course.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.student.course.entity.CourseAttachment;
+import com.student.course.mapper.CourseAttachmentMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 附件下载/浏览计数服务（写回缓冲）
+ *
+ * 每次点击只在内存中对应附件的LongAdder上累加，定时任务把累计增量合并成一条
+ * "download_count = download_count + 增量" 的批量UPDATE写回course_attachment，
+ * 再把最新计数批量更新到Elasticsearch文档。进程停止前会执行最后一次写回。
+ */
+@Slf4j
+@Service
+public class AttachmentCounterService {
+
+    private static final String INDEX_NAME = "course_attachments";
+
+    private final Map<Long, LongAdder> downloadCounters = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> viewCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 写回互斥锁（写回期间有数据库和ES I/O，不用synchronized以免固定虚拟线程的载体线程）
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    private CourseAttachmentMapper attachmentMapper;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Value("${attachment.counter.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    /**
+     * 记录一次下载
+     */
+    public void recordDownload(Long attachmentId) {
+        increment(downloadCounters, attachmentId);
+    }
+
+    /**
+     * 记录一次浏览
+     */
+    public void recordView(Long attachmentId) {
+        increment(viewCounters, attachmentId);
+    }
+
+    /**
+     * 定时写回累计的计数增量
+     */
+    @Scheduled(fixedDelayString = "${attachment.counter.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("附件计数写回失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("停止前附件计数写回失败", e);
+        }
+    }
+
+    /**
+     * 取出全部增量并分批写回数据库和Elasticsearch
+     *
+     * @return 本次写回的附件数量
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            return doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int doFlush() {
+        // 只取出并清零其中的增量，不会与并发累加相互覆盖；上个周期以来没有累加的计数器被移除，
+        // 接口不校验附件是否存在，不移除的话任意ID都会在内存中常驻
+        Map<Long, long[]> deltas = new HashMap<>();
+        drain(downloadCounters, deltas, 0);
+        drain(viewCounters, deltas, 1);
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        for (int from = 0; from < ids.size(); from += flushBatchSize) {
+            List<Long> batchIds = ids.subList(from, Math.min(from + flushBatchSize, ids.size()));
+            List<CourseAttachment> increments = new ArrayList<>(batchIds.size());
+            for (Long id : batchIds) {
+                long[] delta = deltas.get(id);
+                CourseAttachment increment = new CourseAttachment();
+                increment.setId(id);
+                increment.setDownloadCount((int) delta[0]);
+                increment.setViewCount((int) delta[1]);
+                increments.add(increment);
+            }
+
+            try {
+                attachmentMapper.batchIncrementCounts(increments);
+            } catch (Exception e) {
+                // 写库失败时把增量加回计数器，下次继续写回
+                log.error("附件计数写库失败，增量保留到下次写回: size={}", increments.size(), e);
+                for (CourseAttachment increment : increments) {
+                    restore(downloadCounters, increment.getId(), increment.getDownloadCount());
+                    restore(viewCounters, increment.getId(), increment.getViewCount());
+                }
+                continue;
+            }
+
+            syncToElasticsearch(batchIds);
+        }
+
+        log.debug("附件计数写回完成: attachments={}", ids.size());
+        return ids.size();
+    }
+
+    /**
+     * 把最新计数批量更新到已建立索引的ES文档
+     */
+    private void syncToElasticsearch(List<Long> ids) {
+        try {
+            LambdaQueryWrapper<CourseAttachment> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(CourseAttachment::getId, CourseAttachment::getDownloadCount, CourseAttachment::getViewCount)
+                   .in(CourseAttachment::getId, ids)
+                   .eq(CourseAttachment::getEsIndexed, 1);
+            List<CourseAttachment> attachments = attachmentMapper.selectList(wrapper);
+            if (attachments.isEmpty()) {
+                return;
+            }
+
+            List<UpdateQuery> updates = new ArrayList<>(attachments.size());
+            for (CourseAttachment attachment : attachments) {
+                Document document = Document.create();
+                document.put("downloadCount", attachment.getDownloadCount());
+                document.put("viewCount", attachment.getViewCount());
+                updates.add(UpdateQuery.builder(String.valueOf(attachment.getId()))
+                        .withDocument(document)
+                        .build());
+            }
+            elasticsearchOperations.bulkUpdate(updates, IndexCoordinates.of(INDEX_NAME));
+        } catch (Exception e) {
+            // 数据库已是准确值，ES计数仅用于搜索排序展示，下次写回或重建索引时会追上
+            log.warn("同步附件计数到Elasticsearch失败: size={}", ids.size(), e);
+        }
+    }
+
+    private void increment(Map<Long, LongAdder> counters, Long id) {
+        LongAdder adder = counters.computeIfAbsent(id, k -> new LongAdder());
+        adder.increment();
+        if (counters.get(id) != adder) {
+            // 累加时计数器恰好被写回任务移除（移除时还没看到这次累加），把已累加的值转移到当前计数器
+            long moved = adder.sumThenReset();
+            if (moved != 0) {
+                add(counters, id, moved);
+            }
+        }
+    }
+
+    private void drain(Map<Long, LongAdder> counters, Map<Long, long[]> deltas, int slot) {
+        for (Long id : counters.keySet()) {
+            LongAdder adder = counters.get(id);
+            if (adder == null) {
+                continue;
+            }
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                deltas.computeIfAbsent(id, k -> new long[2])[slot] = delta;
+            } else {
+                // 在映射的锁内确认仍为0再移除：清零之后的并发累加要么在这里被看到而保留计数器，
+                // 要么累加方发现计数器已被移除并自行转移
+                counters.computeIfPresent(id, (k, a) -> a.sum() == 0 ? null : a);
+            }
+        }
+    }
+
+    private void restore(Map<Long, LongAdder> counters, Long id, Integer delta) {
+        if (delta != null && delta != 0) {
+            add(counters, id, delta);
+        }
+    }
+
+    /**
+     * 在映射的锁内累加，不会与写回任务移除空闲计数器交错
+     */
+    private void add(Map<Long, LongAdder> counters, Long id, long delta) {
+        counters.compute(id, (k, adder) -> {
+            LongAdder target = adder != null ? adder : new LongAdder();
+            target.add(delta);
+            return target;
+        });
+    }
+}
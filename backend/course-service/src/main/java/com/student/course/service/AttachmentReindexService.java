@@ -0,0 +1,291 @@
+package com.student.course.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.student.common.exception.BusinessException;
+import com.student.course.document.CourseAttachmentDocument;
+import com.student.course.entity.CourseAttachment;
+import com.student.course.entity.CourseInfo;
+import com.student.course.mapper.CourseAttachmentMapper;
+import com.student.course.mapper.CourseInfoMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 附件索引重建服务
+ *
+ * 按主键游标分页遍历course_attachment，每页一次批量查询课程名称、按bulk-size分批写入ES、
+ * 一条UPDATE标记es_indexed。每轮并发处理concurrency页，整轮完成后把游标和计数写入Redis，
+ * 任务中断后再次执行会从上次完成的位置继续。
+ */
+@Slf4j
+@Service
+public class AttachmentReindexService {
+
+    private static final String PROGRESS_KEY = "attachment:reindex:progress";
+
+    private static final String STATUS_RUNNING = "running";
+    private static final String STATUS_COMPLETED = "completed";
+    private static final String STATUS_FAILED = "failed";
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Autowired
+    private CourseAttachmentMapper attachmentMapper;
+
+    @Autowired
+    private CourseInfoMapper courseInfoMapper;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private DocumentContentExtractor contentExtractor;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${attachment.reindex.page-size:1000}")
+    private int pageSize;
+
+    @Value("${attachment.reindex.bulk-size:500}")
+    private int bulkSize;
+
+    @Value("${attachment.reindex.concurrency:2}")
+    private int concurrency;
+
+    /**
+     * 执行索引重建
+     *
+     * @param restart 是否忽略上次的进度从头开始
+     * @return 本次任务累计成功索引的附件数量（包含断点之前已完成的部分）
+     */
+    public int reindex(boolean restart) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("索引重建任务正在执行");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread thread = new Thread(r, "attachment-reindex");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return doReindex(restart, executor);
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    /**
+     * 获取索引重建进度
+     */
+    public Map<String, Object> getProgress() {
+        Map<Object, Object> saved = stringRedisTemplate.opsForHash().entries(PROGRESS_KEY);
+        Map<String, Object> progress = new LinkedHashMap<>();
+        saved.forEach((k, v) -> progress.put(k.toString(), v));
+        progress.put("active", running.get());
+        return progress;
+    }
+
+    private int doReindex(boolean restart, ExecutorService executor) {
+        Map<Object, Object> saved = stringRedisTemplate.opsForHash().entries(PROGRESS_KEY);
+        boolean resume = !restart && !saved.isEmpty() && !STATUS_COMPLETED.equals(saved.get("status"));
+
+        long cursor = resume ? parseLong(saved.get("cursor")) : 0L;
+        AtomicInteger indexed = new AtomicInteger(resume ? (int) parseLong(saved.get("indexed")) : 0);
+        AtomicInteger failed = new AtomicInteger(resume ? (int) parseLong(saved.get("failed")) : 0);
+        AtomicInteger skipped = new AtomicInteger(resume ? (int) parseLong(saved.get("skipped")) : 0);
+        String startTime = resume && saved.get("startTime") != null
+                ? saved.get("startTime").toString() : LocalDateTime.now().toString();
+
+        log.info("开始重新索引附件: resume={}, cursor={}, pageSize={}, bulkSize={}, concurrency={}",
+                resume, cursor, pageSize, bulkSize, concurrency);
+        saveProgress(STATUS_RUNNING, cursor, indexed.get(), failed.get(), skipped.get(), startTime);
+
+        try {
+            boolean hasMore = true;
+            while (hasMore) {
+                // 顺序读出本轮的若干页，游标只依赖主键，读取本身很轻
+                List<Future<?>> futures = new ArrayList<>(concurrency);
+                for (int i = 0; i < Math.max(1, concurrency); i++) {
+                    List<CourseAttachment> page = nextPage(cursor);
+                    if (page.isEmpty()) {
+                        hasMore = false;
+                        break;
+                    }
+                    cursor = page.get(page.size() - 1).getId();
+                    futures.add(executor.submit(() -> indexPage(page, indexed, failed, skipped)));
+                    if (page.size() < pageSize) {
+                        hasMore = false;
+                        break;
+                    }
+                }
+
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                // 整轮完成后才推进游标，保证断点之前的附件都已处理
+                saveProgress(STATUS_RUNNING, cursor, indexed.get(), failed.get(), skipped.get(), startTime);
+            }
+
+            saveProgress(STATUS_COMPLETED, cursor, indexed.get(), failed.get(), skipped.get(), startTime);
+            log.info("重新索引完成: 成功={}, 失败={}, 跳过={}", indexed.get(), failed.get(), skipped.get());
+            return indexed.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stringRedisTemplate.opsForHash().put(PROGRESS_KEY, "status", STATUS_FAILED);
+            log.error("重新索引被中断: cursor={}", cursor);
+            return indexed.get();
+        } catch (Exception e) {
+            stringRedisTemplate.opsForHash().put(PROGRESS_KEY, "status", STATUS_FAILED);
+            log.error("重新索引失败，可再次执行从断点继续", e);
+            return indexed.get();
+        }
+    }
+
+    private List<CourseAttachment> nextPage(long cursor) {
+        LambdaQueryWrapper<CourseAttachment> wrapper = new LambdaQueryWrapper<>();
+        wrapper.gt(CourseAttachment::getId, cursor)
+               .orderByAsc(CourseAttachment::getId);
+        return attachmentMapper.selectPage(new Page<>(1, pageSize, false), wrapper).getRecords();
+    }
+
+    /**
+     * 索引一页附件：批量查课程名 -> 分批bulk写ES -> 一条UPDATE标记es_indexed
+     */
+    private void indexPage(List<CourseAttachment> page, AtomicInteger indexed,
+                           AtomicInteger failed, AtomicInteger skipped) {
+        // 只处理文档类型的附件
+        List<CourseAttachment> attachments = new ArrayList<>(page.size());
+        for (CourseAttachment attachment : page) {
+            if (contentExtractor.isSupportedFileType(attachment.getAttachmentName())) {
+                attachments.add(attachment);
+            }
+        }
+        skipped.addAndGet(page.size() - attachments.size());
+        if (attachments.isEmpty()) {
+            return;
+        }
+
+        Map<Long, String> courseNames = loadCourseNames(attachments);
+
+        List<Long> indexedIds = new ArrayList<>(attachments.size());
+        for (int from = 0; from < attachments.size(); from += bulkSize) {
+            List<CourseAttachment> batch = attachments.subList(from, Math.min(from + bulkSize, attachments.size()));
+            List<IndexQuery> queries = new ArrayList<>(batch.size());
+            for (CourseAttachment attachment : batch) {
+                queries.add(new IndexQueryBuilder()
+                        .withId(String.valueOf(attachment.getId()))
+                        .withObject(toDocument(attachment, courseNames.get(attachment.getCourseId())))
+                        .build());
+            }
+
+            Set<String> failedIds = new HashSet<>();
+            try {
+                elasticsearchOperations.bulkIndex(queries, CourseAttachmentDocument.class);
+            } catch (BulkFailureException e) {
+                failedIds.addAll(e.getFailedDocuments().keySet());
+                log.error("批量索引部分失败: failed={}, batch={}", failedIds.size(), batch.size());
+            } catch (Exception e) {
+                batch.forEach(attachment -> failedIds.add(String.valueOf(attachment.getId())));
+                log.error("批量索引失败: firstId={}, batch={}", batch.get(0).getId(), batch.size(), e);
+            }
+
+            for (CourseAttachment attachment : batch) {
+                if (failedIds.contains(String.valueOf(attachment.getId()))) {
+                    failed.incrementAndGet();
+                } else {
+                    indexedIds.add(attachment.getId());
+                }
+            }
+        }
+
+        if (!indexedIds.isEmpty()) {
+            attachmentMapper.markEsIndexed(indexedIds);
+            indexed.addAndGet(indexedIds.size());
+        }
+        log.debug("附件索引页完成: firstId={}, indexed={}", page.get(0).getId(), indexedIds.size());
+    }
+
+    private Map<Long, String> loadCourseNames(List<CourseAttachment> attachments) {
+        Set<Long> courseIds = new HashSet<>();
+        for (CourseAttachment attachment : attachments) {
+            if (attachment.getCourseId() != null) {
+                courseIds.add(attachment.getCourseId());
+            }
+        }
+        Map<Long, String> courseNames = new HashMap<>();
+        if (courseIds.isEmpty()) {
+            return courseNames;
+        }
+
+        LambdaQueryWrapper<CourseInfo> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(CourseInfo::getId, CourseInfo::getCourseName)
+               .in(CourseInfo::getId, courseIds);
+        for (CourseInfo course : courseInfoMapper.selectList(wrapper)) {
+            courseNames.put(course.getId(), course.getCourseName());
+        }
+        return courseNames;
+    }
+
+    private CourseAttachmentDocument toDocument(CourseAttachment attachment, String courseName) {
+        CourseAttachmentDocument document = new CourseAttachmentDocument();
+        document.setId(attachment.getId());
+        document.setAttachmentName(attachment.getAttachmentName());
+        document.setAttachmentType(attachment.getAttachmentType());
+        document.setFileId(attachment.getFileId());
+        document.setFileType(attachment.getFileExtension());
+        document.setContent(""); // 暂时不提取内容
+        document.setCourseId(attachment.getCourseId());
+        document.setCourseName(courseName != null ? courseName : "");
+        document.setUploadTime(attachment.getCreateTime() != null
+                ? attachment.getCreateTime().toLocalDate().toString() : LocalDate.now().toString());
+        document.setUploadUser(attachment.getUploadUserName());
+        document.setFileSize(attachment.getFileSize());
+        document.setDownloadCount(attachment.getDownloadCount() != null ? attachment.getDownloadCount() : 0);
+        document.setViewCount(attachment.getViewCount() != null ? attachment.getViewCount() : 0);
+        document.setStatus(attachment.getStatus());
+        return document;
+    }
+
+    private void saveProgress(String status, long cursor, int indexed, int failed, int skipped, String startTime) {
+        Map<String, String> progress = new HashMap<>();
+        progress.put("status", status);
+        progress.put("cursor", String.valueOf(cursor));
+        progress.put("indexed", String.valueOf(indexed));
+        progress.put("failed", String.valueOf(failed));
+        progress.put("skipped", String.valueOf(skipped));
+        progress.put("startTime", startTime);
+        progress.put("updateTime", LocalDateTime.now().toString());
+        stringRedisTemplate.opsForHash().putAll(PROGRESS_KEY, progress);
+    }
+
+    private long parseLong(Object value) {
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+}
@@ -1,9 +1,6 @@
 package com.student.course.service;
 
 import com.student.course.document.CourseAttachmentDocument;
-import com.student.course.entity.CourseAttachment;
-import com.student.course.entity.CourseInfo;
-import com.student.course.mapper.CourseAttachmentMapper;
 import com.student.course.repository.CourseAttachmentDocumentRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -34,13 +32,7 @@ public class AttachmentSearchService {
     private ElasticsearchOperations elasticsearchOperations;
 
     @Autowired
-    private CourseAttachmentMapper attachmentMapper;
-
-    @Autowired
-    private CourseInfoService courseInfoService;
-
-    @Autowired
-    private DocumentContentExtractor contentExtractor;
+    private AttachmentReindexService reindexService;
 
     /**
      * 全文搜索（搜索附件名称和内容）
@@ -164,71 +156,19 @@ public class AttachmentSearchService {
 
     /**
      * 重新索引所有附件
-     * 为数据库中所有未索引的附件建立ES索引
+     * 按主键游标分页、批量写入ES，中断后再次调用从上次完成的位置继续
      *
+     * @param restart 是否忽略上次进度从头开始
      * @return 成功索引的附件数量
      */
-    public int reindexAllAttachments() {
-        log.info("开始重新索引所有附件...");
-        int successCount = 0;
-        int failCount = 0;
-
-        try {
-            // 查询所有状态为1且未索引的附件
-            List<CourseAttachment> attachments = attachmentMapper.selectList(null);
-            log.info("找到 {} 个附件需要索引", attachments.size());
-
-            for (CourseAttachment attachment : attachments) {
-                try {
-                    // 只处理文档类型的附件
-                    if (!contentExtractor.isSupportedFileType(attachment.getAttachmentName())) {
-                        log.debug("跳过不支持的文件类型: {}", attachment.getAttachmentName());
-                        continue;
-                    }
-
-                    // 获取课程信息
-                    CourseInfo courseInfo = courseInfoService.getCourseById(attachment.getCourseId());
-                    String courseName = courseInfo != null ? courseInfo.getCourseName() : "";
-
-                    // 创建ES文档（不提取内容，只索引文件名）
-                    CourseAttachmentDocument document = new CourseAttachmentDocument();
-                    document.setId(attachment.getId());
-                    document.setAttachmentName(attachment.getAttachmentName());
-                    document.setAttachmentType(attachment.getAttachmentType());
-                    document.setFileId(attachment.getFileId());
-                    document.setFileType(attachment.getFileExtension());
-                    document.setContent(""); // 暂时不提取内容
-                    document.setCourseId(attachment.getCourseId());
-                    document.setCourseName(courseName);
-                    document.setUploadTime(java.time.LocalDate.now().toString());
-                    document.setUploadUser(attachment.getUploadUserName());
-                    document.setFileSize(attachment.getFileSize());
-                    document.setDownloadCount(attachment.getDownloadCount() != null ? attachment.getDownloadCount() : 0);
-                    document.setViewCount(attachment.getViewCount() != null ? attachment.getViewCount() : 0);
-                    document.setStatus(attachment.getStatus());
-
-                    // 保存到ES
-                    documentRepository.save(document);
-
-                    // 更新索引状态
-                    attachment.setEsIndexed(1);
-                    attachmentMapper.updateById(attachment);
-
-                    successCount++;
-                    log.info("成功索引附件: id={}, name={}", attachment.getId(), attachment.getAttachmentName());
-
-                } catch (Exception e) {
-                    failCount++;
-                    log.error("索引附件失败: id={}, name={}", attachment.getId(), attachment.getAttachmentName(), e);
-                }
-            }
-
-            log.info("重新索引完成: 成功={}, 失败={}", successCount, failCount);
-            return successCount;
+    public int reindexAllAttachments(boolean restart) {
+        return reindexService.reindex(restart);
+    }
 
-        } catch (Exception e) {
-            log.error("重新索引所有附件失败", e);
-            return successCount;
-        }
+    /**
+     * 获取重新索引进度
+     */
+    public Map<String, Object> getReindexProgress() {
+        return reindexService.getProgress();
     }
 }
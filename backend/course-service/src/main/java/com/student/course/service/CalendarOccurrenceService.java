@@ -0,0 +1,250 @@
+package com.student.course.service;
+
+import com.student.course.entity.CourseCalendar;
+import com.student.course.entity.CourseCalendarOccurrence;
+import com.student.course.mapper.CourseCalendarMapper;
+import com.student.course.mapper.CourseCalendarOccurrenceMapper;
+import com.student.course.util.RecurrenceRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 课程日历展开索引服务
+ *
+ * 周期性事件在写入时按重复规则展开到course_calendar_occurrence，每次发生一行。
+ * 按日期范围查询课表时先在索引表上做(course_id, occurrence_date)范围扫描，
+ * 再按事件ID批量加载事件本身，不再在每次请求时逐日展开全部重复规则。
+ * 没有UNTIL的事件只展开到今天之后 horizon-days 天，由定时任务每天向后延展。
+ */
+@Slf4j
+@Service
+public class CalendarOccurrenceService {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Autowired
+    private CourseCalendarOccurrenceMapper occurrenceMapper;
+
+    @Autowired
+    private CourseCalendarMapper calendarMapper;
+
+    /**
+     * 没有UNTIL的周期性事件展开到今天（或事件日期，取较晚者）之后的天数
+     */
+    @Value("${calendar.occurrence.horizon-days:366}")
+    private int horizonDays;
+
+    /**
+     * 重建单个事件的展开结果（事件创建、修改、取消后在同一事务内调用）
+     *
+     * @param event 数据库中的最新事件
+     * @return 展开的次数
+     */
+    public int rebuild(CourseCalendar event) {
+        occurrenceMapper.deleteByEventId(event.getId());
+        return index(List.of(event));
+    }
+
+    /**
+     * 为新插入的事件批量写入展开结果，多个事件的展开行合并成多行INSERT
+     *
+     * @param events 已回填ID的事件
+     * @return 展开的总次数
+     */
+    public int index(List<CourseCalendar> events) {
+        int total = 0;
+        List<CourseCalendarOccurrence> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (CourseCalendar event : events) {
+            if (event.getStatus() != null && event.getStatus() == 0) {
+                continue;
+            }
+            List<LocalDate> dates = expand(event);
+            addOccurrences(event, dates, batch);
+            total += dates.size();
+        }
+        flush(batch);
+        return total;
+    }
+
+    /**
+     * 把没有UNTIL的周期性事件的展开索引延展到今天之后 horizon-days 天（已存在的日期忽略）
+     *
+     * @return 新增的展开行数
+     */
+    public int extendHorizon() {
+        LocalDate today = LocalDate.now();
+        LocalDate end = today.plusDays(horizonDays);
+        int added = 0;
+        long afterId = 0;
+        List<CourseCalendarOccurrence> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        while (true) {
+            List<CourseCalendar> events = calendarMapper.selectOpenEndedRecurring(afterId, 500);
+            if (events.isEmpty()) {
+                break;
+            }
+            for (CourseCalendar event : events) {
+                RecurrenceRule rule = RecurrenceRule.parse(event.getRecurrenceRule());
+                if (rule == null) {
+                    continue;
+                }
+                LocalDate start = event.getEventDate().isAfter(today) ? event.getEventDate() : today;
+                added += addOccurrences(event, rule.generateOccurrences(event.getEventDate(), start, end), batch);
+            }
+            afterId = events.get(events.size() - 1).getId();
+        }
+        added += flush(batch);
+        if (added > 0) {
+            log.info("日历展开索引已延展: until={}, rows={}", end, added);
+        }
+        return added;
+    }
+
+    /**
+     * 追加展开行，攒满一批即写入
+     *
+     * @return 本次实际写入的行数
+     */
+    private int addOccurrences(CourseCalendar event, List<LocalDate> dates, List<CourseCalendarOccurrence> batch) {
+        int inserted = 0;
+        for (LocalDate date : dates) {
+            CourseCalendarOccurrence occurrence = new CourseCalendarOccurrence();
+            occurrence.setEventId(event.getId());
+            occurrence.setCourseId(event.getCourseId());
+            occurrence.setOccurrenceDate(date);
+            occurrence.setStartTime(event.getStartTime());
+            batch.add(occurrence);
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                inserted += flush(batch);
+            }
+        }
+        return inserted;
+    }
+
+    private int flush(List<CourseCalendarOccurrence> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int inserted = occurrenceMapper.insertBatchIgnore(batch);
+        batch.clear();
+        return inserted;
+    }
+
+    /**
+     * 删除事件的展开结果
+     */
+    public void remove(Long eventId) {
+        occurrenceMapper.deleteByEventId(eventId);
+    }
+
+    /**
+     * 为尚未展开的事件补建索引（上线后首次启动及手动修复时使用）
+     *
+     * @return 补建的事件数
+     */
+    public int backfill() {
+        long afterId = 0;
+        int rebuilt = 0;
+        while (true) {
+            List<Long> eventIds = occurrenceMapper.selectUnindexedEventIds(afterId, 500);
+            if (eventIds.isEmpty()) {
+                break;
+            }
+            for (CourseCalendar event : calendarMapper.selectBatchIds(eventIds)) {
+                rebuild(event);
+                rebuilt++;
+            }
+            afterId = eventIds.get(eventIds.size() - 1);
+        }
+        if (rebuilt > 0) {
+            log.info("日历展开索引补建完成: events={}", rebuilt);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * 查询课程在日期范围内的全部日程（已按日期、开始时间排序）
+     */
+    public List<CourseCalendar> findInRange(Collection<Long> courseIds, LocalDate startDate, LocalDate endDate) {
+        List<CourseCalendarOccurrence> occurrences =
+                occurrenceMapper.selectByCoursesAndRange(courseIds, startDate, endDate);
+        if (occurrences.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> eventIds = new LinkedHashSet<>();
+        for (CourseCalendarOccurrence occurrence : occurrences) {
+            eventIds.add(occurrence.getEventId());
+        }
+        Map<Long, CourseCalendar> events = new HashMap<>();
+        for (CourseCalendar event : calendarMapper.selectBatchIds(eventIds)) {
+            events.put(event.getId(), event);
+        }
+
+        List<CourseCalendar> result = new ArrayList<>(occurrences.size());
+        for (CourseCalendarOccurrence occurrence : occurrences) {
+            CourseCalendar event = events.get(occurrence.getEventId());
+            if (event == null || (event.getStatus() != null && event.getStatus() == 0)) {
+                continue;
+            }
+            boolean recurring = event.getIsRecurring() != null && event.getIsRecurring() == 1;
+            result.add(recurring ? toOccurrence(event, occurrence.getOccurrenceDate()) : event);
+        }
+        return result;
+    }
+
+    /**
+     * 按重复规则展开事件日期
+     */
+    public List<LocalDate> expand(CourseCalendar event) {
+        if (event.getIsRecurring() == null || event.getIsRecurring() != 1) {
+            return List.of(event.getEventDate());
+        }
+
+        RecurrenceRule rule = RecurrenceRule.parse(event.getRecurrenceRule());
+        if (rule == null) {
+            log.warn("无法解析重复规则: eventId={}, rule={}", event.getId(), event.getRecurrenceRule());
+            return List.of();
+        }
+        LocalDate end = rule.getUntilDate();
+        if (end == null) {
+            LocalDate today = LocalDate.now();
+            end = (event.getEventDate().isAfter(today) ? event.getEventDate() : today).plusDays(horizonDays);
+        }
+        return rule.generateOccurrences(event.getEventDate(), event.getEventDate(), end);
+    }
+
+    /**
+     * 生成某次发生的虚拟事件（ID为空，日期为发生日期）
+     */
+    public static CourseCalendar toOccurrence(CourseCalendar event, LocalDate date) {
+        CourseCalendar occurrence = new CourseCalendar();
+        occurrence.setCourseId(event.getCourseId());
+        occurrence.setEventType(event.getEventType());
+        occurrence.setEventTitle(event.getEventTitle());
+        occurrence.setEventDescription(event.getEventDescription());
+        occurrence.setEventDate(date);
+        occurrence.setStartTime(event.getStartTime());
+        occurrence.setEndTime(event.getEndTime());
+        occurrence.setLocation(event.getLocation());
+        occurrence.setWeekDay(event.getWeekDay());
+        occurrence.setWeekNumber(event.getWeekNumber());
+        occurrence.setIsRecurring(event.getIsRecurring());
+        occurrence.setRecurrenceRule(event.getRecurrenceRule());
+        occurrence.setColor(event.getColor());
+        occurrence.setStatus(event.getStatus());
+        occurrence.setCreateTime(event.getCreateTime());
+        occurrence.setUpdateTime(event.getUpdateTime());
+        return occurrence;
+    }
+}
@@ -2,6 +2,8 @@ package com.student.course.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.student.common.exception.BusinessException;
+import com.student.common.result.CursorPage;
+import com.student.common.util.PageCursor;
 import com.student.course.document.CourseAttachmentDocument;
 import com.student.course.entity.CourseAttachment;
 import com.student.course.entity.CourseInfo;
@@ -9,6 +11,8 @@ import com.student.course.mapper.CourseAttachmentMapper;
 import com.student.course.repository.CourseAttachmentDocumentRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,7 +22,10 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.student.course.vo.AttachmentManagementVO;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,12 +43,25 @@ public class CourseAttachmentService {
     @Autowired
     private DocumentContentExtractor contentExtractor;
 
+    @Autowired
+    private DocumentExtractionPipeline extractionPipeline;
+
     @Autowired
     private CourseAttachmentDocumentRepository documentRepository;
 
     @Autowired
     private CourseInfoService courseInfoService;
 
+    @Autowired
+    private AttachmentCounterService counterService;
+
+    /**
+     * 写索引（Elasticsearch、数据库）使用的执行器，不占用按CPU核数配置的解析线程
+     */
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor indexExecutor;
+
     /**
      * 获取课程的所有附件
      */
@@ -152,52 +172,67 @@ public class CourseAttachmentService {
     }
 
     /**
-     * 增加下载次数
+     * 增加下载次数（内存累加，由AttachmentCounterService定时批量写回）
      */
-    @Transactional(rollbackFor = Exception.class)
     public void incrementDownloadCount(Long id) {
-        CourseAttachment attachment = attachmentMapper.selectById(id);
-        if (attachment != null) {
-            attachment.setDownloadCount(
-                    (attachment.getDownloadCount() == null ? 0 : attachment.getDownloadCount()) + 1
-            );
-            attachmentMapper.updateById(attachment);
-        }
+        counterService.recordDownload(id);
     }
 
     /**
-     * 增加浏览次数
+     * 增加浏览次数（内存累加，由AttachmentCounterService定时批量写回）
      */
-    @Transactional(rollbackFor = Exception.class)
     public void incrementViewCount(Long id) {
-        CourseAttachment attachment = attachmentMapper.selectById(id);
-        if (attachment != null) {
-            attachment.setViewCount(
-                    (attachment.getViewCount() == null ? 0 : attachment.getViewCount()) + 1
-            );
-            attachmentMapper.updateById(attachment);
-        }
+        counterService.recordView(id);
     }
 
     /**
      * 异步建立Elasticsearch索引
+     * 在@Async执行器上把上传文件落到临时文件后交给提取流水线，解析在流水线线程上进行，
+     * 写索引再切换回indexExecutor；调用方需保证执行时MultipartFile仍可读取
      */
     @Async
     public void indexAttachmentAsync(CourseAttachment attachment, MultipartFile file) {
+        // 不支持内容提取的文件（如图片、视频等），content为空，但仍然索引文件名
+        if (!contentExtractor.isSupportedFileType(attachment.getAttachmentName())) {
+            log.info("文件类型不支持内容提取，仅索引文件名: {}", attachment.getAttachmentName());
+            saveDocument(attachment, "");
+            return;
+        }
+
+        Path spoolFile;
         try {
-            String content = "";
-
-            // 判断是否支持内容提取
-            if (contentExtractor.isSupportedFileType(attachment.getAttachmentName())) {
-                // 支持内容提取的文件，提取文档内容
-                try (InputStream inputStream = file.getInputStream()) {
-                    content = contentExtractor.extractContent(inputStream, attachment.getAttachmentName());
-                }
-            } else {
-                // 不支持内容提取的文件（如图片、视频等），content为空，但仍然索引文件名
-                log.info("文件类型不支持内容提取，仅索引文件名: {}", attachment.getAttachmentName());
-            }
+            spoolFile = Files.createTempFile("attachment-" + attachment.getId() + "-", ".tmp");
+            file.transferTo(spoolFile);
+        } catch (IOException e) {
+            log.error("保存待解析文件失败: attachmentId={}, fileName={}",
+                    attachment.getId(), attachment.getAttachmentName(), e);
+            return;
+        }
 
+        try {
+            extractionPipeline.submit(spoolFile, attachment.getAttachmentName())
+                    .whenCompleteAsync((content, e) -> {
+                        if (e != null) {
+                            log.error("提取文档内容失败，仅索引文件名: attachmentId={}", attachment.getId(), e);
+                        }
+                        saveDocument(attachment, content != null ? content : "");
+                    }, indexExecutor);
+        } catch (BusinessException e) {
+            // 流水线繁忙时临时文件已由流水线删除
+            log.warn("文档解析任务繁忙，仅索引文件名: attachmentId={}", attachment.getId());
+            saveDocument(attachment, "");
+        }
+    }
+
+    /**
+     * 提取指标
+     */
+    public Map<String, Object> getExtractionMetrics() {
+        return extractionPipeline.getMetrics();
+    }
+
+    private void saveDocument(CourseAttachment attachment, String content) {
+        try {
             // 获取课程信息
             CourseInfo courseInfo = courseInfoService.getCourseById(attachment.getCourseId());
             String courseName = courseInfo != null ? courseInfo.getCourseName() : "";
@@ -222,9 +257,8 @@ public class CourseAttachmentService {
             // 保存到Elasticsearch
             documentRepository.save(document);
 
-            // 更新索引状态
-            attachment.setEsIndexed(1);
-            attachmentMapper.updateById(attachment);
+            // 更新索引状态（只改es_indexed，不覆盖计数字段）
+            attachmentMapper.markEsIndexed(List.of(attachment.getId()));
 
             log.info("Elasticsearch索引建立成功: attachmentId={}, fileName={}",
                     attachment.getId(), attachment.getAttachmentName());
@@ -245,17 +279,7 @@ public class CourseAttachmentService {
         AttachmentManagementVO result = new AttachmentManagementVO();
 
         // 1. 构建查询条件
-        LambdaQueryWrapper<CourseAttachment> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(CourseAttachment::getStatus, 1);
-
-        if (courseId != null) {
-            wrapper.eq(CourseAttachment::getCourseId, courseId);
-        }
-
-        if (attachmentType != null && !attachmentType.isEmpty()) {
-            wrapper.eq(CourseAttachment::getAttachmentType, attachmentType);
-        }
-
+        LambdaQueryWrapper<CourseAttachment> wrapper = attachmentFilter(courseId, attachmentType);
         wrapper.orderByDesc(CourseAttachment::getCreateTime);
 
         // 2. 分页查询附件列表
@@ -290,4 +314,46 @@ public class CourseAttachmentService {
 
         return result;
     }
+
+    /**
+     * 游标分页查询附件（按(创建时间, id)倒序，附件管理界面滚动加载和导出使用）
+     *
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param withTotal 是否同时返回总数（额外执行一次COUNT）
+     */
+    public CursorPage<CourseAttachment> getAttachmentsByCursor(Long courseId, String attachmentType, String cursor,
+                                                               Integer size, boolean withTotal) {
+        int pageSize = CursorPage.normalizeSize(size);
+        LambdaQueryWrapper<CourseAttachment> wrapper = attachmentFilter(courseId, attachmentType);
+
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            LocalDateTime createTime = after.getSortValueAsDateTime();
+            Long afterId = after.getId();
+            wrapper.and(w -> w.lt(CourseAttachment::getCreateTime, createTime)
+                    .or(o -> o.eq(CourseAttachment::getCreateTime, createTime).lt(CourseAttachment::getId, afterId)));
+        }
+        wrapper.orderByDesc(CourseAttachment::getCreateTime)
+               .orderByDesc(CourseAttachment::getId)
+               .last("LIMIT " + (pageSize + 1));
+
+        CursorPage<CourseAttachment> page = CursorPage.of(attachmentMapper.selectList(wrapper), pageSize,
+                CourseAttachment::getCreateTime, CourseAttachment::getId);
+        if (withTotal) {
+            page.setTotal(attachmentMapper.selectCount(attachmentFilter(courseId, attachmentType)));
+        }
+        return page;
+    }
+
+    private LambdaQueryWrapper<CourseAttachment> attachmentFilter(Long courseId, String attachmentType) {
+        LambdaQueryWrapper<CourseAttachment> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(CourseAttachment::getStatus, 1);
+        if (courseId != null) {
+            wrapper.eq(CourseAttachment::getCourseId, courseId);
+        }
+        if (attachmentType != null && !attachmentType.isEmpty()) {
+            wrapper.eq(CourseAttachment::getAttachmentType, attachmentType);
+        }
+        return wrapper;
+    }
 }
@@ -5,9 +5,11 @@ import com.student.common.exception.BusinessException;
 import com.student.course.entity.CourseCalendar;
 import com.student.course.entity.CourseInfo;
 import com.student.course.mapper.CourseCalendarMapper;
+import com.student.course.mapper.CourseInfoMapper;
 import com.student.course.util.RecurrenceRule;
+import com.student.course.vo.CalendarGenerationVO;
+import com.student.course.vo.SemesterVO;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,7 +17,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -25,12 +31,33 @@ import java.util.stream.Collectors;
 @Service
 public class CourseCalendarService {
 
+    /**
+     * 上课时间段格式：周一1-2节/A101
+     */
+    private static final Pattern SCHEDULE_SEGMENT_PATTERN = Pattern.compile("周([一二三四五六日])(\\d+)-(\\d+)节/(.+)");
+
+    private static final Pattern SCHEDULE_SEPARATOR_PATTERN = Pattern.compile("，");
+
+    /**
+     * 批量插入日历事件时每条INSERT的行数
+     */
+    private static final int EVENT_BATCH_SIZE = 500;
+
     @Autowired
     private CourseCalendarMapper calendarMapper;
 
     @Autowired
     private CourseInfoService courseInfoService;
 
+    @Autowired
+    private CalendarOccurrenceService occurrenceService;
+
+    @Autowired
+    private CourseInfoMapper courseInfoMapper;
+
+    @Autowired
+    private SemesterService semesterService;
+
     /**
      * 获取课程的日历事件列表
      */
@@ -51,6 +78,11 @@ public class CourseCalendarService {
      * 获取指定日期范围的日历事件
      */
     public List<CourseCalendar> getCalendarByDateRange(Long courseId, LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null) {
+            // 在展开索引上做范围扫描
+            return occurrenceService.findInRange(List.of(courseId), startDate, endDate);
+        }
+
         LambdaQueryWrapper<CourseCalendar> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(CourseCalendar::getCourseId, courseId)
                .ne(CourseCalendar::getStatus, 0);
@@ -68,6 +100,9 @@ public class CourseCalendarService {
         if (courseIds == null || courseIds.isEmpty()) {
             return List.of();
         }
+        if (startDate != null && endDate != null) {
+            return occurrenceService.findInRange(courseIds, startDate, endDate);
+        }
 
         LambdaQueryWrapper<CourseCalendar> wrapper = new LambdaQueryWrapper<>();
         wrapper.in(CourseCalendar::getCourseId, courseIds)
@@ -131,20 +166,13 @@ public class CourseCalendarService {
         LocalDate effectiveEnd = rangeEnd != null ? rangeEnd :
             (rule.getUntilDate() != null ? rule.getUntilDate() : event.getEventDate().plusYears(1));
 
-        log.info("展开周期性事件: eventId={}, title={}, range=[{} to {}]",
+        log.debug("展开周期性事件: eventId={}, title={}, range=[{} to {}]",
             event.getId(), event.getEventTitle(), effectiveStart, effectiveEnd);
 
-        // 生成所有重复日期
+        // 生成所有重复日期，为每个日期创建事件副本（ID为空，这是展开后的虚拟事件）
         List<LocalDate> dates = rule.generateOccurrences(event.getEventDate(), effectiveStart, effectiveEnd);
-        log.info("生成了 {} 个重复日期", dates.size());
-
-        // 为每个日期创建事件副本
         for (LocalDate date : dates) {
-            CourseCalendar occurrence = new CourseCalendar();
-            BeanUtils.copyProperties(event, occurrence);
-            occurrence.setId(null);  // 清除ID，这是展开后的虚拟事件
-            occurrence.setEventDate(date);
-            occurrences.add(occurrence);
+            occurrences.add(CalendarOccurrenceService.toOccurrence(event, date));
         }
 
         return occurrences;
@@ -166,6 +194,7 @@ public class CourseCalendarService {
         }
 
         calendarMapper.insert(calendar);
+        occurrenceService.rebuild(calendar);
         log.info("创建日历事件成功: courseId={}, eventTitle={}, isRecurring={}",
             calendar.getCourseId(), calendar.getEventTitle(), calendar.getIsRecurring());
 
@@ -183,6 +212,8 @@ public class CourseCalendarService {
         }
 
         calendarMapper.updateById(calendar);
+        // 按更新后的完整记录重建展开结果（请求体可能只包含部分字段）
+        occurrenceService.rebuild(calendarMapper.selectById(calendar.getId()));
         log.info("更新日历事件成功: id={}, eventTitle={}", calendar.getId(), calendar.getEventTitle());
 
         return calendar;
@@ -194,6 +225,7 @@ public class CourseCalendarService {
     @Transactional(rollbackFor = Exception.class)
     public void deleteCalendarEvent(Long id) {
         calendarMapper.deleteById(id);
+        occurrenceService.remove(id);
         log.info("删除日历事件成功: id={}", id);
     }
 
@@ -209,6 +241,7 @@ public class CourseCalendarService {
 
         calendar.setStatus(0);  // 取消状态
         calendarMapper.updateById(calendar);
+        occurrenceService.remove(id);
         log.info("取消日历事件成功: id={}, eventTitle={}", id, calendar.getEventTitle());
     }
 
@@ -261,10 +294,114 @@ public class CourseCalendarService {
         }
 
         // 4. 为每个时间段创建一条周期性日历记录
-        int createdCount = 0;
+        List<CourseCalendar> events = buildClassEvents(course, segments, startDate, endDate);
+        calendarMapper.insertBatch(events);
+        occurrenceService.index(events);
+        int createdCount = events.size();
+
+        log.info("批量生成课程日历成功: courseId={}, courseName={}, count={}",
+                courseId, course.getCourseName(), createdCount);
+
+        return createdCount;
+    }
+
+    /**
+     * 按学期批量生成所有课程的上课日历（单个事务）
+     * 已存在周期性上课日历的课程跳过，没有或无法解析上课时间的课程记为失败，结果按课程返回
+     *
+     * @param semester 学期名称，为空时使用当前学期
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public CalendarGenerationVO generateSemesterCalendar(String semester) {
+        SemesterVO semesterInfo = semester != null ?
+                semesterService.getSemesterInfo(semester) :
+                semesterService.getCurrentSemester();
+        if (semesterInfo == null) {
+            throw new BusinessException("学期不存在");
+        }
+        LocalDate startDate = semesterInfo.getStartDate();
+        LocalDate endDate = semesterInfo.getEndDate();
+
+        LambdaQueryWrapper<CourseInfo> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(CourseInfo::getId, CourseInfo::getCourseName, CourseInfo::getCourseDescription,
+                        CourseInfo::getCourseType, CourseInfo::getScheduleInfo)
+               .eq(CourseInfo::getSemester, semesterInfo.getSemester())
+               .orderByAsc(CourseInfo::getId);
+        List<CourseInfo> courses = courseInfoMapper.selectList(wrapper);
+
+        // 一次查询找出已生成过的课程
+        Set<Long> existingCourseIds = new HashSet<>(
+                calendarMapper.selectCourseIdsWithRecurringClass(semesterInfo.getSemester()));
+
+        CalendarGenerationVO result = new CalendarGenerationVO();
+        result.setSemester(semesterInfo.getSemester());
+        result.setStartDate(startDate);
+        result.setEndDate(endDate);
+
+        List<CourseCalendar> events = new ArrayList<>();
+        int generated = 0;
+        int skipped = 0;
+        int failed = 0;
+        for (CourseInfo course : courses) {
+            CalendarGenerationVO.CourseResult courseResult = new CalendarGenerationVO.CourseResult();
+            courseResult.setCourseId(course.getId());
+            courseResult.setCourseName(course.getCourseName());
+            courseResult.setEventCount(0);
+
+            result.getCourses().add(courseResult);
+
+            if (existingCourseIds.contains(course.getId())) {
+                courseResult.setStatus(CalendarGenerationVO.STATUS_SKIPPED);
+                courseResult.setMessage("已存在周期性课程日历");
+                skipped++;
+                continue;
+            }
+            if (course.getScheduleInfo() == null || course.getScheduleInfo().isEmpty()) {
+                courseResult.setStatus(CalendarGenerationVO.STATUS_FAILED);
+                courseResult.setMessage("课程没有设置上课时间");
+                failed++;
+                continue;
+            }
+            List<ScheduleSegment> segments = parseScheduleInfo(course.getScheduleInfo());
+            if (segments.isEmpty()) {
+                courseResult.setStatus(CalendarGenerationVO.STATUS_FAILED);
+                courseResult.setMessage("无法解析课程时间信息");
+                failed++;
+            } else {
+                List<CourseCalendar> courseEvents = buildClassEvents(course, segments, startDate, endDate);
+                events.addAll(courseEvents);
+                courseResult.setStatus(CalendarGenerationVO.STATUS_GENERATED);
+                courseResult.setEventCount(courseEvents.size());
+                generated++;
+            }
+        }
+
+        for (int from = 0; from < events.size(); from += EVENT_BATCH_SIZE) {
+            calendarMapper.insertBatch(events.subList(from, Math.min(from + EVENT_BATCH_SIZE, events.size())));
+        }
+        int occurrences = occurrenceService.index(events);
+
+        result.setTotalCourses(courses.size());
+        result.setGeneratedCourses(generated);
+        result.setSkippedCourses(skipped);
+        result.setFailedCourses(failed);
+        result.setTotalEvents(events.size());
+
+        log.info("学期课程日历生成完成: semester={}, courses={}, generated={}, skipped={}, failed={}, events={}, occurrences={}",
+                semesterInfo.getSemester(), courses.size(), generated, skipped, failed, events.size(), occurrences);
+        return result;
+    }
+
+    /**
+     * 为课程的每个上课时间段构建一条周期性日历记录
+     */
+    private List<CourseCalendar> buildClassEvents(CourseInfo course, List<ScheduleSegment> segments,
+                                                  LocalDate startDate, LocalDate endDate) {
+        List<CourseCalendar> events = new ArrayList<>(segments.size());
+        String color = getColorByType(course.getCourseType());
         for (ScheduleSegment segment : segments) {
             CourseCalendar calendar = new CourseCalendar();
-            calendar.setCourseId(courseId);
+            calendar.setCourseId(course.getId());
             calendar.setEventType("class");
             calendar.setEventTitle(course.getCourseName());
             calendar.setEventDescription(course.getCourseDescription());
@@ -280,17 +417,11 @@ public class CourseCalendarService {
                     endDate.toString());
             calendar.setRecurrenceRule(rrule);
 
-            calendar.setColor(getColorByType(course.getCourseType()));
+            calendar.setColor(color);
             calendar.setStatus(1);
-
-            calendarMapper.insert(calendar);
-            createdCount++;
+            events.add(calendar);
         }
-
-        log.info("批量生成课程日历成功: courseId={}, courseName={}, count={}",
-                courseId, course.getCourseName(), createdCount);
-
-        return createdCount;
+        return events;
     }
 
     /**
@@ -300,12 +431,11 @@ public class CourseCalendarService {
         List<ScheduleSegment> segments = new ArrayList<>();
 
         // 分割多个时间段："周一1-2节/A101，周三3-4节/A101"
-        String[] parts = scheduleInfo.split("，");
+        String[] parts = SCHEDULE_SEPARATOR_PATTERN.split(scheduleInfo);
 
         for (String part : parts) {
             // 匹配格式：周一1-2节/A101
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("周([一二三四五六日])(\\d+)-(\\d+)节/(.+)");
-            java.util.regex.Matcher matcher = pattern.matcher(part.trim());
+            Matcher matcher = SCHEDULE_SEGMENT_PATTERN.matcher(part.trim());
 
             if (matcher.find()) {
                 ScheduleSegment segment = new ScheduleSegment();
@@ -4,15 +4,22 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.student.common.exception.BusinessException;
+import com.student.common.result.CursorPage;
+import com.student.common.util.PageCursor;
+import com.student.course.dto.EnrollmentMessage;
 import com.student.course.entity.CourseEnrollment;
 import com.student.course.entity.CourseInfo;
 import com.student.course.mapper.CourseEnrollmentMapper;
 import com.student.course.vo.MyEnrollmentVO;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 
@@ -29,6 +36,24 @@ public class CourseEnrollmentService {
     @Autowired
     private CourseInfoService courseInfoService;
 
+    @Autowired
+    private EnrollmentSeatService seatService;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.exchange.course}")
+    private String courseExchange;
+
+    @Value("${rabbitmq.routing-key.enrollment:course.enrollment}")
+    private String enrollmentRoutingKey;
+
+    /**
+     * 选课模式：db-直接写数据库，redis-Redis预占座位后异步批量落库
+     */
+    @Value("${course.enrollment.mode:db}")
+    private String enrollmentMode;
+
     /**
      * 学生选课（并发安全版本）
      *
@@ -50,6 +75,10 @@ public class CourseEnrollmentService {
             throw new BusinessException("该课程选课人数已满");
         }
 
+        if (isRedisMode()) {
+            return enrollWithReservation(course, studentId, studentName, studentNumber, classId, className);
+        }
+
         // 2. 创建选课记录（不再预先检查是否已选，依赖数据库唯一索引）
         CourseEnrollment enrollment = new CourseEnrollment();
         enrollment.setCourseId(courseId);
@@ -81,6 +110,65 @@ public class CourseEnrollmentService {
         }
     }
 
+    /**
+     * Redis预占座位选课
+     *
+     * 1. Lua脚本原子完成去重与座位扣减，热门课程的并发请求不再争抢course_info行锁
+     * 2. 预占成功后投递到RabbitMQ，由EnrollmentPersistListener批量落库
+     * 3. 投递失败时释放座位
+     */
+    private CourseEnrollment enrollWithReservation(CourseInfo course, Long studentId, String studentName,
+            String studentNumber, Long classId, String className) {
+        Long courseId = course.getId();
+        long result = seatService.reserve(courseId, studentId);
+        if (result == EnrollmentSeatService.NOT_WARMED) {
+            // 课程未预热（如选课开放后新建的课程），按需预热后重试一次
+            seatService.warmUp(courseId, false);
+            result = seatService.reserve(courseId, studentId);
+        }
+
+        if (result == EnrollmentSeatService.DUPLICATE) {
+            throw new BusinessException("您已选过该课程");
+        }
+        if (result == EnrollmentSeatService.FULL) {
+            throw new BusinessException("该课程选课人数已满");
+        }
+        if (result != EnrollmentSeatService.RESERVED) {
+            throw new BusinessException("选课失败，请重试");
+        }
+
+        EnrollmentMessage message = new EnrollmentMessage();
+        message.setCourseId(courseId);
+        message.setStudentId(studentId);
+        message.setStudentName(studentName);
+        message.setStudentNumber(studentNumber);
+        message.setClassId(classId);
+        message.setClassName(className);
+        message.setEnrollmentTime(LocalDateTime.now());
+
+        try {
+            rabbitTemplate.convertAndSend(courseExchange, enrollmentRoutingKey, message);
+        } catch (Exception e) {
+            log.error("选课消息投递失败，释放座位: studentId={}, courseId={}", studentId, courseId, e);
+            seatService.release(courseId, studentId);
+            throw new BusinessException("选课失败，请重试");
+        }
+
+        log.info("学生选课预占成功: studentId={}, courseId={}, courseName={}",
+                studentId, courseId, course.getCourseName());
+
+        CourseEnrollment enrollment = new CourseEnrollment();
+        enrollment.setCourseId(courseId);
+        enrollment.setStudentId(studentId);
+        enrollment.setStudentName(studentName);
+        enrollment.setStudentNumber(studentNumber);
+        enrollment.setClassId(classId);
+        enrollment.setClassName(className);
+        enrollment.setEnrollmentTime(message.getEnrollmentTime());
+        enrollment.setStatus(1);
+        return enrollment;
+    }
+
     /**
      * 学生退课
      */
@@ -107,9 +195,33 @@ public class CourseEnrollmentService {
         // 减少课程选课人数
         courseInfoService.decrementEnrollment(enrollment.getCourseId());
 
+        // Redis模式下事务提交后归还座位
+        if (isRedisMode()) {
+            Long courseId = enrollment.getCourseId();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seatService.release(courseId, studentId);
+                }
+            });
+        }
+
         log.info("学生退课成功: studentId={}, courseId={}", studentId, enrollment.getCourseId());
     }
 
+    /**
+     * 预热某学期课程的选课座位（选课开放前调用）
+     *
+     * @return 本次预热的课程数量
+     */
+    public int warmUpSeats(String semester, boolean force) {
+        return seatService.warmUpSemester(semester, force);
+    }
+
+    private boolean isRedisMode() {
+        return "redis".equalsIgnoreCase(enrollmentMode);
+    }
+
     /**
      * 查询学生已选课程列表
      */
@@ -132,6 +244,47 @@ public class CourseEnrollmentService {
         return enrollmentMapper.selectPage(page, wrapper);
     }
 
+    /**
+     * 查询课程的选课学生列表（游标分页，按(学号, id)升序）
+     *
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param withTotal 是否同时返回总数（额外执行一次COUNT）
+     */
+    public CursorPage<CourseEnrollment> getCourseStudentsByCursor(Long courseId, String cursor, Integer size,
+                                                                  boolean withTotal) {
+        int pageSize = CursorPage.normalizeSize(size);
+        LambdaQueryWrapper<CourseEnrollment> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(CourseEnrollment::getCourseId, courseId)
+                .eq(CourseEnrollment::getStatus, 1);
+
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            String studentNumber = after.getSortValue();
+            Long afterId = after.getId();
+            if (studentNumber == null) {
+                // 学号为空的记录排在最前
+                wrapper.and(w -> w.isNotNull(CourseEnrollment::getStudentNumber)
+                        .or(o -> o.isNull(CourseEnrollment::getStudentNumber).gt(CourseEnrollment::getId, afterId)));
+            } else {
+                wrapper.and(w -> w.gt(CourseEnrollment::getStudentNumber, studentNumber)
+                        .or(o -> o.eq(CourseEnrollment::getStudentNumber, studentNumber).gt(CourseEnrollment::getId, afterId)));
+            }
+        }
+        wrapper.orderByAsc(CourseEnrollment::getStudentNumber)
+                .orderByAsc(CourseEnrollment::getId)
+                .last("LIMIT " + (pageSize + 1));
+
+        CursorPage<CourseEnrollment> page = CursorPage.of(enrollmentMapper.selectList(wrapper), pageSize,
+                CourseEnrollment::getStudentNumber, CourseEnrollment::getId);
+        if (withTotal) {
+            LambdaQueryWrapper<CourseEnrollment> countWrapper = new LambdaQueryWrapper<>();
+            countWrapper.eq(CourseEnrollment::getCourseId, courseId)
+                    .eq(CourseEnrollment::getStatus, 1);
+            page.setTotal(enrollmentMapper.selectCount(countWrapper));
+        }
+        return page;
+    }
+
     /**
      * 检查学生是否已选某课程
      */
@@ -6,6 +6,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.student.common.context.UserContext;
 import com.student.common.context.UserContextHolder;
 import com.student.common.exception.BusinessException;
+import com.student.course.cache.CourseCatalogCache;
 import com.student.course.entity.CourseEnrollment;
 import com.student.course.entity.CourseInfo;
 import com.student.course.mapper.CourseEnrollmentMapper;
@@ -36,39 +37,31 @@ public class CourseInfoService {
     @Autowired
     private CourseEnrollmentMapper enrollmentMapper;
 
+    @Autowired
+    private CourseCatalogCache courseCatalogCache;
+
     /**
      * 分页查询课程列表（用于选课中心，包含选课状态）
      */
     public IPage<CourseListVO> getCourseListWithEnrollStatus(Integer current, Integer size, String courseName,
                                                               String courseType, String semester, Integer status,
                                                               Long studentId) {
-        Page<CourseInfo> page = new Page<>(current, size);
-        LambdaQueryWrapper<CourseInfo> wrapper = new LambdaQueryWrapper<>();
-
-        // 条件查询
-        if (StringUtils.hasText(courseName)) {
-            wrapper.and(w -> w.like(CourseInfo::getCourseName, courseName)
-                    .or()
-                    .like(CourseInfo::getCourseCode, courseName));
-        }
-        if (StringUtils.hasText(courseType)) {
-            wrapper.eq(CourseInfo::getCourseType, courseType);
-        }
-        if (StringUtils.hasText(semester)) {
-            wrapper.eq(CourseInfo::getSemester, semester);
-        }
+        // 课程列表按查询条件缓存，选课状态因人而异，每次单独查询；
+        // 课程状态随已选人数变化（满员为2），选课只刷新已选人数缓存、不使列表失效，按状态过滤时直接查询数据库
+        CourseCatalogCache.CatalogPage catalogPage;
         if (status != null) {
-            wrapper.eq(CourseInfo::getStatus, status);
+            catalogPage = queryCatalogPage(current, size, courseName, courseType, semester, status);
+        } else {
+            String filterKey = CourseCatalogCache.filterKey(current, size, courseName, courseType, semester);
+            catalogPage = courseCatalogCache.getCatalogPage(filterKey,
+                    () -> queryCatalogPage(current, size, courseName, courseType, semester, null));
         }
-
-        wrapper.orderByDesc(CourseInfo::getCreateTime);
-
-        IPage<CourseInfo> coursePage = courseInfoMapper.selectPage(page, wrapper);
+        List<CourseInfo> records = catalogPage.getRecords();
 
         // 批量查询学生的选课状态
         Set<Long> enrolledCourseIds = null;
-        if (studentId != null && !coursePage.getRecords().isEmpty()) {
-            List<Long> courseIds = coursePage.getRecords().stream()
+        if (studentId != null && !records.isEmpty()) {
+            List<Long> courseIds = records.stream()
                     .map(CourseInfo::getId)
                     .collect(Collectors.toList());
 
@@ -82,7 +75,7 @@ public class CourseInfoService {
         // 转换为VO
         List<CourseListVO> voList = new ArrayList<>();
         Set<Long> finalEnrolledCourseIds = enrolledCourseIds;
-        for (CourseInfo course : coursePage.getRecords()) {
+        for (CourseInfo course : records) {
             CourseListVO vo = new CourseListVO();
             BeanUtils.copyProperties(course, vo);
             vo.setEnrolled(finalEnrolledCourseIds != null && finalEnrolledCourseIds.contains(course.getId()));
@@ -90,16 +83,42 @@ public class CourseInfoService {
         }
 
         // 构建返回的分页对象 - 保留原分页信息
-        Page<CourseListVO> voPage = new Page<>();
-        voPage.setCurrent(coursePage.getCurrent());
-        voPage.setSize(coursePage.getSize());
-        voPage.setTotal(coursePage.getTotal());
-        voPage.setPages(coursePage.getPages());
+        Page<CourseListVO> voPage = new Page<>(current, size, catalogPage.getTotal());
         voPage.setRecords(voList);
 
         return voPage;
     }
 
+    /**
+     * 查询课程列表页（课程列表缓存未命中时调用）
+     */
+    private CourseCatalogCache.CatalogPage queryCatalogPage(Integer current, Integer size, String courseName,
+                                                            String courseType, String semester, Integer status) {
+        Page<CourseInfo> page = new Page<>(current, size);
+        LambdaQueryWrapper<CourseInfo> wrapper = new LambdaQueryWrapper<>();
+
+        // 条件查询
+        if (StringUtils.hasText(courseName)) {
+            wrapper.and(w -> w.like(CourseInfo::getCourseName, courseName)
+                    .or()
+                    .like(CourseInfo::getCourseCode, courseName));
+        }
+        if (StringUtils.hasText(courseType)) {
+            wrapper.eq(CourseInfo::getCourseType, courseType);
+        }
+        if (StringUtils.hasText(semester)) {
+            wrapper.eq(CourseInfo::getSemester, semester);
+        }
+        if (status != null) {
+            wrapper.eq(CourseInfo::getStatus, status);
+        }
+
+        wrapper.orderByDesc(CourseInfo::getCreateTime);
+
+        IPage<CourseInfo> coursePage = courseInfoMapper.selectPage(page, wrapper);
+        return new CourseCatalogCache.CatalogPage(coursePage.getRecords(), coursePage.getTotal());
+    }
+
     /**
      * 分页查询课程列表
      */
@@ -130,10 +149,10 @@ public class CourseInfoService {
     }
 
     /**
-     * 根据ID获取课程详情
+     * 根据ID获取课程详情（经课程缓存，已选人数和状态最多延迟数秒）
      */
     public CourseInfo getCourseById(Long id) {
-        CourseInfo course = courseInfoMapper.selectById(id);
+        CourseInfo course = courseCatalogCache.getCourse(id);
         if (course == null) {
             throw new BusinessException("课程不存在");
         }
@@ -161,6 +180,7 @@ public class CourseInfoService {
         }
 
         courseInfoMapper.insert(courseInfo);
+        courseCatalogCache.evictCourses(List.of(courseInfo.getId()));
         log.info("创建课程成功: {} - {}", courseInfo.getCourseCode(), courseInfo.getCourseName());
         return courseInfo;
     }
@@ -201,6 +221,7 @@ public class CourseInfoService {
         }
 
         courseInfoMapper.updateById(courseInfo);
+        courseCatalogCache.evictCourses(List.of(courseInfo.getId()));
         log.info("更新课程成功: {} - {}", courseInfo.getCourseCode(), courseInfo.getCourseName());
         return courseInfo;
     }
@@ -221,6 +242,7 @@ public class CourseInfoService {
         }
 
         courseInfoMapper.deleteById(id);
+        courseCatalogCache.evictCourses(List.of(id));
         log.info("删除课程成功: {} - {}", course.getCourseCode(), course.getCourseName());
     }
 
@@ -238,8 +260,11 @@ public class CourseInfoService {
         int affectedRows = courseInfoMapper.incrementEnrollmentAtomic(courseId);
 
         if (affectedRows == 0) {
-            // 更新失败，可能是课程已满或课程状态不可选
-            CourseInfo course = getCourseById(courseId);
+            // 更新失败，可能是课程已满或课程状态不可选（直接查库，不使用缓存的座位信息）
+            CourseInfo course = courseInfoMapper.selectById(courseId);
+            if (course == null) {
+                throw new BusinessException("课程不存在");
+            }
 
             if (course.getStatus() == 0) {
                 throw new BusinessException("该课程已停用，不能选课");
@@ -258,6 +283,7 @@ public class CourseInfoService {
             }
         }
 
+        courseCatalogCache.evictSeats(List.of(courseId));
         log.debug("课程选课人数+1成功: courseId={}", courseId);
     }
 
@@ -272,6 +298,7 @@ public class CourseInfoService {
         int affectedRows = courseInfoMapper.decrementEnrollmentAtomic(courseId);
 
         if (affectedRows > 0) {
+            courseCatalogCache.evictSeats(List.of(courseId));
             log.debug("课程选课人数-1成功: courseId={}", courseId);
         } else {
             log.warn("课程选课人数-1失败，课程可能不存在: courseId={}", courseId);
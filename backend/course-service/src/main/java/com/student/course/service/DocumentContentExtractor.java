@@ -1,9 +1,18 @@
 package com.student.course.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.tika.Tika;
 import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -11,43 +20,78 @@ import java.io.InputStream;
 /**
  * 文档内容提取服务
  * 使用Apache Tika提取各种格式文档的文本内容
+ *
+ * 解析结果直接写入有上限的缓冲区，达到上限即停止解析，不会先生成完整文本再截取；
+ * 解析过程中每次输出文本都会检查截止时间，超时即中止并保留已提取的文本；
+ * 长时间不输出文本的解析由DocumentExtractionPipeline的看门狗中断。
  */
 @Slf4j
 @Service
 public class DocumentContentExtractor {
 
-    private final Tika tika = new Tika();
+    /**
+     * AutoDetectParser线程安全，所有解析共用一个实例
+     */
+    private final Parser parser = new AutoDetectParser();
+
+    @Value("${attachment.extraction.max-chars:100000}")
+    private int maxChars;
 
     /**
-     * 从输入流中提取文本内容
+     * 从输入流中提取文本内容（不限制解析时间）
      *
      * @param inputStream 文件输入流
      * @param fileName    文件名（用于类型检测）
      * @return 提取的文本内容
      */
     public String extractContent(InputStream inputStream, String fileName) {
-        try {
-            // 使用Tika自动检测文件类型并提取内容
-            String content = tika.parseToString(inputStream);
+        return extract(inputStream, fileName, 0).getContent();
+    }
 
-            // 限制内容长度（避免索引过大的文档）
-            if (content.length() > 100000) {
-                content = content.substring(0, 100000);
-                log.warn("文档内容过长，已截取前100000个字符: {}", fileName);
-            }
+    /**
+     * 从输入流中提取文本内容
+     *
+     * @param inputStream   文件输入流
+     * @param fileName      文件名（用于类型检测）
+     * @param timeoutMillis 解析超时时间，0表示不限制
+     * @return 提取结果
+     */
+    public ExtractionResult extract(InputStream inputStream, String fileName, long timeoutMillis) {
+        WriteOutContentHandler writeOut = new WriteOutContentHandler(maxChars);
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+        DeadlineContentHandler handler = new DeadlineContentHandler(new BodyContentHandler(writeOut), deadline);
+
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
 
+        try {
+            parser.parse(inputStream, handler, metadata, new ParseContext());
+            String content = writeOut.toString();
             log.info("成功提取文档内容: {}, 长度: {}", fileName, content.length());
-            return content;
+            return new ExtractionResult(content, false, false);
 
-        } catch (IOException e) {
-            log.error("读取文件失败: {}", fileName, e);
-            return "";
-        } catch (TikaException e) {
+        } catch (SAXException | TikaException e) {
+            // 部分解析器会把处理器抛出的SAXException包装成TikaException，两者都按原因链判断
+            if (writeOut.isWriteLimitReached(e)) {
+                log.warn("文档内容过长，已截取前{}个字符: {}", maxChars, fileName);
+                return new ExtractionResult(writeOut.toString(), true, false);
+            }
+            if (handler.isTimeout(e)) {
+                log.warn("解析文档超时，保留已提取的{}个字符: {}", writeOut.toString().length(), fileName);
+                return new ExtractionResult(writeOut.toString(), false, true);
+            }
             log.error("解析文档失败: {}", fileName, e);
-            return "";
+            return ExtractionResult.EMPTY;
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.warn("解析文档被中断: {}", fileName);
+            } else {
+                log.error("读取文件失败: {}", fileName, e);
+            }
+            return ExtractionResult.EMPTY;
         } catch (Exception e) {
             log.error("提取文档内容时发生未知错误: {}", fileName, e);
-            return "";
+            return ExtractionResult.EMPTY;
         }
     }
 
@@ -72,4 +116,78 @@ public class DocumentContentExtractor {
                lowerName.endsWith(".xlsx") ||
                lowerName.endsWith(".txt");
     }
+
+    /**
+     * 提取结果
+     */
+    @lombok.Value
+    public static class ExtractionResult {
+
+        static final ExtractionResult EMPTY = new ExtractionResult("", false, false);
+
+        /**
+         * 提取的文本
+         */
+        String content;
+
+        /**
+         * 是否因达到字数上限而截断
+         */
+        boolean truncated;
+
+        /**
+         * 是否因超时而中止
+         */
+        boolean timedOut;
+    }
+
+    /**
+     * 输出文本时检查截止时间的处理器，超时后抛出SAXException中止解析
+     */
+    private static class DeadlineContentHandler extends ContentHandlerDecorator {
+
+        private final long deadline;
+
+        DeadlineContentHandler(BodyContentHandler handler, long deadline) {
+            super(handler);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            checkDeadline();
+            super.characters(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            checkDeadline();
+            super.ignorableWhitespace(ch, start, length);
+        }
+
+        boolean isTimeout(Throwable t) {
+            for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ExtractionTimeoutException timeout && timeout.source == this) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void checkDeadline() throws SAXException {
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                throw new ExtractionTimeoutException(this);
+            }
+        }
+    }
+
+    private static class ExtractionTimeoutException extends SAXException {
+
+        private final transient Object source;
+
+        ExtractionTimeoutException(Object source) {
+            super("文档解析超时");
+            this.source = source;
+        }
+    }
 }
@@ -0,0 +1,250 @@
+package com.student.course.service;
+
+import com.student.common.exception.BusinessException;
+import com.student.course.service.DocumentContentExtractor.ExtractionResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.io.TikaInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文档内容提取流水线
+ *
+ * 固定大小的解析线程池（默认与CPU核数相同）加有界等待队列。队列满时提交方最多等待
+ * submit-timeout-ms，仍无空位则拒绝，避免大量大文档同时解析撑爆堆内存。
+ * 待解析文件以临时文件的形式交给流水线，解析完成后删除。
+ *
+ * 每个解析任务开始执行时由看门狗线程计时，超过 timeout-ms 即取消任务并中断解析线程，
+ * 调用方立即得到空结果；解析线程读取文件时响应中断退出，不依赖解析器输出文本时的截止检查。
+ */
+@Slf4j
+@Service
+public class DocumentExtractionPipeline {
+
+    @Autowired
+    private DocumentContentExtractor contentExtractor;
+
+    @Value("${attachment.extraction.threads:0}")
+    private int threads;
+
+    @Value("${attachment.extraction.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${attachment.extraction.timeout-ms:60000}")
+    private long timeoutMillis;
+
+    @Value("${attachment.extraction.submit-timeout-ms:5000}")
+    private long submitTimeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 解析超时看门狗
+     */
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * 正在解析和排队中的任务总数上限
+     */
+    private Semaphore permits;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder outputChars = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAccumulator maxMillis = new LongAccumulator(Long::max, 0);
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "doc-extract-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "doc-extract-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        watchdog = timer;
+        permits = new Semaphore(poolSize + queueCapacity);
+        log.info("文档提取流水线已启动: threads={}, queueCapacity={}, timeoutMs={}",
+                poolSize, queueCapacity, timeoutMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * 提交一个临时文件进行内容提取，提取结束后删除该文件
+     *
+     * @param spoolFile 临时文件
+     * @param fileName  原始文件名（用于类型检测）
+     * @return 提取的文本内容（解析超时为空字符串）；在看门狗或解析线程上完成，后续的I/O应切换到其他执行器
+     * @throws BusinessException 流水线繁忙且等待超时
+     */
+    public CompletableFuture<String> submit(Path spoolFile, String fileName) {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(submitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            deleteQuietly(spoolFile);
+            throw new BusinessException("文档解析任务繁忙，请稍后重试");
+        }
+
+        submitted.increment();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        executor.execute(new ExtractionTask(spoolFile, fileName, future));
+        return future;
+    }
+
+    /**
+     * 提取指标
+     */
+    public Map<String, Object> getMetrics() {
+        long done = completed.sum();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("poolSize", executor.getPoolSize());
+        metrics.put("activeCount", executor.getActiveCount());
+        metrics.put("queueSize", executor.getQueue().size());
+        metrics.put("submitted", submitted.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("completed", done);
+        metrics.put("failed", failed.sum());
+        metrics.put("truncated", truncated.sum());
+        metrics.put("timedOut", timedOut.sum());
+        metrics.put("inputBytes", inputBytes.sum());
+        metrics.put("outputChars", outputChars.sum());
+        metrics.put("avgMillis", done > 0 ? totalMillis.sum() / done : 0);
+        metrics.put("maxMillis", maxMillis.get());
+        return metrics;
+    }
+
+    private String extract(Path file, String fileName) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream inputStream = TikaInputStream.get(file)) {
+            inputBytes.add(Files.size(file));
+            ExtractionResult result = contentExtractor.extract(inputStream, fileName, timeoutMillis);
+            if (result.isTruncated()) {
+                truncated.increment();
+            }
+            if (result.isTimedOut()) {
+                timedOut.increment();
+            }
+            outputChars.add(result.getContent().length());
+            completed.increment();
+            return result.getContent();
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            throw e;
+        } finally {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            totalMillis.add(elapsed);
+            maxMillis.accumulate(elapsed);
+        }
+    }
+
+    /**
+     * 单个解析任务：开始执行时启动超时计时，超时即取消（中断解析线程），
+     * 临时文件和许可在解析线程真正退出后才释放
+     */
+    private class ExtractionTask extends FutureTask<String> {
+
+        private final Path spoolFile;
+        private final String fileName;
+        private final CompletableFuture<String> result;
+
+        ExtractionTask(Path spoolFile, String fileName, CompletableFuture<String> result) {
+            super(() -> extract(spoolFile, fileName));
+            this.spoolFile = spoolFile;
+            this.fileName = fileName;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            ScheduledFuture<?> timer = timeoutMillis > 0
+                    ? watchdog.schedule(this::expire, timeoutMillis, TimeUnit.MILLISECONDS)
+                    : null;
+            try {
+                super.run();
+            } finally {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                deleteQuietly(spoolFile);
+                permits.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            try {
+                result.complete(get());
+            } catch (CancellationException e) {
+                result.complete("");
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void expire() {
+            if (cancel(true)) {
+                timedOut.increment();
+                log.warn("解析文档超时，已中止: {}, timeoutMs={}", fileName, timeoutMillis);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.student.course.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.student.course.entity.CourseEnrollment;
+import com.student.course.entity.CourseInfo;
+import com.student.course.mapper.CourseEnrollmentMapper;
+import com.student.course.mapper.CourseInfoMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 选课座位预占服务（Redis）
+ *
+ * 选课高峰时所有请求集中在少数热门课程的course_info行上，数据库行锁成为瓶颈。
+ * 本服务将每门课程的剩余座位和已选学生集合预热到Redis，通过Lua脚本原子地完成
+ * "去重 + 扣减座位"，预占成功后再异步批量落库。
+ * 预占时间记录在 course:enrolled:pending:{courseId} 有序集合中，落库后移除；
+ * 超过宽限时间仍未落库的预占（如预占后、投递消息前进程退出）由对账任务释放，不会永久占用座位。
+ */
+@Slf4j
+@Service
+public class EnrollmentSeatService {
+
+    /**
+     * 预占成功
+     */
+    public static final long RESERVED = 1L;
+
+    /**
+     * 座位已满
+     */
+    public static final long FULL = 0L;
+
+    /**
+     * 已选过该课程
+     */
+    public static final long DUPLICATE = -1L;
+
+    /**
+     * 课程座位未预热
+     */
+    public static final long NOT_WARMED = -2L;
+
+    private static final String SEATS_KEY_PREFIX = "course:seats:";
+    private static final String ENROLLED_KEY_PREFIX = "course:enrolled:";
+    private static final String WARMED_COURSES_KEY = "course:seats:warmed";
+    private static final String PENDING_KEY_PREFIX = "course:enrolled:pending:";
+
+    /**
+     * 预占座位：KEYS[1]=剩余座位 KEYS[2]=已选学生集合 KEYS[3]=待落库预占 ARGV[1]=学生ID ARGV[2]=预占时间
+     */
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 1 then return -1 end " +
+            "if tonumber(redis.call('GET', KEYS[1])) <= 0 then return 0 end " +
+            "redis.call('DECR', KEYS[1]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    /**
+     * 释放座位：KEYS[1]=剩余座位 KEYS[2]=已选学生集合 KEYS[3]=待落库预占 ARGV[1]=学生ID
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREM', KEYS[3], ARGV[1]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "if redis.call('SREM', KEYS[2], ARGV[1]) == 1 then " +
+            "  redis.call('INCR', KEYS[1]) return 1 " +
+            "end " +
+            "return 0", Long.class);
+
+    /**
+     * 释放超过宽限时间仍未落库的预占：KEYS[1]=剩余座位 KEYS[2]=已选学生集合 KEYS[3]=待落库预占
+     * ARGV[1]=学生ID ARGV[2]=预占时间上限；期间学生退课后重新预占（预占时间更新）时不释放
+     */
+    private static final DefaultRedisScript<Long> RELEASE_STALE_SCRIPT = new DefaultRedisScript<>(
+            "local reservedAt = redis.call('ZSCORE', KEYS[3], ARGV[1]) " +
+            "if not reservedAt or tonumber(reservedAt) > tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('ZREM', KEYS[3], ARGV[1]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "if redis.call('SREM', KEYS[2], ARGV[1]) == 1 then " +
+            "  redis.call('INCR', KEYS[1]) return 1 " +
+            "end " +
+            "return 0", Long.class);
+
+    /**
+     * 预热座位（仅在未预热时写入）：KEYS[1]=剩余座位 KEYS[2]=已选学生集合 KEYS[3]=已预热课程集合
+     * KEYS[4]=待落库预占 ARGV[1]=课程ID ARGV[2]=剩余座位 ARGV[3..]=已选学生ID
+     */
+    private static final DefaultRedisScript<Long> WARM_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('DEL', KEYS[2], KEYS[4]) " +
+            "for i = 3, #ARGV do redis.call('SADD', KEYS[2], ARGV[i]) end " +
+            "redis.call('SET', KEYS[1], ARGV[2]) " +
+            "redis.call('SADD', KEYS[3], ARGV[1]) " +
+            "return 1", Long.class);
+
+    /**
+     * 补录已落库但不在已选集合中的学生：KEYS[1]=剩余座位 KEYS[2]=已选学生集合 ARGV=学生ID
+     * 只增不删，尚未落库的预占保持不变；每补录一人扣减一个座位（不小于0），返回补录人数
+     */
+    private static final DefaultRedisScript<Long> MERGE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "local added = 0 " +
+            "for i = 1, #ARGV do added = added + redis.call('SADD', KEYS[2], ARGV[i]) end " +
+            "if added > 0 then " +
+            "  local seats = redis.call('DECRBY', KEYS[1], added) " +
+            "  if seats < 0 then redis.call('SET', KEYS[1], 0) end " +
+            "end " +
+            "return added", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CourseInfoMapper courseInfoMapper;
+
+    @Autowired
+    private CourseEnrollmentMapper enrollmentMapper;
+
+    /**
+     * 原子预占座位
+     *
+     * @return RESERVED / FULL / DUPLICATE / NOT_WARMED
+     */
+    public long reserve(Long courseId, Long studentId) {
+        Long result = stringRedisTemplate.execute(RESERVE_SCRIPT,
+                Arrays.asList(seatsKey(courseId), enrolledKey(courseId), pendingKey(courseId)),
+                String.valueOf(studentId), String.valueOf(System.currentTimeMillis()));
+        return result == null ? NOT_WARMED : result;
+    }
+
+    /**
+     * 释放座位（退课或落库失败时调用）
+     */
+    public void release(Long courseId, Long studentId) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT,
+                Arrays.asList(seatsKey(courseId), enrolledKey(courseId), pendingKey(courseId)),
+                String.valueOf(studentId));
+    }
+
+    /**
+     * 选课记录已落库，移除预占时间记录
+     */
+    public void confirmPersisted(Long courseId, Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().remove(pendingKey(courseId),
+                studentIds.stream().map(String::valueOf).toArray());
+    }
+
+    /**
+     * 释放超过宽限时间仍未落库的预占（选课消息丢失时座位不会永久占用）
+     *
+     * 预占时间早于宽限时间的学生中，已有选课记录的只移除预占时间记录，其余释放座位
+     *
+     * @param graceMillis 预占后允许的最长落库延迟
+     * @return 释放的座位数
+     */
+    public long releaseUnpersisted(Long courseId, long graceMillis) {
+        long cutoff = System.currentTimeMillis() - graceMillis;
+        Set<String> stale = stringRedisTemplate.opsForZSet().rangeByScore(pendingKey(courseId), 0, cutoff);
+        if (stale == null || stale.isEmpty()) {
+            return 0;
+        }
+
+        LambdaQueryWrapper<CourseEnrollment> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(CourseEnrollment::getStudentId)
+               .eq(CourseEnrollment::getCourseId, courseId)
+               .in(CourseEnrollment::getStudentId, stale.stream().map(Long::valueOf).toList())
+               .eq(CourseEnrollment::getStatus, 1);
+        Set<Long> persisted = enrollmentMapper.selectList(wrapper).stream()
+                .map(CourseEnrollment::getStudentId)
+                .collect(Collectors.toSet());
+        confirmPersisted(courseId, persisted);
+
+        long released = 0;
+        List<String> keys = Arrays.asList(seatsKey(courseId), enrolledKey(courseId), pendingKey(courseId));
+        for (String studentId : stale) {
+            if (persisted.contains(Long.valueOf(studentId))) {
+                continue;
+            }
+            Long result = stringRedisTemplate.execute(RELEASE_STALE_SCRIPT, keys, studentId, String.valueOf(cutoff));
+            if (result != null && result == 1L) {
+                released++;
+                log.warn("释放超时未落库的预占座位: courseId={}, studentId={}", courseId, studentId);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 预热单门课程的座位与已选学生集合
+     *
+     * @param courseId 课程ID
+     * @param force    是否覆盖已有的预热数据
+     * @return 是否写入了预热数据
+     */
+    public boolean warmUp(Long courseId, boolean force) {
+        CourseInfo course = courseInfoMapper.selectById(courseId);
+        if (course == null) {
+            return false;
+        }
+        return warmUp(course, force);
+    }
+
+    /**
+     * 预热某学期全部启用课程
+     *
+     * @return 本次预热的课程数量
+     */
+    public int warmUpSemester(String semester, boolean force) {
+        LambdaQueryWrapper<CourseInfo> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(CourseInfo::getSemester, semester)
+               .ne(CourseInfo::getStatus, 0);
+        List<CourseInfo> courses = courseInfoMapper.selectList(wrapper);
+
+        int warmed = 0;
+        for (CourseInfo course : courses) {
+            if (warmUp(course, force)) {
+                warmed++;
+            }
+        }
+        log.info("学期选课座位预热完成: semester={}, courses={}, warmed={}", semester, courses.size(), warmed);
+        return warmed;
+    }
+
+    /**
+     * 把数据库中已有、Redis已选集合中缺少的选课记录补进集合（增量修正，不覆盖尚未落库的预占）
+     *
+     * @return 补录的学生数
+     */
+    public long mergePersisted(Long courseId) {
+        LambdaQueryWrapper<CourseEnrollment> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(CourseEnrollment::getStudentId)
+               .eq(CourseEnrollment::getCourseId, courseId)
+               .eq(CourseEnrollment::getStatus, 1);
+        List<CourseEnrollment> enrollments = enrollmentMapper.selectList(wrapper);
+        if (enrollments.isEmpty()) {
+            return 0;
+        }
+
+        Object[] studentIds = enrollments.stream()
+                .map(enrollment -> String.valueOf(enrollment.getStudentId()))
+                .toArray();
+        Long added = stringRedisTemplate.execute(MERGE_SCRIPT,
+                Arrays.asList(seatsKey(courseId), enrolledKey(courseId)), studentIds);
+        return added == null ? 0 : added;
+    }
+
+    /**
+     * 获取已预热的课程ID
+     */
+    public Set<Long> getWarmedCourseIds() {
+        Set<String> members = stringRedisTemplate.opsForSet().members(WARMED_COURSES_KEY);
+        if (members == null) {
+            return new HashSet<>();
+        }
+        return members.stream().map(Long::valueOf).collect(Collectors.toSet());
+    }
+
+    /**
+     * 获取Redis中记录的已选人数
+     */
+    public long getReservedCount(Long courseId) {
+        Long size = stringRedisTemplate.opsForSet().size(enrolledKey(courseId));
+        return size == null ? 0 : size;
+    }
+
+    private boolean warmUp(CourseInfo course, boolean force) {
+        Long courseId = course.getId();
+        if (force) {
+            stringRedisTemplate.delete(Arrays.asList(seatsKey(courseId), enrolledKey(courseId), pendingKey(courseId)));
+        }
+
+        LambdaQueryWrapper<CourseEnrollment> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(CourseEnrollment::getStudentId)
+               .eq(CourseEnrollment::getCourseId, courseId)
+               .eq(CourseEnrollment::getStatus, 1);
+        List<CourseEnrollment> enrollments = enrollmentMapper.selectList(wrapper);
+
+        int max = course.getMaxStudents() == null ? Integer.MAX_VALUE : course.getMaxStudents();
+        int remaining = Math.max(0, max - enrollments.size());
+        // 停用课程不开放座位
+        if (course.getStatus() != null && course.getStatus() == 0) {
+            remaining = 0;
+        }
+
+        List<String> args = new ArrayList<>(enrollments.size() + 2);
+        args.add(String.valueOf(courseId));
+        args.add(String.valueOf(remaining));
+        for (CourseEnrollment enrollment : enrollments) {
+            args.add(String.valueOf(enrollment.getStudentId()));
+        }
+
+        Long result = stringRedisTemplate.execute(WARM_SCRIPT,
+                Arrays.asList(seatsKey(courseId), enrolledKey(courseId), WARMED_COURSES_KEY, pendingKey(courseId)),
+                args.toArray());
+        boolean warmed = result != null && result == 1L;
+        if (warmed) {
+            log.debug("课程座位预热: courseId={}, remaining={}, enrolled={}", courseId, remaining, enrollments.size());
+        }
+        return warmed;
+    }
+
+    private String seatsKey(Long courseId) {
+        return SEATS_KEY_PREFIX + courseId;
+    }
+
+    private String enrolledKey(Long courseId) {
+        return ENROLLED_KEY_PREFIX + courseId;
+    }
+
+    private String pendingKey(Long courseId) {
+        return PENDING_KEY_PREFIX + courseId;
+    }
+}
@@ -0,0 +1,278 @@
+package com.student.course.service;
+
+import com.student.course.entity.CourseNotification;
+import com.student.course.mapper.CourseNotificationMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 定时通知调度服务
+ *
+ * 待发送的定时通知按优先级放入Redis有序集合 notification:dispatch:{priority}，分数为计划发送时间。
+ * 各实例每秒用Lua脚本原子地取出到期的通知（先紧急、再重要、再普通），取出即从集合删除，
+ * 同一条通知只会被一个实例取到；投递前再用 send_status 0->1 的条件更新认领一次，
+ * Redis数据丢失后从数据库重新装载也不会重复发送。
+ * 投递到队列后记录 queued_time，之后由通知监听器结束发送中状态（高峰时排队和分发可能持续很久）；
+ * 认领后、投递到队列前进程退出的通知 queued_time 为空，由定时检查在超过 stuck-minutes 后恢复为待发送并重新登记。
+ */
+@Slf4j
+@Service
+public class NotificationDispatchService {
+
+    private static final String DUE_KEY_PREFIX = "notification:dispatch:";
+
+    /**
+     * 优先级从高到低：2=紧急 1=重要 0=普通
+     */
+    private static final int[] PRIORITIES = {2, 1, 0};
+
+    /**
+     * 原子取出到期的通知：KEYS=各优先级集合（从高到低） ARGV[1]=当前时间 ARGV[2]=最多取出条数
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local result = {} " +
+            "local remaining = tonumber(ARGV[2]) " +
+            "for _, key in ipairs(KEYS) do " +
+            "  if remaining <= 0 then break end " +
+            "  local ids = redis.call('ZRANGEBYSCORE', key, '-inf', ARGV[1], 'LIMIT', 0, remaining) " +
+            "  if #ids > 0 then " +
+            "    redis.call('ZREM', key, unpack(ids)) " +
+            "    for _, id in ipairs(ids) do result[#result + 1] = id end " +
+            "    remaining = remaining - #ids " +
+            "  end " +
+            "end " +
+            "return result", List.class);
+
+    @Autowired
+    private CourseNotificationMapper notificationMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.exchange.course}")
+    private String courseExchange;
+
+    @Value("${rabbitmq.routing-key.notification}")
+    private String notificationRoutingKey;
+
+    @Value("${notification.dispatch.batch-size:50}")
+    private int batchSize;
+
+    @Value("${notification.dispatch.retry-delay-ms:30000}")
+    private long retryDelayMs;
+
+    @Value("${notification.dispatch.reload-page-size:500}")
+    private int reloadPageSize;
+
+    @Value("${notification.dispatch.stuck-minutes:10}")
+    private long stuckMinutes;
+
+    /**
+     * 登记定时通知（事务提交后写入Redis）
+     */
+    public void schedule(CourseNotification notification) {
+        Long id = notification.getId();
+        int priority = normalizePriority(notification.getPriority());
+        long dueAt = toEpochMillis(notification.getScheduledTime());
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.opsForZSet().add(dueKey(priority), id.toString(), dueAt);
+            } catch (Exception e) {
+                // 定期从数据库重新装载时会补上
+                log.warn("登记定时通知失败，等待重新装载: notificationId={}", id, e);
+            }
+        });
+    }
+
+    /**
+     * 取出到期的通知并投递到通知队列
+     *
+     * @return 本次投递的通知数
+     */
+    public int dispatchDue() {
+        List<String> keys = new ArrayList<>(PRIORITIES.length);
+        for (int priority : PRIORITIES) {
+            keys.add(dueKey(priority));
+        }
+        @SuppressWarnings("unchecked")
+        List<String> ids = stringRedisTemplate.execute(CLAIM_SCRIPT, keys,
+                String.valueOf(System.currentTimeMillis()), String.valueOf(batchSize));
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        int dispatched = 0;
+        for (String id : ids) {
+            if (dispatch(Long.valueOf(id))) {
+                dispatched++;
+            }
+        }
+        log.info("定时通知已投递: claimed={}, dispatched={}", ids.size(), dispatched);
+        return dispatched;
+    }
+
+    /**
+     * 从数据库重新装载全部待发送的定时通知（启动时及定期执行，补上Redis中丢失的登记）
+     *
+     * @return 装载的通知数
+     */
+    public int reload() {
+        int loaded = 0;
+        long afterId = 0;
+        while (true) {
+            List<CourseNotification> page = notificationMapper.selectPendingScheduled(afterId, reloadPageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            // 已登记的不覆盖（可能是投递失败后推迟的重试时间）
+            Map<Integer, Set<TypedTuple<String>>> byPriority = new HashMap<>();
+            for (CourseNotification notification : page) {
+                byPriority.computeIfAbsent(normalizePriority(notification.getPriority()), p -> new HashSet<>())
+                        .add(new DefaultTypedTuple<>(notification.getId().toString(),
+                                (double) toEpochMillis(notification.getScheduledTime())));
+            }
+            byPriority.forEach((priority, tuples) ->
+                    stringRedisTemplate.opsForZSet().addIfAbsent(dueKey(priority), tuples));
+
+            loaded += page.size();
+            afterId = page.get(page.size() - 1).getId();
+            if (page.size() < reloadPageSize) {
+                break;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 恢复认领后长时间未投递到队列的定时通知：改回待发送并立即登记到期
+     *
+     * @return 恢复的通知数
+     */
+    public int requeueStuck() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(stuckMinutes);
+        int requeued = 0;
+        long afterId = 0;
+        while (true) {
+            List<CourseNotification> page = notificationMapper.selectStuckSending(before, afterId, reloadPageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (CourseNotification notification : page) {
+                if (notificationMapper.releaseStuckClaim(notification.getId(), before) == 0) {
+                    continue;
+                }
+                stringRedisTemplate.opsForZSet().add(dueKey(normalizePriority(notification.getPriority())),
+                        notification.getId().toString(), System.currentTimeMillis());
+                requeued++;
+                log.warn("定时通知认领后未投递到队列，已重新登记: notificationId={}", notification.getId());
+            }
+            afterId = page.get(page.size() - 1).getId();
+            if (page.size() < reloadPageSize) {
+                break;
+            }
+        }
+        return requeued;
+    }
+
+    /**
+     * 各优先级待发送的定时通知数
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        for (int priority : PRIORITIES) {
+            Long total = stringRedisTemplate.opsForZSet().zCard(dueKey(priority));
+            Long due = stringRedisTemplate.opsForZSet().count(dueKey(priority), 0, System.currentTimeMillis());
+            Map<String, Object> level = new HashMap<>();
+            level.put("pending", total == null ? 0 : total);
+            level.put("due", due == null ? 0 : due);
+            statistics.put("priority" + priority, level);
+        }
+        return statistics;
+    }
+
+    private boolean dispatch(Long notificationId) {
+        if (notificationMapper.claimForSending(notificationId) == 0) {
+            log.debug("定时通知已被认领或已取消: notificationId={}", notificationId);
+            return false;
+        }
+
+        CourseNotification notification = notificationMapper.selectById(notificationId);
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("notificationId", notification.getId());
+            message.put("courseId", notification.getCourseId());
+            message.put("targetType", notification.getTargetType());
+            message.put("sendMethod", notification.getSendMethod());
+            rabbitTemplate.convertAndSend(courseExchange, notificationRoutingKey, message);
+        } catch (Exception e) {
+            log.error("定时通知投递失败，稍后重试: notificationId={}", notificationId, e);
+            notificationMapper.releaseClaim(notificationId);
+            stringRedisTemplate.opsForZSet().add(dueKey(normalizePriority(notification.getPriority())),
+                    notificationId.toString(), System.currentTimeMillis() + retryDelayMs);
+            return false;
+        }
+
+        try {
+            notificationMapper.markQueued(notificationId);
+        } catch (Exception e) {
+            // 消息已在队列中，不能再释放认领；遗留检查会把它当作未投递重新发送一次
+            log.error("记录定时通知已投递失败: notificationId={}", notificationId, e);
+        }
+        log.info("定时通知已发送到队列: notificationId={}, priority={}, scheduledTime={}",
+                notificationId, notification.getPriority(), notification.getScheduledTime());
+        return true;
+    }
+
+    private int normalizePriority(Integer priority) {
+        if (priority == null || priority < 0) {
+            return 0;
+        }
+        return Math.min(priority, 2);
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        if (time == null) {
+            return System.currentTimeMillis();
+        }
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String dueKey(int priority) {
+        return DUE_KEY_PREFIX + priority;
+    }
+}
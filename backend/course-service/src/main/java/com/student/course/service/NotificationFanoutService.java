@@ -0,0 +1,221 @@
+package com.student.course.service;
+
+import com.student.course.cache.NotificationUnreadCounter;
+import com.student.course.entity.CourseNotification;
+import com.student.course.entity.NotificationReceive;
+import com.student.course.mapper.NotificationReceiveMapper;
+import com.student.course.websocket.NotificationWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通知批量分发服务
+ *
+ * 将目标用户按ID升序切分成块，每块在一个事务内用多行INSERT写入notification_receive，
+ * 每块提交后把已处理到的用户ID记录到Redis。分发失败重试或消费者崩溃后消息重新投递时，从上次记录的位置继续，
+ * 而不是从头开始；已提交但未记录进度的块再次处理时只写入缺少的接收记录，未读计数也只为新写入的用户增加。
+ * 写入速度受全集群共享的每秒行数额度限制，大批量通知集中发送时不会占满数据库写入能力。
+ */
+@Slf4j
+@Service
+public class NotificationFanoutService {
+
+    private static final String PROGRESS_KEY_PREFIX = "notification:fanout:";
+    private static final String FIELD_CURSOR = "cursor";
+    private static final String FIELD_COUNT = "count";
+    private static final String BUDGET_KEY_PREFIX = "notification:fanout:budget:";
+
+    /**
+     * 占用当前秒的写入额度：KEYS[1]=当前秒已用行数 ARGV[1]=本次行数 ARGV[2]=每秒额度，额度不足返回0
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_BUDGET_SCRIPT = new DefaultRedisScript<>(
+            "local used = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if used + tonumber(ARGV[1]) > tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+            "redis.call('PEXPIRE', KEYS[1], 2000) " +
+            "return 1", Long.class);
+
+    @Autowired
+    private NotificationReceiveMapper receiveMapper;
+
+    @Autowired
+    private NotificationWebSocketHandler webSocketHandler;
+
+    @Autowired
+    private NotificationUnreadCounter unreadCounter;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${notification.fanout.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${notification.fanout.progress-ttl-hours:24}")
+    private long progressTtlHours;
+
+    @Value("${notification.fanout.rows-per-second:2000}")
+    private int rowsPerSecond;
+
+    /**
+     * 向目标用户分发通知
+     *
+     * @param notification  通知
+     * @param targetUserIds 目标用户ID
+     * @param sendMethod    推送方式
+     * @return 已分发的用户数量（包含之前中断前已完成的部分）
+     */
+    public int fanOut(CourseNotification notification, List<Long> targetUserIds, String sendMethod) {
+        Long notificationId = notification.getId();
+        String progressKey = PROGRESS_KEY_PREFIX + notificationId;
+
+        List<Long> userIds = targetUserIds.stream().distinct().sorted().toList();
+
+        // 读取上次中断时的进度
+        long cursor = Long.MIN_VALUE;
+        int processed = 0;
+        Object savedCursor = stringRedisTemplate.opsForHash().get(progressKey, FIELD_CURSOR);
+        if (savedCursor != null) {
+            cursor = Long.parseLong(savedCursor.toString());
+            Object savedCount = stringRedisTemplate.opsForHash().get(progressKey, FIELD_COUNT);
+            processed = savedCount == null ? 0 : Integer.parseInt(savedCount.toString());
+            log.info("通知分发从断点继续: notificationId={}, cursor={}, processed={}",
+                    notificationId, cursor, processed);
+        }
+
+        boolean pushWebSocket = sendMethod != null && sendMethod.contains("websocket");
+        Map<String, Object> wsMessage = pushWebSocket ? buildWebSocketMessage(notification) : null;
+
+        // 限速时每块不超过每秒额度，保证一块总能在一秒内拿到额度
+        int size = rowsPerSecond > 0 ? Math.min(chunkSize, rowsPerSecond) : chunkSize;
+        int start = firstIndexAfter(userIds, cursor);
+        for (int from = start; from < userIds.size(); from += size) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + size, userIds.size()));
+            acquireBudget(chunk.size());
+
+            List<Long> inserted = transactionTemplate.execute(status -> insertMissing(notificationId, chunk, sendMethod));
+            unreadCounter.onReceived(inserted, inserted.size());
+
+            processed += chunk.size();
+            Map<String, String> progress = new HashMap<>();
+            progress.put(FIELD_CURSOR, String.valueOf(chunk.get(chunk.size() - 1)));
+            progress.put(FIELD_COUNT, String.valueOf(processed));
+            stringRedisTemplate.opsForHash().putAll(progressKey, progress);
+            stringRedisTemplate.expire(progressKey, progressTtlHours, TimeUnit.HOURS);
+
+            if (pushWebSocket) {
+                webSocketHandler.sendNotificationToUsers(chunk, wsMessage);
+            }
+
+            log.debug("通知分发进度: notificationId={}, processed={}/{}", notificationId, processed, userIds.size());
+        }
+
+        stringRedisTemplate.delete(progressKey);
+        return processed;
+    }
+
+    /**
+     * 等待当前秒的写入额度（各实例共享），Redis不可用时不限速
+     */
+    private void acquireBudget(int rows) {
+        if (rowsPerSecond <= 0) {
+            return;
+        }
+        while (true) {
+            long second = System.currentTimeMillis() / 1000;
+            Long acquired;
+            try {
+                acquired = stringRedisTemplate.execute(ACQUIRE_BUDGET_SCRIPT,
+                        List.of(BUDGET_KEY_PREFIX + second), String.valueOf(rows), String.valueOf(rowsPerSecond));
+            } catch (Exception e) {
+                log.warn("获取通知分发额度失败，本块不限速", e);
+                return;
+            }
+            if (acquired != null && acquired == 1) {
+                return;
+            }
+            try {
+                Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待通知分发额度时被中断", e);
+            }
+        }
+    }
+
+    /**
+     * 二分查找第一个大于cursor的用户下标
+     */
+    private int firstIndexAfter(List<Long> sortedUserIds, long cursor) {
+        int low = 0;
+        int high = sortedUserIds.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedUserIds.get(mid) <= cursor) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 写入本块中还没有接收记录的用户
+     *
+     * @return 本次新写入的用户ID
+     */
+    private List<Long> insertMissing(Long notificationId, List<Long> chunk, String sendMethod) {
+        Set<Long> existing = new HashSet<>(receiveMapper.selectReceivedUserIds(notificationId, chunk));
+        List<Long> missing = existing.isEmpty()
+                ? chunk
+                : chunk.stream().filter(userId -> !existing.contains(userId)).toList();
+        if (!missing.isEmpty()) {
+            receiveMapper.insertBatchSkipDuplicate(buildReceives(notificationId, missing, sendMethod));
+        }
+        return missing;
+    }
+
+    private List<NotificationReceive> buildReceives(Long notificationId, List<Long> userIds, String receiveMethod) {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationReceive> receives = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            NotificationReceive receive = new NotificationReceive();
+            receive.setNotificationId(notificationId);
+            receive.setUserId(userId);
+            receive.setReceiveMethod(receiveMethod);
+            receive.setIsRead(0);
+            receive.setReceiveTime(now);
+            receive.setStatus(1);
+            receives.add(receive);
+        }
+        return receives;
+    }
+
+    private Map<String, Object> buildWebSocketMessage(CourseNotification notification) {
+        Map<String, Object> wsMessage = new HashMap<>();
+        wsMessage.put("notificationId", notification.getId());
+        wsMessage.put("title", notification.getTitle());
+        wsMessage.put("content", notification.getContent());
+        wsMessage.put("notificationType", notification.getNotificationType());
+        wsMessage.put("priority", notification.getPriority());
+        wsMessage.put("courseId", notification.getCourseId());
+        return wsMessage;
+    }
+}
@@ -3,13 +3,25 @@ package com.student.course.service;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.student.common.context.UserContext;
+import com.student.common.context.UserContextHolder;
 import com.student.common.exception.BusinessException;
+import com.student.common.result.CursorPage;
+import com.student.common.util.PageCursor;
+import com.student.course.cache.NotificationBodyCache;
+import com.student.course.cache.NotificationBodyCache.NotificationBody;
+import com.student.course.cache.NotificationUnreadCounter;
+import com.student.course.dto.NotificationStatisticsDTO;
 import com.student.course.entity.CourseEnrollment;
 import com.student.course.entity.CourseNotification;
 import com.student.course.entity.NotificationReceive;
 import com.student.course.mapper.CourseEnrollmentMapper;
 import com.student.course.mapper.CourseNotificationMapper;
 import com.student.course.mapper.NotificationReceiveMapper;
+import com.student.course.vo.UserNotificationVO;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +29,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -41,12 +54,39 @@ public class NotificationService {
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
+    @Autowired
+    private NotificationBodyCache notificationBodyCache;
+
+    @Autowired
+    private NotificationUnreadCounter unreadCounter;
+
+    @Autowired
+    private NotificationDispatchService dispatchService;
+
     @Value("${rabbitmq.exchange.course}")
     private String courseExchange;
 
     @Value("${rabbitmq.routing-key.notification}")
     private String notificationRoutingKey;
 
+    @Value("${notification.statistics.cache-ttl-seconds:30}")
+    private long statisticsCacheTtlSeconds;
+
+    /**
+     * 通知统计结果缓存（cache-ttl-seconds为0时不缓存）
+     */
+    private Cache<String, Map<String, Object>> statisticsCache;
+
+    @PostConstruct
+    public void initStatisticsCache() {
+        if (statisticsCacheTtlSeconds > 0) {
+            statisticsCache = Caffeine.newBuilder()
+                    .maximumSize(1000)
+                    .expireAfterWrite(Duration.ofSeconds(statisticsCacheTtlSeconds))
+                    .build();
+        }
+    }
+
     /**
      * 创建并发送通知
      */
@@ -65,7 +105,7 @@ public class NotificationService {
 
         notificationMapper.insert(notification);
 
-        // 2. 如果是立即发送，发送消息到RabbitMQ；如果是定时发送，由定时任务处理
+        // 2. 如果是立即发送，发送消息到RabbitMQ；如果是定时发送，登记到调度队列到期投递
         if (notification.getIsScheduled() == 0) {
             try {
                 Map<String, Object> message = new HashMap<>();
@@ -78,6 +118,7 @@ public class NotificationService {
 
                 // 更新发送状态为发送中
                 notification.setSendStatus(1);
+                notification.setQueuedTime(LocalDateTime.now());
                 notificationMapper.updateById(notification);
 
                 log.info("通知消息已发送到队列: notificationId={}", notification.getId());
@@ -88,6 +129,7 @@ public class NotificationService {
                 throw new BusinessException("发送通知失败");
             }
         } else {
+            dispatchService.schedule(notification);
             log.info("定时通知已创建: notificationId={}, scheduledTime={}",
                     notification.getId(), notification.getScheduledTime());
         }
@@ -115,48 +157,52 @@ public class NotificationService {
     /**
      * 获取用户的通知列表（分页）
      */
-    public IPage<Map<String, Object>> getUserNotifications(Long userId, Integer isRead, Integer page, Integer size) {
-        Page<NotificationReceive> pageParam = new Page<>(page, size);
-        LambdaQueryWrapper<NotificationReceive> wrapper = new LambdaQueryWrapper<>();
-
-        wrapper.eq(NotificationReceive::getUserId, userId)
-               .eq(NotificationReceive::getStatus, 1);
+    public IPage<UserNotificationVO> getUserNotifications(Long userId, Integer isRead, Integer page, Integer size) {
+        Page<UserNotificationVO> pageParam = new Page<>(page, size);
+        IPage<UserNotificationVO> resultPage = receiveMapper.selectUserNotificationPage(pageParam, userId, isRead);
+        fillContent(resultPage.getRecords());
+        return resultPage;
+    }
 
-        if (isRead != null) {
-            wrapper.eq(NotificationReceive::getIsRead, isRead);
+    /**
+     * 获取用户的通知列表（游标分页，按接收时间倒序）
+     *
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param withTotal 是否同时返回总数（额外执行一次COUNT）
+     */
+    public CursorPage<UserNotificationVO> getUserNotificationsByCursor(Long userId, Integer isRead, String cursor,
+                                                                      Integer size, boolean withTotal) {
+        int pageSize = CursorPage.normalizeSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        List<UserNotificationVO> rows = receiveMapper.selectUserNotificationsAfter(userId, isRead,
+                after == null ? null : after.getSortValueAsDateTime(),
+                after == null ? null : after.getId(),
+                pageSize + 1);
+
+        CursorPage<UserNotificationVO> resultPage =
+                CursorPage.of(rows, pageSize, UserNotificationVO::getReceiveTime, UserNotificationVO::getId);
+        fillContent(resultPage.getRecords());
+        if (withTotal) {
+            resultPage.setTotal(receiveMapper.countUserNotifications(userId, isRead));
         }
+        return resultPage;
+    }
 
-        wrapper.orderByDesc(NotificationReceive::getReceiveTime);
-
-        IPage<NotificationReceive> receivePage = receiveMapper.selectPage(pageParam, wrapper);
-
-        // 组装通知详情
-        Page<Map<String, Object>> resultPage = new Page<>(page, size);
-        resultPage.setTotal(receivePage.getTotal());
-
-        List<Map<String, Object>> records = receivePage.getRecords().stream().map(receive -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("id", receive.getId());
-            map.put("notificationId", receive.getNotificationId());
-            map.put("isRead", receive.getIsRead());
-            map.put("readTime", receive.getReadTime());
-            map.put("receiveTime", receive.getReceiveTime());
-
-            // 查询通知详情
-            CourseNotification notification = notificationMapper.selectById(receive.getNotificationId());
-            if (notification != null) {
-                map.put("title", notification.getTitle());
-                map.put("content", notification.getContent());
-                map.put("notificationType", notification.getNotificationType());
-                map.put("priority", notification.getPriority());
-                map.put("courseId", notification.getCourseId());
+    /**
+     * 通知正文从本地缓存补齐，未命中的一次批量加载
+     */
+    private void fillContent(List<UserNotificationVO> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<Long, NotificationBody> bodies = notificationBodyCache.getAll(
+                records.stream().map(UserNotificationVO::getNotificationId).toList());
+        for (UserNotificationVO record : records) {
+            NotificationBody body = bodies.get(record.getNotificationId());
+            if (body != null) {
+                record.setContent(body.getContent());
             }
-
-            return map;
-        }).toList();
-
-        resultPage.setRecords(records);
-        return resultPage;
+        }
     }
 
     /**
@@ -186,6 +232,7 @@ public class NotificationService {
 
             // 2. 原子性增加通知的已读数量（避免"先查后改"）
             notificationMapper.incrementReadCount(receive.getNotificationId());
+            unreadCounter.onRead(userId);
 
             log.info("通知已标记为已读: receiveId={}, userId={}, notificationId={}",
                     receiveId, userId, receive.getNotificationId());
@@ -214,6 +261,7 @@ public class NotificationService {
 
         if (unreadCount == 0) {
             log.info("用户没有未读通知: userId={}", userId);
+            unreadCounter.onAllRead(userId);
             return;
         }
 
@@ -230,17 +278,17 @@ public class NotificationService {
 
         // 3. 批量更新 course_notification 的 read_count（单条SQL，使用子查询统计）
         int updatedNotifications = notificationMapper.batchIncrementReadCountByUserId(userId);
+        unreadCounter.onAllRead(userId);
 
         log.info("批量标记已读成功: userId={}, unreadCount={}, updatedRows={}, updatedNotifications={}",
                 userId, unreadCount, updatedRows, updatedNotifications);
     }
 
     /**
-     * 获取未读通知数量
+     * 获取未读通知数量（Redis计数，未初始化时从数据库加载）
      */
     public Long getUnreadCount(Long userId) {
-        // 使用自定义方法查询，避免数据权限拦截器冲突
-        return receiveMapper.countUnreadByUserId(userId);
+        return unreadCounter.get(userId);
     }
 
     /**
@@ -256,6 +304,7 @@ public class NotificationService {
         // 软删除
         notification.setStatus(0);
         notificationMapper.updateById(notification);
+        notificationBodyCache.evict(id);
 
         log.info("通知已删除: id={}", id);
     }
@@ -289,6 +338,7 @@ public class NotificationService {
         receive.setStatus(1);
 
         receiveMapper.insert(receive);
+        unreadCounter.onReceived(List.of(userId), 1);
     }
 
     /**
@@ -299,7 +349,9 @@ public class NotificationService {
         CourseNotification notification = notificationMapper.selectById(notificationId);
         if (notification != null) {
             notification.setSendStatus(sendStatus);
-            notification.setSendCount(sendCount);
+            if (sendCount != null) {
+                notification.setSendCount(sendCount);
+            }
             notification.setSendTime(LocalDateTime.now());
             notificationMapper.updateById(notification);
         }
@@ -307,86 +359,43 @@ public class NotificationService {
 
     /**
      * 获取通知统计信息
+     *
+     * 一次条件聚合查询得到全部统计数字；结果按（数据权限范围, 课程, 时间范围）短时缓存，
+     * 仪表盘反复刷新时不必每次扫描整学期的通知
      */
     public Map<String, Object> getNotificationStatistics(Long courseId, String startDate, String endDate) {
-        Map<String, Object> statistics = new HashMap<>();
-
-        // 构建查询条件
-        LambdaQueryWrapper<CourseNotification> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(CourseNotification::getStatus, 1);
-
-        if (courseId != null) {
-            wrapper.eq(CourseNotification::getCourseId, courseId);
-        }
-
-        if (startDate != null && !startDate.isEmpty()) {
-            wrapper.ge(CourseNotification::getCreateTime, startDate);
+        if (statisticsCache == null) {
+            return buildNotificationStatistics(courseId, startDate, endDate);
         }
+        String key = statisticsCacheKey(courseId, startDate, endDate);
+        return statisticsCache.get(key, k -> buildNotificationStatistics(courseId, startDate, endDate));
+    }
 
-        if (endDate != null && !endDate.isEmpty()) {
-            wrapper.le(CourseNotification::getCreateTime, endDate);
-        }
+    private Map<String, Object> buildNotificationStatistics(Long courseId, String startDate, String endDate) {
+        NotificationStatisticsDTO dto = notificationMapper.getStatistics(courseId, startDate, endDate);
 
-        // 总通知数量
-        Long totalCount = notificationMapper.selectCount(wrapper);
-        statistics.put("totalCount", totalCount);
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalCount", dto.getTotalCount());
 
         // 按类型统计
         Map<String, Long> typeStats = new HashMap<>();
-        for (String type : List.of("announcement", "homework", "exam", "cancel")) {
-            LambdaQueryWrapper<CourseNotification> typeWrapper = new LambdaQueryWrapper<>();
-            typeWrapper.eq(CourseNotification::getStatus, 1)
-                       .eq(CourseNotification::getNotificationType, type);
-            if (courseId != null) {
-                typeWrapper.eq(CourseNotification::getCourseId, courseId);
-            }
-            if (startDate != null && !startDate.isEmpty()) {
-                typeWrapper.ge(CourseNotification::getCreateTime, startDate);
-            }
-            if (endDate != null && !endDate.isEmpty()) {
-                typeWrapper.le(CourseNotification::getCreateTime, endDate);
-            }
-            Long count = notificationMapper.selectCount(typeWrapper);
-            typeStats.put(type, count);
-        }
+        typeStats.put("announcement", dto.getAnnouncementCount());
+        typeStats.put("homework", dto.getHomeworkCount());
+        typeStats.put("exam", dto.getExamCount());
+        typeStats.put("cancel", dto.getCancelCount());
         statistics.put("typeStats", typeStats);
 
         // 按发送状态统计
         Map<String, Long> statusStats = new HashMap<>();
-        for (Integer status : List.of(0, 1, 2, 3)) {
-            LambdaQueryWrapper<CourseNotification> statusWrapper = new LambdaQueryWrapper<>();
-            statusWrapper.eq(CourseNotification::getStatus, 1)
-                         .eq(CourseNotification::getSendStatus, status);
-            if (courseId != null) {
-                statusWrapper.eq(CourseNotification::getCourseId, courseId);
-            }
-            if (startDate != null && !startDate.isEmpty()) {
-                statusWrapper.ge(CourseNotification::getCreateTime, startDate);
-            }
-            if (endDate != null && !endDate.isEmpty()) {
-                statusWrapper.le(CourseNotification::getCreateTime, endDate);
-            }
-            Long count = notificationMapper.selectCount(statusWrapper);
-            String statusKey = switch (status) {
-                case 0 -> "pending";
-                case 1 -> "sending";
-                case 2 -> "sent";
-                case 3 -> "failed";
-                default -> "unknown";
-            };
-            statusStats.put(statusKey, count);
-        }
+        statusStats.put("pending", dto.getPendingCount());
+        statusStats.put("sending", dto.getSendingCount());
+        statusStats.put("sent", dto.getSentCount());
+        statusStats.put("failed", dto.getFailedCount());
         statistics.put("statusStats", statusStats);
 
         // 计算已读率
-        List<CourseNotification> notifications = notificationMapper.selectList(wrapper);
-        long totalSendCount = notifications.stream()
-                .mapToLong(n -> n.getSendCount() != null ? n.getSendCount() : 0)
-                .sum();
-        long totalReadCount = notifications.stream()
-                .mapToLong(n -> n.getReadCount() != null ? n.getReadCount() : 0)
-                .sum();
-
+        long totalSendCount = dto.getTotalSendCount();
+        long totalReadCount = dto.getTotalReadCount();
         double readRate = totalSendCount > 0 ? (double) totalReadCount / totalSendCount * 100 : 0;
         statistics.put("totalSendCount", totalSendCount);
         statistics.put("totalReadCount", totalReadCount);
@@ -394,4 +403,13 @@ public class NotificationService {
 
         return statistics;
     }
+
+    /**
+     * 统计缓存键：数据权限会按用户改写统计SQL，不同用户的统计结果不能共用
+     */
+    private String statisticsCacheKey(Long courseId, String startDate, String endDate) {
+        UserContext context = UserContextHolder.getContext();
+        String scope = context == null ? "-" : context.getUserType() + ":" + context.getUserId();
+        return scope + "|" + courseId + "|" + startDate + "|" + endDate;
+    }
 }
@@ -0,0 +1,54 @@
+package com.student.course.task;
+
+import com.student.course.service.CalendarOccurrenceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 日历展开索引补建
+ * 启动时为尚未展开的日历事件（迁移脚本直接写入的数据、索引表上线前的数据）生成展开结果。
+ * 多个实例同时启动时只由取得锁的实例补建，其余实例跳过
+ */
+@Slf4j
+@Component
+public class CalendarOccurrenceBackfillRunner implements CommandLineRunner {
+
+    private static final String BACKFILL_LOCK_KEY = "course:calendar:backfill-lock";
+
+    @Autowired
+    private CalendarOccurrenceService occurrenceService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 补建锁的最长持有时间（实例中途退出时锁自动过期）
+     */
+    @Value("${calendar.occurrence.backfill-lock-seconds:600}")
+    private long lockSeconds;
+
+    @Override
+    public void run(String... args) {
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(BACKFILL_LOCK_KEY, "1",
+                    Duration.ofSeconds(lockSeconds));
+            if (!Boolean.TRUE.equals(acquired)) {
+                log.info("其他实例正在补建日历展开索引，跳过");
+                return;
+            }
+            try {
+                occurrenceService.backfill();
+            } finally {
+                stringRedisTemplate.delete(BACKFILL_LOCK_KEY);
+            }
+        } catch (Exception e) {
+            log.error("日历展开索引补建失败", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.student.course.task;
+
+import com.student.course.service.CalendarOccurrenceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 日历展开索引延展任务
+ * 没有UNTIL的周期性事件只展开到今天之后 horizon-days 天，定期向后补上新进入范围的日期。
+ * 多实例部署时每个周期只由一个实例执行
+ */
+@Slf4j
+@Component
+public class CalendarOccurrenceHorizonTask {
+
+    private static final String EXTEND_LOCK_KEY = "course:calendar:horizon-lock";
+
+    @Autowired
+    private CalendarOccurrenceService occurrenceService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${calendar.occurrence.extend-interval-ms:3600000}")
+    private long extendIntervalMs;
+
+    @Scheduled(fixedDelayString = "${calendar.occurrence.extend-interval-ms:3600000}")
+    public void extendHorizon() {
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(EXTEND_LOCK_KEY, "1",
+                    Duration.ofMillis(Math.max(extendIntervalMs / 2, 1000)));
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+            occurrenceService.extendHorizon();
+        } catch (Exception e) {
+            log.error("日历展开索引延展失败", e);
+        }
+    }
+}
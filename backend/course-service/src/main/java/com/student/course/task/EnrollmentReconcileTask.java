@@ -0,0 +1,101 @@
+package com.student.course.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.student.course.cache.CourseCatalogCache;
+import com.student.course.entity.CourseInfo;
+import com.student.course.mapper.CourseInfoMapper;
+import com.student.course.service.EnrollmentSeatService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 选课人数对账任务（仅Redis选课模式启用）
+ * 按选课记录重算course_info.enrolled_students，并与Redis中的已选集合比对，记录偏差。
+ * 多实例部署时每个周期只由一个实例执行；偏差只做增量补录，不重建已选集合，
+ * 否则已预占但尚未落库的座位会被清掉并再次售出；只有超过 reservation-grace-ms 仍未落库的预占才会释放
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "course.enrollment.mode", havingValue = "redis")
+public class EnrollmentReconcileTask {
+
+    private static final String RECONCILE_LOCK_KEY = "course:enrollment:reconcile-lock";
+
+    @Autowired
+    private EnrollmentSeatService seatService;
+
+    @Autowired
+    private CourseInfoMapper courseInfoMapper;
+
+    @Autowired
+    private CourseCatalogCache courseCatalogCache;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${course.enrollment.reconcile-interval-ms:60000}")
+    private long reconcileIntervalMs;
+
+    @Value("${course.enrollment.reservation-grace-ms:600000}")
+    private long reservationGraceMs;
+
+    @Scheduled(fixedDelayString = "${course.enrollment.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, "1",
+                    Duration.ofMillis(Math.max(reconcileIntervalMs / 2, 1000)));
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+
+            Set<Long> courseIds = seatService.getWarmedCourseIds();
+            if (courseIds.isEmpty()) {
+                return;
+            }
+
+            List<Long> ids = new ArrayList<>(courseIds);
+            courseInfoMapper.syncEnrollmentCounts(ids);
+            courseCatalogCache.evictSeats(ids);
+
+            LambdaQueryWrapper<CourseInfo> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(CourseInfo::getId, CourseInfo::getEnrolledStudents)
+                   .in(CourseInfo::getId, ids);
+            int drifted = 0;
+            for (CourseInfo course : courseInfoMapper.selectList(wrapper)) {
+                long reserved = seatService.getReservedCount(course.getId());
+                int persisted = course.getEnrolledStudents() == null ? 0 : course.getEnrolledStudents();
+                // 异步落库存在短暂延迟，Redis多于数据库属正常；数据库多于Redis说明有绕过预占的选课
+                if (persisted > reserved) {
+                    drifted++;
+                    long added = seatService.mergePersisted(course.getId());
+                    log.warn("选课人数偏差: courseId={}, redis={}, db={}，补录已选学生{}人",
+                            course.getId(), reserved, persisted, added);
+                } else if (persisted < reserved) {
+                    // 预占后选课消息丢失时座位会一直被占用，超过宽限时间仍未落库的预占予以释放
+                    long released = seatService.releaseUnpersisted(course.getId(), reservationGraceMs);
+                    if (released > 0) {
+                        drifted++;
+                        log.warn("选课人数偏差: courseId={}, redis={}, db={}，释放超时未落库的预占{}个",
+                                course.getId(), reserved, persisted, released);
+                    } else {
+                        log.debug("选课记录待落库: courseId={}, redis={}, db={}", course.getId(), reserved, persisted);
+                    }
+                }
+            }
+
+            log.info("选课人数对账完成: courses={}, drifted={}", ids.size(), drifted);
+        } catch (Exception e) {
+            log.error("选课人数对账失败", e);
+        }
+    }
+}
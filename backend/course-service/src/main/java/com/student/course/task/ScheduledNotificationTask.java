@@ -1,92 +1,61 @@
 package com.student.course.task;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.student.course.entity.CourseNotification;
-import com.student.course.mapper.CourseNotificationMapper;
+import com.student.course.service.NotificationDispatchService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 /**
  * 定时通知任务
+ * 到期通知由NotificationDispatchService从Redis按优先级原子取出，不再每分钟扫描数据库
  */
 @Slf4j
 @Component
 public class ScheduledNotificationTask {
 
     @Autowired
-    private CourseNotificationMapper notificationMapper;
-
-    @Autowired
-    private RabbitTemplate rabbitTemplate;
-
-    @Value("${rabbitmq.exchange.course}")
-    private String courseExchange;
-
-    @Value("${rabbitmq.routing-key.notification}")
-    private String notificationRoutingKey;
+    private NotificationDispatchService dispatchService;
 
     /**
-     * 每分钟扫描一次待发送的定时通知
+     * 投递到期的定时通知
      */
-    @Scheduled(cron = "0 * * * * ?")
-    public void scanScheduledNotifications() {
+    @Scheduled(fixedDelayString = "${notification.dispatch.poll-interval-ms:1000}")
+    public void dispatchDueNotifications() {
         try {
-            // 查询待发送的定时通知
-            LambdaQueryWrapper<CourseNotification> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(CourseNotification::getIsScheduled, 1)
-                   .eq(CourseNotification::getSendStatus, 0)
-                   .le(CourseNotification::getScheduledTime, LocalDateTime.now())
-                   .eq(CourseNotification::getStatus, 1);
-
-            List<CourseNotification> notifications = notificationMapper.selectList(wrapper);
-
-            if (notifications.isEmpty()) {
-                return;
-            }
-
-            log.info("扫描到 {} 条待发送的定时通知", notifications.size());
+            dispatchService.dispatchDue();
+        } catch (Exception e) {
+            log.error("投递定时通知失败", e);
+        }
+    }
 
-            // 发送通知
-            for (CourseNotification notification : notifications) {
-                try {
-                    sendScheduledNotification(notification);
-                } catch (Exception e) {
-                    log.error("发送定时通知失败: notificationId={}", notification.getId(), e);
-                }
+    /**
+     * 从数据库重新装载待发送的定时通知（启动后立即执行一次）
+     */
+    @Scheduled(fixedDelayString = "${notification.dispatch.reload-interval-ms:300000}")
+    public void reloadScheduledNotifications() {
+        try {
+            int loaded = dispatchService.reload();
+            if (loaded > 0) {
+                log.info("装载待发送的定时通知: {} 条", loaded);
             }
-
         } catch (Exception e) {
-            log.error("扫描定时通知任务失败", e);
+            log.error("装载定时通知失败", e);
         }
     }
 
     /**
-     * 发送定时通知
+     * 恢复认领后长时间未投递到队列的定时通知
      */
-    private void sendScheduledNotification(CourseNotification notification) {
-        // 发送消息到RabbitMQ
-        Map<String, Object> message = new HashMap<>();
-        message.put("notificationId", notification.getId());
-        message.put("courseId", notification.getCourseId());
-        message.put("targetType", notification.getTargetType());
-        message.put("sendMethod", notification.getSendMethod());
-
-        rabbitTemplate.convertAndSend(courseExchange, notificationRoutingKey, message);
-
-        // 更新发送状态为发送中
-        notification.setSendStatus(1);
-        notificationMapper.updateById(notification);
-
-        log.info("定时通知已发送到队列: notificationId={}, scheduledTime={}",
-                notification.getId(), notification.getScheduledTime());
+    @Scheduled(fixedDelayString = "${notification.dispatch.stuck-check-interval-ms:60000}")
+    public void requeueStuckNotifications() {
+        try {
+            int requeued = dispatchService.requeueStuck();
+            if (requeued > 0) {
+                log.info("恢复发送中遗留的定时通知: {} 条", requeued);
+            }
+        } catch (Exception e) {
+            log.error("恢复发送中遗留的定时通知失败", e);
+        }
     }
 }
@@ -5,13 +5,22 @@ import lombok.Data;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 /**
  * 重复规则解析器
  * 支持类似iCalendar RFC 5545的重复规则
+ *
+ * 生成日期时按周期直接定位到与查询范围重叠的第一个周期，不再从事件首次日期逐日推进；
+ * BYDAY以位掩码保存（bit0=周一 ... bit6=周日），日期以epoch day（long）惰性输出。
  */
 @Data
 public class RecurrenceRule {
@@ -20,14 +29,18 @@ public class RecurrenceRule {
         DAILY, WEEKLY, MONTHLY
     }
 
+    private static final long[] NO_EX_DAYS = new long[0];
+
     private Frequency frequency;
     private Integer interval = 1;  // 间隔
-    private Set<DayOfWeek> byDay = new HashSet<>();  // 星期几
+    private int byDay;  // 星期几位掩码，0表示未指定
     private LocalDate untilDate;  // 结束日期
+    private Integer count;  // 最多重复次数（EXDATE排除的日期同样计入）
+    private long[] exDays = NO_EX_DAYS;  // 排除日期（epoch day，升序）
 
     /**
      * 解析重复规则字符串
-     * 格式: FREQ=WEEKLY;BYDAY=MO,WE;UNTIL=2025-06-30;INTERVAL=1
+     * 格式: FREQ=WEEKLY;BYDAY=MO,WE;UNTIL=2025-06-30;INTERVAL=1;COUNT=16;EXDATE=2025-05-01,2025-05-02
      */
     public static RecurrenceRule parse(String ruleStr) {
         if (ruleStr == null || ruleStr.isEmpty()) {
@@ -56,13 +69,27 @@ public class RecurrenceRule {
                 case "BYDAY":
                     String[] days = value.split(",");
                     for (String day : days) {
-                        rule.getByDay().add(parseDayOfWeek(day.trim()));
+                        rule.byDay |= dayBit(parseDayOfWeek(day.trim()));
                     }
                     break;
 
                 case "UNTIL":
                     rule.setUntilDate(LocalDate.parse(value));
                     break;
+
+                case "COUNT":
+                    rule.setCount(Integer.parseInt(value));
+                    break;
+
+                case "EXDATE":
+                    String[] dates = value.split(",");
+                    long[] exDays = new long[dates.length];
+                    for (int i = 0; i < dates.length; i++) {
+                        exDays[i] = LocalDate.parse(dates[i].trim()).toEpochDay();
+                    }
+                    Arrays.sort(exDays);
+                    rule.setExDays(exDays);
+                    break;
             }
         }
 
@@ -89,68 +116,318 @@ public class RecurrenceRule {
      * 生成指定日期范围内的所有重复日期
      */
     public List<LocalDate> generateOccurrences(LocalDate startDate, LocalDate rangeStart, LocalDate rangeEnd) {
-        List<LocalDate> occurrences = new ArrayList<>();
+        return occurrenceEpochDays(startDate, rangeStart, rangeEnd)
+                .mapToObj(LocalDate::ofEpochDay)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
 
-        if (frequency == null) {
-            return occurrences;
+    /**
+     * 惰性生成指定日期范围内的重复日期（epoch day，升序）
+     *
+     * @param startDate  事件首次日期（重复周期和COUNT的起点）
+     * @param rangeStart 查询范围开始（包含），为空表示从首次日期开始
+     * @param rangeEnd   查询范围结束（包含）
+     */
+    public LongStream occurrenceEpochDays(LocalDate startDate, LocalDate rangeStart, LocalDate rangeEnd) {
+        if (frequency == null || startDate == null || rangeEnd == null) {
+            return LongStream.empty();
+        }
+
+        long start = startDate.toEpochDay();
+        long from = rangeStart == null ? start : Math.max(start, rangeStart.toEpochDay());
+        long to = rangeEnd.toEpochDay();
+        if (untilDate != null) {
+            to = Math.min(to, untilDate.toEpochDay());
+        }
+        if (from > to) {
+            return LongStream.empty();
         }
 
-        LocalDate current = startDate;
-        LocalDate effectiveEnd = untilDate != null && untilDate.isBefore(rangeEnd) ? untilDate : rangeEnd;
+        long remaining = Long.MAX_VALUE;
+        if (count != null) {
+            remaining = count - countBefore(start, from);
+            if (remaining <= 0) {
+                return LongStream.empty();
+            }
+        }
+
+        Occurrences occurrences = new Occurrences(candidates(start, from, to), to, remaining);
+        return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(occurrences,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    private Candidates candidates(long start, long from, long to) {
+        switch (frequency) {
+            case DAILY: return new DailyCandidates(start, from, to);
+            case WEEKLY: return new WeeklyCandidates(start, from, to);
+            case MONTHLY: return new MonthlyCandidates(start, from, to);
+            default: throw new IllegalStateException("Unsupported frequency: " + frequency);
+        }
+    }
+
+    /**
+     * 计算[start, from)内规则产生的次数（用于COUNT，不考虑EXDATE）
+     */
+    private long countBefore(long start, long from) {
+        if (from <= start) {
+            return 0;
+        }
+        long step = effectiveInterval();
 
-        while (!current.isAfter(effectiveEnd)) {
-            if (!current.isBefore(rangeStart)) {
-                // 检查是否符合BYDAY规则
-                if (byDay.isEmpty() || byDay.contains(current.getDayOfWeek())) {
-                    occurrences.add(current);
+        switch (frequency) {
+            case DAILY: {
+                long indexes = ceilDiv(from - start, step);
+                if (byDay == 0) {
+                    return indexes;
+                }
+                // 星期序列以7个下标为周期重复
+                long perCycle = 0;
+                long remainder = 0;
+                for (int i = 0; i < 7; i++) {
+                    if ((byDay & dayBit(start + i * step)) != 0) {
+                        perCycle++;
+                        if (i < indexes % 7) {
+                            remainder++;
+                        }
+                    }
                 }
+                return indexes / 7 * perCycle + remainder;
             }
 
-            // 计算下一次日期
-            current = getNextOccurrence(current);
+            case WEEKLY: {
+                int mask = weeklyMask(start);
+                long week0 = start - dayIndex(start);
+                long stride = 7 * step;
+                long weeks = Math.floorDiv(from - week0, stride);
+                long result = 0;
+                if (weeks > 0) {
+                    // 首周只计入首次日期及之后的星期
+                    result = Integer.bitCount(mask & (0x7F << dayIndex(start)))
+                            + (weeks - 1) * Integer.bitCount(mask);
+                }
+                long weekStart = week0 + weeks * stride;
+                for (int i = 0; i < 7; i++) {
+                    long day = weekStart + i;
+                    if ((mask & (1 << i)) != 0 && day >= start && day < from) {
+                        result++;
+                    }
+                }
+                return result;
+            }
 
-            // 防止无限循环
-            if (current == null) break;
+            default: {
+                // 按月重复的周期数很少，直接计数
+                Candidates candidates = candidates(start, start, from - 1);
+                long result = 0;
+                while (candidates.next() < from) {
+                    result++;
+                }
+                return result;
+            }
         }
+    }
+
+    private int effectiveInterval() {
+        return interval == null || interval < 1 ? 1 : interval;
+    }
+
+    private int weeklyMask(long start) {
+        return byDay == 0 ? 1 << dayIndex(start) : byDay;
+    }
 
-        return occurrences;
+    private boolean isExcluded(long epochDay) {
+        return exDays.length > 0 && Arrays.binarySearch(exDays, epochDay) >= 0;
     }
 
     /**
-     * 根据频率和间隔计算下一次日期
+     * epoch day对应的星期下标（周一=0 ... 周日=6，1970-01-01为周四）
      */
-    private LocalDate getNextOccurrence(LocalDate current) {
-        switch (frequency) {
-            case DAILY:
-                return current.plusDays(interval);
+    private static int dayIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    private static int dayBit(long epochDay) {
+        return 1 << dayIndex(epochDay);
+    }
+
+    private static int dayBit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
 
-            case WEEKLY:
-                if (byDay.isEmpty()) {
-                    // 没有指定星期几,按interval周递增
-                    return current.plusWeeks(interval);
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * 候选日期序列：按升序返回不早于from的日期，超过to时返回任意大于to的值
+     */
+    private abstract static class Candidates {
+        final long from;
+        final long to;
+
+        Candidates(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        abstract long next();
+    }
+
+    private final class DailyCandidates extends Candidates {
+        private final long start;
+        private final long step;
+        private long index;
+
+        DailyCandidates(long start, long from, long to) {
+            super(from, to);
+            this.start = start;
+            this.step = effectiveInterval();
+            this.index = ceilDiv(from - start, step);
+        }
+
+        @Override
+        long next() {
+            while (true) {
+                long day = start + index++ * step;
+                if (day > to || byDay == 0 || (byDay & dayBit(day)) != 0) {
+                    return day;
+                }
+            }
+        }
+    }
+
+    private final class WeeklyCandidates extends Candidates {
+        private final int mask;
+        private final long week0;
+        private final long stride;
+        private long week;
+        private int nextIndex;
+
+        WeeklyCandidates(long start, long from, long to) {
+            super(from, to);
+            this.mask = weeklyMask(start);
+            this.week0 = start - dayIndex(start);
+            this.stride = 7L * effectiveInterval();
+            // 定位到包含from的周，或其之前最近的一个有效周
+            this.week = Math.floorDiv(from - week0, stride);
+        }
+
+        @Override
+        long next() {
+            while (true) {
+                long weekStart = week0 + week * stride;
+                if (weekStart > to) {
+                    return weekStart;
+                }
+                while (nextIndex < 7) {
+                    int i = nextIndex++;
+                    long day = weekStart + i;
+                    if ((mask & (1 << i)) != 0 && day >= from) {
+                        return day;
+                    }
+                }
+                week++;
+                nextIndex = 0;
+            }
+        }
+    }
+
+    private final class MonthlyCandidates extends Candidates {
+        private final long month0;
+        private final int startDayOfMonth;
+        private final int step;
+        private long month;
+        private int dayOfMonth = 1;
+
+        MonthlyCandidates(long start, long from, long to) {
+            super(from, to);
+            LocalDate startDate = LocalDate.ofEpochDay(start);
+            LocalDate fromDate = LocalDate.ofEpochDay(from);
+            this.month0 = startDate.getYear() * 12L + startDate.getMonthValue() - 1;
+            this.startDayOfMonth = startDate.getDayOfMonth();
+            this.step = effectiveInterval();
+            long fromMonth = fromDate.getYear() * 12L + fromDate.getMonthValue() - 1;
+            this.month = Math.floorDiv(fromMonth - month0, step);
+        }
+
+        @Override
+        long next() {
+            while (true) {
+                long monthIndex = month0 + month * step;
+                LocalDate first = LocalDate.of((int) Math.floorDiv(monthIndex, 12L),
+                        (int) Math.floorMod(monthIndex, 12L) + 1, 1);
+                long firstDay = first.toEpochDay();
+                if (firstDay > to) {
+                    return firstDay;
+                }
+                int length = first.lengthOfMonth();
+
+                if (byDay == 0) {
+                    // 与首次日期同一天；该月没有这一天时跳过（如31日）
+                    if (dayOfMonth <= startDayOfMonth && startDayOfMonth <= length) {
+                        dayOfMonth = startDayOfMonth + 1;
+                        long day = firstDay + startDayOfMonth - 1;
+                        if (day >= from) {
+                            return day;
+                        }
+                    }
                 } else {
-                    // 有指定星期几,找下一个匹配的日期
-                    LocalDate next = current.plusDays(1);
-                    int daysChecked = 0;
-                    int maxDays = 7 * interval;  // 最多检查interval周
-
-                    while (daysChecked < maxDays) {
-                        if (byDay.contains(next.getDayOfWeek())) {
-                            return next;
+                    while (dayOfMonth <= length) {
+                        long day = firstDay + dayOfMonth++ - 1;
+                        if (day >= from && (byDay & dayBit(day)) != 0) {
+                            return day;
                         }
-                        next = next.plusDays(1);
-                        daysChecked++;
                     }
-
-                    // 如果在interval周内没找到匹配的日期,跳到下一个interval周期
-                    return current.plusWeeks(interval);
                 }
+                month++;
+                dayOfMonth = 1;
+            }
+        }
+    }
+
+    /**
+     * 在候选日期上应用UNTIL/范围结束、COUNT和EXDATE
+     */
+    private final class Occurrences implements PrimitiveIterator.OfLong {
+        private final Candidates candidates;
+        private final long to;
+        private long remaining;
+        private long nextDay;
+        private boolean ready;
+
+        Occurrences(Candidates candidates, long to, long remaining) {
+            this.candidates = candidates;
+            this.to = to;
+            this.remaining = remaining;
+        }
 
-            case MONTHLY:
-                return current.plusMonths(interval);
+        @Override
+        public boolean hasNext() {
+            while (!ready) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                long day = candidates.next();
+                if (day > to) {
+                    remaining = 0;
+                    return false;
+                }
+                remaining--;
+                if (!isExcluded(day)) {
+                    nextDay = day;
+                    ready = true;
+                }
+            }
+            return true;
+        }
 
-            default:
-                return null;
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            return nextDay;
         }
     }
 
@@ -168,11 +445,13 @@ public class RecurrenceRule {
             sb.append(";INTERVAL=").append(interval);
         }
 
-        if (!byDay.isEmpty()) {
+        if (byDay != 0) {
             sb.append(";BYDAY=");
             List<String> dayStrs = new ArrayList<>();
-            for (DayOfWeek day : byDay) {
-                dayStrs.add(formatDayOfWeek(day));
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((byDay & dayBit(day)) != 0) {
+                    dayStrs.add(formatDayOfWeek(day));
+                }
             }
             sb.append(String.join(",", dayStrs));
         }
@@ -181,6 +460,19 @@ public class RecurrenceRule {
             sb.append(";UNTIL=").append(untilDate);
         }
 
+        if (count != null) {
+            sb.append(";COUNT=").append(count);
+        }
+
+        if (exDays.length > 0) {
+            sb.append(";EXDATE=");
+            List<String> dateStrs = new ArrayList<>();
+            for (long exDay : exDays) {
+                dateStrs.add(LocalDate.ofEpochDay(exDay).toString());
+            }
+            sb.append(String.join(",", dateStrs));
+        }
+
         return sb.toString();
     }
 
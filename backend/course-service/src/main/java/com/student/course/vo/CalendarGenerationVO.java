@@ -0,0 +1,44 @@
+package com.student.course.vo;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 学期课程日历批量生成结果
+ */
+@Data
+public class CalendarGenerationVO {
+
+    public static final String STATUS_GENERATED = "generated";
+    public static final String STATUS_SKIPPED = "skipped";
+    public static final String STATUS_FAILED = "failed";
+
+    private String semester;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    // 汇总
+    private Integer totalCourses;
+    private Integer generatedCourses;
+    private Integer skippedCourses;
+    private Integer failedCourses;
+    private Integer totalEvents;
+
+    /**
+     * 每门课程的生成结果
+     */
+    private List<CourseResult> courses = new ArrayList<>();
+
+    @Data
+    public static class CourseResult {
+        private Long courseId;
+        private String courseName;
+        // generated(已生成)/skipped(已存在，跳过)/failed(无法生成)
+        private String status;
+        private Integer eventCount;
+        private String message;
+    }
+}
@@ -0,0 +1,26 @@
+package com.student.course.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 我的通知视图对象
+ * 包含通知接收记录和通知正文
+ */
+@Data
+public class UserNotificationVO {
+    // 接收记录
+    private Long id;
+    private Long notificationId;
+    private Integer isRead;
+    private LocalDateTime readTime;
+    private LocalDateTime receiveTime;
+
+    // 通知信息
+    private Long courseId;
+    private String title;
+    private String notificationType;
+    private Integer priority;
+    private String content;
+}
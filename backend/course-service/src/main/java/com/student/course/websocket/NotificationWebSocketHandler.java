@@ -1,81 +1,187 @@
 package com.student.course.websocket;
 
+import com.student.course.dto.WebSocketPushMessage;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket通知处理器
+ *
+ * 先从WebSocketPresenceRegistry查出目标用户所在的实例：本实例的会话直接推送，
+ * 其他实例上的用户按节点分组后经RabbitMQ转发，由对应实例的WebSocketPushListener推送
  */
 @Slf4j
 @Component
 public class NotificationWebSocketHandler {
 
+    private static final String USER_DESTINATION = "/queue/notification";
+
+    /**
+     * 未读数量推送的用户目的地
+     */
+    public static final String UNREAD_DESTINATION = "/queue/unread";
+    private static final String BROADCAST_DESTINATION = "/topic/notification";
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
-    // 存储用户ID和WebSocket会话的映射关系
-    private final Map<Long, String> userSessions = new ConcurrentHashMap<>();
+    @Autowired
+    private WebSocketPresenceRegistry presenceRegistry;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.exchange.websocket-push:websocket.push.exchange}")
+    private String pushExchange;
 
     /**
-     * 注册用户会话
+     * 向指定用户发送通知（用户可连接在任一实例）
      */
-    public void registerUserSession(Long userId, String sessionId) {
-        userSessions.put(userId, sessionId);
-        log.info("用户会话注册成功: userId={}, sessionId={}", userId, sessionId);
+    public void sendNotificationToUser(Long userId, Object notification) {
+        sendNotificationToUsers(List.of(userId), notification);
     }
 
     /**
-     * 移除用户会话
+     * 向一批用户发送通知，每个目标实例只转发一条消息
+     *
+     * @return 在线（已推送）的用户数
      */
-    public void removeUserSession(Long userId) {
-        userSessions.remove(userId);
-        log.info("用户会话移除成功: userId=", userId);
+    public int sendNotificationToUsers(Collection<Long> userIds, Object notification) {
+        Map<String, List<Long>> nodes;
+        try {
+            nodes = presenceRegistry.nodesOf(userIds);
+        } catch (Exception e) {
+            log.error("查询用户在线状态失败，跳过WebSocket推送: users={}", userIds.size(), e);
+            return 0;
+        }
+
+        int online = 0;
+        for (Map.Entry<String, List<Long>> entry : nodes.entrySet()) {
+            List<Long> nodeUserIds = entry.getValue();
+            online += nodeUserIds.size();
+            if (entry.getKey().equals(presenceRegistry.getNodeId())) {
+                deliverLocally(nodeUserIds, notification);
+            } else {
+                WebSocketPushMessage message = new WebSocketPushMessage();
+                message.setUserIds(new ArrayList<>(nodeUserIds));
+                message.setPayload(notification);
+                forward(entry.getKey(), message);
+            }
+        }
+        return online;
     }
 
     /**
-     * 向指定用户发送通知
+     * 向一批用户分别推送各自的内容（如未读数量），每个目标实例只转发一条消息
+     *
+     * @param payloads    用户ID -> 推送内容
+     * @param destination 用户目的地
      */
-    public void sendNotificationToUser(Long userId, Object notification) {
+    public void sendToUsers(Map<Long, ?> payloads, String destination) {
+        Map<String, List<Long>> nodes;
         try {
-            // 发送到用户的私有队列
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    "/queue/notification",
-                    notification);
-            log.info("通知发送成功: userId={}, notification={}", userId, notification);
+            nodes = presenceRegistry.nodesOf(payloads.keySet());
         } catch (Exception e) {
-            log.error("通知发送失败: userId={}", userId, e);
+            log.error("查询用户在线状态失败，跳过WebSocket推送: users={}", payloads.size(), e);
+            return;
+        }
+
+        for (Map.Entry<String, List<Long>> entry : nodes.entrySet()) {
+            Map<Long, Object> nodePayloads = new HashMap<>();
+            for (Long userId : entry.getValue()) {
+                nodePayloads.put(userId, payloads.get(userId));
+            }
+            if (entry.getKey().equals(presenceRegistry.getNodeId())) {
+                deliverLocally(nodePayloads, destination);
+            } else {
+                WebSocketPushMessage message = new WebSocketPushMessage();
+                message.setUserPayloads(nodePayloads);
+                message.setDestination(destination);
+                forward(entry.getKey(), message);
+            }
         }
     }
 
     /**
-     * 向所有用户广播通知
+     * 向所有实例上的所有用户广播通知
      */
     public void broadcastNotification(Object notification) {
-        try {
-            messagingTemplate.convertAndSend("/topic/notification", notification);
-            log.info("广播通知发送成功: notification={}", notification);
-        } catch (Exception e) {
-            log.error("广播通知发送失败", e);
+        WebSocketPushMessage message = new WebSocketPushMessage();
+        message.setPayload(notification);
+        forward(WebSocketPresenceRegistry.BROADCAST_ROUTING_KEY, message);
+    }
+
+    /**
+     * 处理其他实例转发来的推送
+     */
+    public void deliverLocally(WebSocketPushMessage message) {
+        if (message.getUserPayloads() != null) {
+            deliverLocally(message.getUserPayloads(), message.getDestination());
+        } else {
+            deliverLocally(message.getUserIds(), message.getPayload());
         }
     }
 
     /**
-     * 检查用户是否在线
+     * 推送给本实例上的会话
+     *
+     * @param userIds 目标用户ID，为空表示广播
+     */
+    private void deliverLocally(List<Long> userIds, Object notification) {
+        if (userIds == null) {
+            try {
+                messagingTemplate.convertAndSend(BROADCAST_DESTINATION, notification);
+                log.info("广播通知发送成功: notification={}", notification);
+            } catch (Exception e) {
+                log.error("广播通知发送失败", e);
+            }
+            return;
+        }
+        for (Long userId : userIds) {
+            try {
+                messagingTemplate.convertAndSendToUser(userId.toString(), USER_DESTINATION, notification);
+                log.debug("通知发送成功: userId={}", userId);
+            } catch (Exception e) {
+                log.error("通知发送失败: userId={}", userId, e);
+            }
+        }
+    }
+
+    /**
+     * 检查用户是否在线（任一实例）
      */
     public boolean isUserOnline(Long userId) {
-        return userSessions.containsKey(userId);
+        return presenceRegistry.isOnline(userId);
     }
 
     /**
-     * 获取在线用户数量
+     * 按用户分别推送给本实例上的会话
      */
-    public int getOnlineUserCount() {
-        return userSessions.size();
+    private void deliverLocally(Map<Long, Object> payloads, String destination) {
+        for (Map.Entry<Long, Object> entry : payloads.entrySet()) {
+            try {
+                messagingTemplate.convertAndSendToUser(entry.getKey().toString(), destination, entry.getValue());
+            } catch (Exception e) {
+                log.error("推送失败: userId={}, destination={}", entry.getKey(), destination, e);
+            }
+        }
+    }
+
+    private void forward(String routingKey, WebSocketPushMessage message) {
+        try {
+            rabbitTemplate.convertAndSend(pushExchange, routingKey, message);
+        } catch (Exception e) {
+            log.error("转发WebSocket推送失败: target={}", routingKey, e);
+        }
     }
 }
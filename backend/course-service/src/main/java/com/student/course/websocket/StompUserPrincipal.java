@@ -0,0 +1,25 @@
+package com.student.course.websocket;
+
+import java.security.Principal;
+
+/**
+ * STOMP会话的用户身份
+ * 名称为用户ID，convertAndSendToUser按用户ID定位会话
+ */
+public class StompUserPrincipal implements Principal {
+
+    private final Long userId;
+
+    public StompUserPrincipal(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @Override
+    public String getName() {
+        return userId.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.student.course.websocket;
+
+import com.student.common.exception.BusinessException;
+import com.student.common.util.JwtPrincipal;
+import com.student.common.util.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket认证拦截器
+ * 客户端在STOMP CONNECT帧的Authorization头中携带JWT，验签通过后把用户ID绑定到会话，
+ * 未携带或无效的令牌直接拒绝连接
+ */
+@Slf4j
+@Component
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String authorization = accessor.getFirstNativeHeader(AUTHORIZATION_HEADER);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new BusinessException(401, "未登录");
+        }
+
+        JwtPrincipal principal;
+        try {
+            principal = JwtUtil.verify(authorization.substring(BEARER_PREFIX.length()));
+        } catch (Exception e) {
+            log.debug("WebSocket连接令牌无效: sessionId={}", accessor.getSessionId());
+            throw new BusinessException(401, "登录已过期，请重新登录");
+        }
+        if (principal.getUserId() == null) {
+            throw new BusinessException(401, "登录已过期，请重新登录");
+        }
+
+        accessor.setUser(new StompUserPrincipal(principal.getUserId()));
+        return message;
+    }
+}
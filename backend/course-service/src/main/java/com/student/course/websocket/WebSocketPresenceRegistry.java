@@ -0,0 +1,265 @@
+package com.student.course.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket在线状态注册表（多实例共享）
+ *
+ * 每个STOMP会话在Redis中登记为 ws:presence:user:{userId} 有序集合的一个成员 "{nodeId}|{sessionId}"，
+ * 分数为最近一次心跳时间。各节点定时刷新本节点会话的心跳，节点宕机后成员随心跳过期失效，
+ * 不需要其他节点清理。推送时按成员中的nodeId找到用户所在节点，再经RabbitMQ转发到该节点。
+ * 节点连接数登记在 ws:presence:nodes 哈希中，正常停止时删除本节点，宕机节点由其他节点心跳时清除。
+ */
+@Slf4j
+@Component
+public class WebSocketPresenceRegistry {
+
+    /**
+     * 广播推送的路由键（所有实例的转发队列都绑定）
+     */
+    public static final String BROADCAST_ROUTING_KEY = "broadcast";
+
+    private static final String USER_KEY_PREFIX = "ws:presence:user:";
+    private static final String NODES_KEY = "ws:presence:nodes";
+    private static final char MEMBER_SEPARATOR = '|';
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${websocket.presence.ttl-seconds:90}")
+    private long ttlSeconds;
+
+    /**
+     * 本节点ID（每次启动生成，重启后旧会话随心跳过期）
+     */
+    private final String nodeId;
+
+    /**
+     * 本节点会话：sessionId -> userId
+     */
+    private final Map<String, Long> localSessions = new ConcurrentHashMap<>();
+
+    public WebSocketPresenceRegistry() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        this.nodeId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (user == null || sessionId == null) {
+            return;
+        }
+        Long userId = Long.valueOf(user.getName());
+        localSessions.put(sessionId, userId);
+
+        String key = USER_KEY_PREFIX + userId;
+        long now = System.currentTimeMillis();
+        stringRedisTemplate.opsForZSet().removeRangeByScore(key, 0, now - ttlSeconds * 1000);
+        stringRedisTemplate.opsForZSet().add(key, member(sessionId), now);
+        stringRedisTemplate.expire(key, Duration.ofSeconds(ttlSeconds));
+        log.debug("WebSocket会话上线: userId={}, sessionId={}, node={}", userId, sessionId, nodeId);
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Long userId = localSessions.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().remove(USER_KEY_PREFIX + userId, member(event.getSessionId()));
+        log.debug("WebSocket会话下线: userId={}, sessionId={}, node={}", userId, event.getSessionId(), nodeId);
+    }
+
+    /**
+     * 刷新本节点全部会话的心跳，上报本节点连接数，并清除心跳已过期的节点
+     */
+    @Scheduled(fixedDelayString = "${websocket.presence.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Map.Entry<String, Long>> sessions = new ArrayList<>(localSessions.entrySet());
+            Set<Long> users = new HashSet<>(localSessions.values());
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Map.Entry<String, Long> session : sessions) {
+                    String key = USER_KEY_PREFIX + session.getValue();
+                    redis.zAdd(key, now, member(session.getKey()));
+                    redis.expire(key, ttlSeconds);
+                }
+                redis.hSet(NODES_KEY, nodeId, sessions.size() + ":" + users.size() + ":" + now);
+                return null;
+            });
+            pruneDeadNodes(now - ttlSeconds * 1000);
+        } catch (Exception e) {
+            log.error("WebSocket在线状态心跳失败: node={}", nodeId, e);
+        }
+    }
+
+    /**
+     * 删除心跳早于minTimestamp的节点（宕机未执行shutdown的节点）
+     */
+    private void pruneDeadNodes(long minTimestamp) {
+        List<Object> deadNodes = new ArrayList<>();
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(NODES_KEY);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            Long heartbeat = parseHeartbeat(entry.getValue().toString());
+            if (heartbeat == null || heartbeat < minTimestamp) {
+                deadNodes.add(entry.getKey());
+            }
+        }
+        if (!deadNodes.isEmpty()) {
+            stringRedisTemplate.opsForHash().delete(NODES_KEY, deadNodes.toArray());
+            log.info("清除心跳过期的WebSocket节点: {}", deadNodes);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            List<Map.Entry<String, Long>> sessions = new ArrayList<>(localSessions.entrySet());
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Map.Entry<String, Long> session : sessions) {
+                    redis.zRem(USER_KEY_PREFIX + session.getValue(), member(session.getKey()));
+                }
+                redis.hDel(NODES_KEY, nodeId);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("停止前清理WebSocket在线状态失败: node={}", nodeId, e);
+        }
+    }
+
+    /**
+     * 用户是否在任一节点在线
+     */
+    public boolean isOnline(Long userId) {
+        return !nodesOf(List.of(userId)).isEmpty();
+    }
+
+    /**
+     * 批量查询用户所在节点（一次管道往返）
+     *
+     * @return nodeId -> 该节点上在线的用户ID，不在线的用户不出现
+     */
+    public Map<String, List<Long>> nodesOf(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = new ArrayList<>(userIds);
+        double minScore = System.currentTimeMillis() - ttlSeconds * 1000.0;
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (Long userId : ids) {
+                redis.zRangeByScore(USER_KEY_PREFIX + userId, minScore, Double.MAX_VALUE);
+            }
+            return null;
+        });
+
+        Map<String, List<Long>> nodes = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Collection<String> members = (Collection<String>) results.get(i);
+            if (members == null) {
+                continue;
+            }
+            Set<String> userNodes = new HashSet<>();
+            for (String member : members) {
+                int index = member.indexOf(MEMBER_SEPARATOR);
+                if (index > 0) {
+                    userNodes.add(member.substring(0, index));
+                }
+            }
+            for (String node : userNodes) {
+                nodes.computeIfAbsent(node, n -> new ArrayList<>()).add(ids.get(i));
+            }
+        }
+        return nodes;
+    }
+
+    public int getLocalConnectionCount() {
+        return localSessions.size();
+    }
+
+    public int getLocalUserCount() {
+        return new HashSet<>(localSessions.values()).size();
+    }
+
+    /**
+     * 各节点连接数（只返回心跳未过期的节点）
+     */
+    public Map<String, Map<String, Object>> getNodeStatistics() {
+        long minTimestamp = System.currentTimeMillis() - ttlSeconds * 1000;
+        Map<String, Map<String, Object>> nodes = new LinkedHashMap<>();
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(NODES_KEY);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String[] parts = entry.getValue().toString().split(":");
+            Long heartbeat = parseHeartbeat(entry.getValue().toString());
+            if (heartbeat == null || heartbeat < minTimestamp) {
+                continue;
+            }
+            Map<String, Object> node = new HashMap<>();
+            node.put("connections", Integer.parseInt(parts[0]));
+            node.put("users", Integer.parseInt(parts[1]));
+            node.put("lastHeartbeat", heartbeat);
+            nodes.put(entry.getKey().toString(), node);
+        }
+        return nodes;
+    }
+
+    /**
+     * 解析节点登记值"连接数:用户数:心跳时间"中的心跳时间，格式不对时返回null
+     */
+    private Long parseHeartbeat(String value) {
+        String[] parts = value.split(":");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String member(String sessionId) {
+        return nodeId + MEMBER_SEPARATOR + sessionId;
+    }
+}
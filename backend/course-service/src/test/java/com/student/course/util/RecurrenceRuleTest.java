@@ -0,0 +1,164 @@
+package com.student.course.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * RecurrenceRule 按周期直接定位的生成结果与逐日判断的参考实现对比
+ */
+class RecurrenceRuleTest {
+
+    private static final String[] DAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    @Test
+    void countIncludesExcludedDates() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=MO,WE;COUNT=6;EXDATE=2025-03-05");
+        LocalDate start = LocalDate.of(2025, 3, 3);
+
+        assertEquals(dates("2025-03-03", "2025-03-10", "2025-03-12", "2025-03-17", "2025-03-19"),
+                rule.generateOccurrences(start, start, LocalDate.of(2025, 12, 31)));
+        // 查询范围从中间开始时，COUNT仍从首次日期起算
+        assertEquals(dates("2025-03-12", "2025-03-17", "2025-03-19"),
+                rule.generateOccurrences(start, LocalDate.of(2025, 3, 11), LocalDate.of(2025, 12, 31)));
+    }
+
+    @Test
+    void untilIsInclusive() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=DAILY;INTERVAL=2;UNTIL=2025-01-09");
+        LocalDate start = LocalDate.of(2025, 1, 1);
+
+        assertEquals(dates("2025-01-01", "2025-01-03", "2025-01-05", "2025-01-07", "2025-01-09"),
+                rule.generateOccurrences(start, start, LocalDate.of(2025, 12, 31)));
+        assertEquals(dates("2025-01-05", "2025-01-07"),
+                rule.generateOccurrences(start, LocalDate.of(2025, 1, 4), LocalDate.of(2025, 1, 8)));
+    }
+
+    @Test
+    void monthlySkipsMonthsWithoutTheDay() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=MONTHLY");
+        LocalDate start = LocalDate.of(2025, 1, 31);
+
+        assertEquals(dates("2025-01-31", "2025-03-31", "2025-05-31", "2025-07-31"),
+                rule.generateOccurrences(start, start, LocalDate.of(2025, 7, 31)));
+    }
+
+    @Test
+    void leapDay() {
+        RecurrenceRule yearly = RecurrenceRule.parse("FREQ=MONTHLY;INTERVAL=12");
+        LocalDate leapDay = LocalDate.of(2024, 2, 29);
+        assertEquals(dates("2024-02-29", "2028-02-29"),
+                yearly.generateOccurrences(leapDay, leapDay, LocalDate.of(2029, 12, 31)));
+
+        RecurrenceRule daily = RecurrenceRule.parse("FREQ=DAILY;COUNT=4");
+        LocalDate start = LocalDate.of(2024, 2, 27);
+        assertEquals(dates("2024-02-27", "2024-02-28", "2024-02-29", "2024-03-01"),
+                daily.generateOccurrences(start, start, LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    void weeklyIntervalWithByDay() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=TU,TH;UNTIL=2025-09-30");
+        LocalDate start = LocalDate.of(2025, 9, 2);
+
+        assertEquals(dates("2025-09-02", "2025-09-04", "2025-09-16", "2025-09-18", "2025-09-30"),
+                rule.generateOccurrences(start, start, LocalDate.of(2025, 12, 31)));
+    }
+
+    @Test
+    void matchesReferenceForRandomRules() {
+        Random random = new Random(20250101L);
+        for (int i = 0; i < 20000; i++) {
+            String ruleString = randomRule(random);
+            RecurrenceRule rule = RecurrenceRule.parse(ruleString);
+            LocalDate start = LocalDate.of(2023, 1, 1).plusDays(random.nextInt(1500));
+            LocalDate rangeStart = start.plusDays(random.nextInt(800) - 100);
+            LocalDate rangeEnd = rangeStart.plusDays(random.nextInt(500));
+
+            assertEquals(reference(rule, start, rangeStart, rangeEnd),
+                    rule.generateOccurrences(start, rangeStart, rangeEnd),
+                    () -> ruleString + " start=" + start + " range=" + rangeStart + ".." + rangeEnd);
+        }
+    }
+
+    /**
+     * 参考实现：从首次日期逐日判断是否为规则产生的日期
+     */
+    private static List<LocalDate> reference(RecurrenceRule rule, LocalDate start, LocalDate rangeStart,
+                                             LocalDate rangeEnd) {
+        LocalDate end = rule.getUntilDate() != null && rule.getUntilDate().isBefore(rangeEnd)
+                ? rule.getUntilDate() : rangeEnd;
+        int interval = rule.getInterval() == null || rule.getInterval() < 1 ? 1 : rule.getInterval();
+        long startMonth = start.getYear() * 12L + start.getMonthValue() - 1;
+        long startWeek = start.toEpochDay() - (start.getDayOfWeek().getValue() - 1);
+
+        List<LocalDate> result = new ArrayList<>();
+        long produced = 0;
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            boolean byDay = rule.getByDay() == 0
+                    || (rule.getByDay() & (1 << (day.getDayOfWeek().getValue() - 1))) != 0;
+            boolean candidate = switch (rule.getFrequency()) {
+                case DAILY -> (day.toEpochDay() - start.toEpochDay()) % interval == 0 && byDay;
+                case WEEKLY -> Math.floorDiv(day.toEpochDay() - startWeek, 7) % interval == 0
+                        && (rule.getByDay() == 0 ? day.getDayOfWeek() == start.getDayOfWeek() : byDay);
+                case MONTHLY -> (day.getYear() * 12L + day.getMonthValue() - 1 - startMonth) % interval == 0
+                        && (rule.getByDay() == 0 ? day.getDayOfMonth() == start.getDayOfMonth() : byDay);
+            };
+            if (!candidate) {
+                continue;
+            }
+            if (rule.getCount() != null && ++produced > rule.getCount()) {
+                break;
+            }
+            if (!day.isBefore(rangeStart) && Arrays.binarySearch(rule.getExDays(), day.toEpochDay()) < 0) {
+                result.add(day);
+            }
+        }
+        return result;
+    }
+
+    private static String randomRule(Random random) {
+        RecurrenceRule.Frequency[] frequencies = RecurrenceRule.Frequency.values();
+        StringBuilder rule = new StringBuilder("FREQ=")
+                .append(frequencies[random.nextInt(frequencies.length)]);
+        if (random.nextBoolean()) {
+            rule.append(";INTERVAL=").append(1 + random.nextInt(4));
+        }
+        if (random.nextBoolean()) {
+            StringJoiner days = new StringJoiner(",");
+            for (String day : DAYS) {
+                if (random.nextInt(3) == 0) {
+                    days.add(day);
+                }
+            }
+            if (days.length() > 0) {
+                rule.append(";BYDAY=").append(days);
+            }
+        }
+        if (random.nextInt(3) == 0) {
+            rule.append(";UNTIL=").append(LocalDate.of(2023, 1, 1).plusDays(random.nextInt(2500)));
+        }
+        if (random.nextInt(3) == 0) {
+            rule.append(";COUNT=").append(1 + random.nextInt(60));
+        }
+        if (random.nextInt(3) == 0) {
+            StringJoiner exDates = new StringJoiner(",");
+            for (int i = 0; i < 1 + random.nextInt(5); i++) {
+                exDates.add(LocalDate.of(2023, 1, 1).plusDays(random.nextInt(2500)).toString());
+            }
+            rule.append(";EXDATE=").append(exDates);
+        }
+        return rule.toString();
+    }
+
+    private static List<LocalDate> dates(String... values) {
+        return Arrays.stream(values).map(LocalDate::parse).toList();
+    }
+}
@@ -0,0 +1,41 @@
+package com.student.file.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文件下载缓存策略配置
+ * 按业务类型配置Cache-Control，未配置的业务类型使用默认策略
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "file.cache-control")
+public class FileCacheConfig {
+
+    /**
+     * 默认策略：允许浏览器缓存，但每次使用前用ETag向服务端确认
+     */
+    private String defaultPolicy = "private, no-cache";
+
+    /**
+     * 业务类型 -> Cache-Control
+     */
+    private Map<String, String> policies = new HashMap<>();
+
+    /**
+     * 获取业务类型对应的Cache-Control
+     */
+    public String getPolicy(String businessType) {
+        if (businessType != null) {
+            String policy = policies.get(businessType);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+}
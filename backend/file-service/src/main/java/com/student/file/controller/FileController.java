@@ -1,26 +1,39 @@
 package com.student.file.controller;
 
 import com.student.common.result.Result;
+import com.student.file.config.FileCacheConfig;
 import com.student.file.entity.FileInfo;
 import com.student.file.service.FileService;
 import com.student.file.util.FileValidationUtil;
+import com.student.file.util.SendfileUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @Slf4j
@@ -32,6 +45,9 @@ public class FileController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private FileCacheConfig fileCacheConfig;
+
     @Operation(summary = "上传文件", description = "上传文件到服务器,支持本地存储和Minio对象存储")
     @PostMapping("/upload")
     public Result<FileInfo> upload(
@@ -61,26 +77,51 @@ public class FileController {
 
     @Operation(summary = "下载文件", description = "根据文件ID下载文件")
     @GetMapping("/download/{id}")
-    public ResponseEntity<InputStreamResource> download(
-            @Parameter(description = "文件ID") @PathVariable Long id) {
+    public ResponseEntity<Resource> download(
+            @Parameter(description = "文件ID") @PathVariable Long id,
+            HttpServletRequest request,
+            WebRequest webRequest) {
         try {
             FileInfo fileInfo = fileService.getById(id);
             if (fileInfo == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            InputStream inputStream = fileService.download(id);
+            // 客户端缓存仍然有效时直接返回304
+            if (webRequest.checkNotModified(getETag(fileInfo), getLastModified(fileInfo))) {
+                return null;
+            }
+
+            // 对象存储的大文件重定向到预签名URL，数据不经过file-service
+            String redirectUrl = fileService.getDownloadRedirectUrl(fileInfo, true);
+            if (redirectUrl != null) {
+                return redirect(redirectUrl);
+            }
 
             // 设置响应头
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType(fileInfo.getFileType()));
-            headers.setContentLength(fileInfo.getFileSize());
+            applyCacheHeaders(headers, fileInfo);
 
             // 处理文件名编码
             String encodedFilename = URLEncoder.encode(fileInfo.getOriginalName(), "UTF-8")
                     .replaceAll("\\+", "%20");
             headers.setContentDispositionFormData("attachment", encodedFilename);
 
+            // 本地存储：优先交给容器sendfile，其次按文件资源输出
+            File localFile = fileService.getLocalFile(fileInfo);
+            if (localFile != null) {
+                long length = localFile.length();
+                headers.setContentLength(length);
+                if (SendfileUtil.trySendfile(request, localFile, 0, length)) {
+                    return ResponseEntity.ok().headers(headers).build();
+                }
+                return ResponseEntity.ok().headers(headers).body(new FileSystemResource(localFile));
+            }
+
+            InputStream inputStream = fileService.download(id);
+            headers.setContentLength(fileInfo.getFileSize());
+
             return ResponseEntity.ok()
                     .headers(headers)
                     .body(new InputStreamResource(inputStream));
@@ -132,30 +173,58 @@ public class FileController {
 
     @Operation(summary = "流式传输文件", description = "支持Range请求的文件流式传输，用于音视频在线播放")
     @GetMapping("/stream/{id}")
-    public ResponseEntity<Resource> stream(
+    public ResponseEntity<?> stream(
             @Parameter(description = "文件ID") @PathVariable Long id,
-            @RequestHeader(value = "Range", required = false) String rangeHeader) {
+            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            @RequestHeader(value = "If-Range", required = false) String ifRange,
+            HttpServletRequest request,
+            WebRequest webRequest) {
         try {
             FileInfo fileInfo = fileService.getById(id);
             if (fileInfo == null) {
                 return ResponseEntity.notFound().build();
             }
 
+            // 客户端缓存仍然有效时直接返回304
+            if (webRequest.checkNotModified(getETag(fileInfo), getLastModified(fileInfo))) {
+                return null;
+            }
+
+            // If-Range不匹配说明客户端持有的是旧版本，忽略Range返回完整内容
+            if (rangeHeader != null && ifRange != null && !isIfRangeMatched(ifRange, fileInfo)) {
+                rangeHeader = null;
+            }
+
+            File localFile = fileService.getLocalFile(fileInfo);
+            if (localFile != null) {
+                return streamLocalFile(fileInfo, localFile, rangeHeader, request);
+            }
+
+            // 对象存储的大文件重定向到预签名URL，由Minio直接处理Range请求
+            String redirectUrl = fileService.getDownloadRedirectUrl(fileInfo, false);
+            if (redirectUrl != null) {
+                return redirect(redirectUrl);
+            }
+
             long fileSize = fileInfo.getFileSize();
 
-            // 解析Range请求头
+            // 解析Range请求头（支持后缀区间bytes=-N；多个区间时只返回第一个，RFC 7233允许）
             long start = 0;
             long end = fileSize - 1;
-
-            if (rangeHeader != null && rangeHeader.startsWith("bytes=")) {
-                String[] ranges = rangeHeader.substring(6).split("-");
+            boolean partial = false;
+            if (rangeHeader != null) {
                 try {
-                    start = Long.parseLong(ranges[0]);
-                    if (ranges.length > 1 && !ranges[1].isEmpty()) {
-                        end = Long.parseLong(ranges[1]);
+                    List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                    if (!ranges.isEmpty()) {
+                        start = ranges.get(0).getRangeStart(fileSize);
+                        end = ranges.get(0).getRangeEnd(fileSize);
+                        partial = true;
                     }
-                } catch (NumberFormatException e) {
+                } catch (IllegalArgumentException e) {
                     log.warn("Invalid range header: {}", rangeHeader);
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                            .build();
                 }
             }
 
@@ -166,7 +235,7 @@ public class FileController {
                         .build();
             }
 
-            // 使用 downloadRange 方法直接获取指定范围的数据（使用 RandomAccessFile，高效）
+            // 对象存储：以offset/length读取对象数据，只传输所需区间
             InputStream inputStream = fileService.downloadRange(id, start, end);
             long contentLength = end - start + 1;
 
@@ -176,9 +245,10 @@ public class FileController {
             headers.setContentLength(contentLength);
             headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
             headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+            applyCacheHeaders(headers, fileInfo);
 
-            // 如果是Range请求，返回206 Partial Content
-            HttpStatus status = rangeHeader != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
+            // 解析出区间时返回206 Partial Content，空的Range头按整个文件返回200
+            HttpStatus status = partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
 
             // 创建限制长度的InputStreamResource
             InputStreamResource resource = new InputStreamResource(inputStream) {
@@ -197,4 +267,123 @@ public class FileController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * 本地存储的区间响应
+     *
+     * 单个区间（或整个文件）交给Tomcat sendfile零拷贝发送；多个区间以ResourceRegion列表返回，
+     * 由Spring按multipart/byteranges输出，文件内容经FileChannel读取，不经过自定义InputStream。
+     */
+    private ResponseEntity<?> streamLocalFile(FileInfo fileInfo, File localFile, String rangeHeader,
+                                              HttpServletRequest request) {
+        long fileSize = localFile.length();
+        FileSystemResource resource = new FileSystemResource(localFile);
+
+        // 语法错误或无法满足的区间均返回416
+        List<HttpRange> ranges;
+        List<ResourceRegion> regions;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+            regions = ranges.isEmpty()
+                    ? List.of(new ResourceRegion(resource, 0, fileSize))
+                    : HttpRange.toResourceRegions(ranges, resource);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid range header: {}", rangeHeader);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                    .build();
+        }
+
+        MediaType mediaType = MediaType.parseMediaType(fileInfo.getFileType());
+        HttpStatus status = ranges.isEmpty() ? HttpStatus.OK : HttpStatus.PARTIAL_CONTENT;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        applyCacheHeaders(headers, fileInfo);
+
+        if (regions.size() > 1) {
+            return ResponseEntity.status(status).headers(headers).body(regions);
+        }
+
+        ResourceRegion region = regions.get(0);
+        long start = region.getPosition();
+        long count = region.getCount();
+
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + count - 1) + "/" + fileSize);
+        }
+
+        if (SendfileUtil.trySendfile(request, localFile, start, count)) {
+            headers.setContentLength(count);
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+
+        if (status == HttpStatus.OK) {
+            headers.setContentLength(fileSize);
+            return ResponseEntity.ok().headers(headers).body(resource);
+        }
+        return ResponseEntity.status(status).headers(headers).body(region);
+    }
+
+    /**
+     * 302重定向到预签名URL；URL有短期有效期，重定向响应本身不允许缓存
+     */
+    private <T> ResponseEntity<T> redirect(String url) {
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, url)
+                .cacheControl(CacheControl.noStore())
+                .build();
+    }
+
+    /**
+     * 设置ETag、Last-Modified和按业务类型配置的Cache-Control
+     */
+    private void applyCacheHeaders(HttpHeaders headers, FileInfo fileInfo) {
+        headers.setETag(getETag(fileInfo));
+        long lastModified = getLastModified(fileInfo);
+        if (lastModified > 0) {
+            headers.setLastModified(lastModified);
+        }
+        headers.setCacheControl(fileCacheConfig.getPolicy(fileInfo.getBusinessType()));
+    }
+
+    /**
+     * 文件内容不可变，ETag直接使用上传时计算的内容摘要；
+     * 早期上传、没有摘要的文件退化为弱ETag
+     */
+    private String getETag(FileInfo fileInfo) {
+        if (fileInfo.getContentHash() != null) {
+            return "\"" + fileInfo.getContentHash() + "\"";
+        }
+        return "W/\"" + fileInfo.getId() + "-" + fileInfo.getFileSize() + "\"";
+    }
+
+    private long getLastModified(FileInfo fileInfo) {
+        if (fileInfo.getCreateTime() == null) {
+            return -1;
+        }
+        return fileInfo.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * If-Range判断：ETag使用强比较（弱ETag一律不匹配），日期精确到秒
+     */
+    private boolean isIfRangeMatched(String ifRange, FileInfo fileInfo) {
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            String etag = getETag(fileInfo);
+            return !etag.startsWith("W/") && etag.equals(value);
+        }
+        long lastModified = getLastModified(fileInfo);
+        if (lastModified < 0) {
+            return false;
+        }
+        try {
+            long ifRangeSeconds = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return ifRangeSeconds == lastModified / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package com.student.file.controller;
+
+import com.student.common.result.Result;
+import com.student.file.entity.FileInfo;
+import com.student.file.service.UploadSessionService;
+import com.student.file.vo.UploadSessionVO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Tag(name = "分片上传", description = "大文件分片上传、断点续传相关接口")
+@RestController
+@RequestMapping("/file/upload/session")
+public class UploadSessionController {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Operation(summary = "创建上传会话", description = "返回会话ID、分片大小和分片数量，之后可并行上传各分片")
+    @PostMapping
+    public Result<UploadSessionVO> initiate(
+            @Parameter(description = "文件名") @RequestParam String fileName,
+            @Parameter(description = "文件大小(字节)") @RequestParam long fileSize,
+            @Parameter(description = "文件类型(MIME)") @RequestParam String contentType,
+            @Parameter(description = "分片大小(字节)，默认8MB") @RequestParam(required = false) Long chunkSize,
+            @Parameter(description = "文件SHA-256，提供时合并后校验") @RequestParam(required = false) String sha256,
+            @Parameter(description = "业务类型") @RequestParam(required = false) String businessType,
+            @Parameter(description = "业务ID") @RequestParam(required = false) Long businessId,
+            @Parameter(hidden = true) @RequestHeader(value = "userId", required = false) Long userId,
+            @Parameter(hidden = true) @RequestHeader(value = "username", required = false) String username) {
+        return Result.success(uploadSessionService.initiate(fileName, fileSize, contentType, chunkSize, sha256,
+                businessType, businessId, userId, username));
+    }
+
+    @Operation(summary = "上传分片", description = "请求体为分片原始数据，同一分片可重复上传")
+    @PutMapping("/{uploadId}/chunk/{chunkIndex}")
+    public Result<?> uploadChunk(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId,
+            @Parameter(description = "分片序号(从0开始)") @PathVariable int chunkIndex,
+            @Parameter(hidden = true) @RequestHeader(value = "userId", required = false) Long userId,
+            HttpServletRequest request) throws IOException {
+        // 直接读取请求体，分片不经过multipart解析和临时文件
+        try (InputStream inputStream = request.getInputStream()) {
+            uploadSessionService.uploadChunk(uploadId, chunkIndex, inputStream, request.getContentLengthLong(), userId);
+        }
+        return Result.success("分片上传成功");
+    }
+
+    @Operation(summary = "查询上传会话", description = "返回已上传的分片序号，用于断点续传")
+    @GetMapping("/{uploadId}")
+    public Result<UploadSessionVO> getStatus(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId,
+            @Parameter(hidden = true) @RequestHeader(value = "userId", required = false) Long userId) {
+        return Result.success(uploadSessionService.getStatus(uploadId, userId));
+    }
+
+    @Operation(summary = "完成上传", description = "合并全部分片、校验文件摘要并保存文件信息")
+    @PostMapping("/{uploadId}/complete")
+    public Result<FileInfo> complete(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId,
+            @Parameter(hidden = true) @RequestHeader(value = "userId", required = false) Long userId) {
+        return Result.success(uploadSessionService.complete(uploadId, userId));
+    }
+
+    @Operation(summary = "取消上传", description = "取消上传会话并删除已上传的分片")
+    @DeleteMapping("/{uploadId}")
+    public Result<?> abort(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId,
+            @Parameter(hidden = true) @RequestHeader(value = "userId", required = false) Long userId) {
+        uploadSessionService.abort(uploadId, userId);
+        return Result.success("已取消上传");
+    }
+}
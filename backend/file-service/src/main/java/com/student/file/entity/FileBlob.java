@@ -0,0 +1,46 @@
+package com.student.file.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.student.common.entity.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 去重存储的物理文件
+ * 内容相同的上传共用一个物理文件，ref_count为引用它的file_info记录数
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("file_blob")
+public class FileBlob extends BaseEntity {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 文件内容SHA-256(十六进制)
+     */
+    private String contentHash;
+
+    /**
+     * 存储类型: local, minio
+     */
+    private String storageType;
+
+    /**
+     * 物理文件路径
+     */
+    private String filePath;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 引用计数
+     */
+    private Integer refCount;
+}
@@ -40,6 +40,11 @@ public class FileInfo extends BaseEntity {
      */
     private String fileType;
 
+    /**
+     * 文件内容SHA-256(十六进制)，上传时计算，用作下载ETag
+     */
+    private String contentHash;
+
     /**
      * 存储类型: local, minio
      */
@@ -0,0 +1,40 @@
+package com.student.file.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.student.common.entity.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 已上传的分片
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("file_upload_chunk")
+public class FileUploadChunk extends BaseEntity {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 上传会话ID
+     */
+    private String uploadId;
+
+    /**
+     * 分片序号(从0开始)
+     */
+    private Integer chunkIndex;
+
+    /**
+     * 分片大小(字节)
+     */
+    private Long chunkSize;
+
+    /**
+     * 分片ETag(分片内容MD5)
+     */
+    private String etag;
+}
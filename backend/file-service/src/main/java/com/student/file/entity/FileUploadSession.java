@@ -0,0 +1,118 @@
+package com.student.file.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.student.common.entity.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分片上传会话
+ * 客户端先创建会话，再并行上传各分片，全部上传后请求合并；网络中断后可查询已上传的分片继续上传
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("file_upload_session")
+public class FileUploadSession extends BaseEntity {
+
+    /**
+     * 上传中
+     */
+    public static final int STATUS_UPLOADING = 0;
+
+    /**
+     * 已完成
+     */
+    public static final int STATUS_COMPLETED = 1;
+
+    /**
+     * 已取消或已过期
+     */
+    public static final int STATUS_ABORTED = 2;
+
+    /**
+     * 合并中
+     */
+    public static final int STATUS_COMPLETING = 3;
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 上传会话ID(UUID)
+     */
+    private String uploadId;
+
+    /**
+     * 原始文件名(已清理)
+     */
+    private String fileName;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 文件类型(MIME)
+     */
+    private String contentType;
+
+    /**
+     * 分片大小(字节，最后一片可以更小)
+     */
+    private Long chunkSize;
+
+    /**
+     * 分片数量
+     */
+    private Integer totalChunks;
+
+    /**
+     * 存储类型: local, minio
+     */
+    private String storageType;
+
+    /**
+     * 客户端提供的文件SHA-256，合并后校验
+     */
+    private String expectedHash;
+
+    /**
+     * 业务类型
+     */
+    private String businessType;
+
+    /**
+     * 业务ID
+     */
+    private Long businessId;
+
+    /**
+     * 上传用户ID
+     */
+    private Long uploadUserId;
+
+    /**
+     * 上传用户名
+     */
+    private String uploadUserName;
+
+    /**
+     * 状态: 0-上传中 1-已完成 2-已取消 3-合并中
+     */
+    private Integer status;
+
+    /**
+     * 合并完成后的文件ID
+     */
+    private Long fileId;
+
+    /**
+     * 过期时间，过期未完成的会话由定时任务清理
+     */
+    private LocalDateTime expireTime;
+}
@@ -0,0 +1,37 @@
+package com.student.file.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.student.file.entity.FileBlob;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+@Mapper
+public interface FileBlobMapper extends BaseMapper<FileBlob> {
+
+    /**
+     * 登记一次引用：不存在则插入（引用计数为1），已存在则引用计数加1
+     *
+     * @return 1 表示新插入（调用方需要写入物理文件），2 表示已存在
+     */
+    @Insert("INSERT INTO file_blob (content_hash, storage_type, file_path, file_size, ref_count) " +
+            "VALUES (#{contentHash}, #{storageType}, #{filePath}, #{fileSize}, 1) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1")
+    int acquire(FileBlob blob);
+
+    /**
+     * 加锁读取物理文件记录（与acquire互斥，保证删除物理文件时没有新的引用）
+     */
+    @Select("SELECT * FROM file_blob " +
+            "WHERE content_hash = #{contentHash} AND storage_type = #{storageType} FOR UPDATE")
+    FileBlob selectForUpdate(@Param("contentHash") String contentHash,
+                             @Param("storageType") String storageType);
+
+    /**
+     * 释放一次引用
+     */
+    @Update("UPDATE file_blob SET ref_count = ref_count - 1 WHERE id = #{id} AND ref_count > 0")
+    int release(@Param("id") Long id);
+}
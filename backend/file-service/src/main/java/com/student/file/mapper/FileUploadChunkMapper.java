@@ -0,0 +1,28 @@
+package com.student.file.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.student.file.entity.FileUploadChunk;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface FileUploadChunkMapper extends BaseMapper<FileUploadChunk> {
+
+    /**
+     * 记录已上传的分片，同一分片重传时覆盖
+     */
+    @Insert("INSERT INTO file_upload_chunk (upload_id, chunk_index, chunk_size, etag) " +
+            "VALUES (#{uploadId}, #{chunkIndex}, #{chunkSize}, #{etag}) " +
+            "ON DUPLICATE KEY UPDATE chunk_size = VALUES(chunk_size), etag = VALUES(etag), update_time = NOW()")
+    int upsert(FileUploadChunk chunk);
+
+    /**
+     * 按序号查询会话已上传的分片
+     */
+    @Select("SELECT * FROM file_upload_chunk WHERE upload_id = #{uploadId} ORDER BY chunk_index")
+    List<FileUploadChunk> selectByUploadId(@Param("uploadId") String uploadId);
+}
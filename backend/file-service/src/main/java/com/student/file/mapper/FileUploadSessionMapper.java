@@ -0,0 +1,51 @@
+package com.student.file.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.student.file.entity.FileUploadSession;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface FileUploadSessionMapper extends BaseMapper<FileUploadSession> {
+
+    /**
+     * 按期望状态切换会话状态（并发的合并/取消请求只有一个能成功）
+     *
+     * @return 更新的行数，0表示会话不在期望状态
+     */
+    @Update("UPDATE file_upload_session SET status = #{target}, update_time = NOW() " +
+            "WHERE upload_id = #{uploadId} AND status = #{expected}")
+    int compareAndSetStatus(@Param("uploadId") String uploadId,
+                            @Param("expected") int expected,
+                            @Param("target") int target);
+
+    /**
+     * 查询已过期仍未完成的会话
+     */
+    @Select("SELECT * FROM file_upload_session " +
+            "WHERE status = 0 AND expire_time < #{now} ORDER BY id LIMIT #{limit}")
+    List<FileUploadSession> selectExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 查询合并中停留过久的会话（合并或计算摘要时进程退出遗留）
+     *
+     * @param before 最后更新时间早于该时间才视为遗留
+     */
+    @Select("SELECT * FROM file_upload_session " +
+            "WHERE status = 3 AND update_time < #{before} ORDER BY id LIMIT #{limit}")
+    List<FileUploadSession> selectStaleCompleting(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 取消合并中停留过久的会话（条件与selectStaleCompleting相同，会话期间重新开始合并时不会被取消）
+     *
+     * @return 更新的行数，0表示会话已不再遗留
+     */
+    @Update("UPDATE file_upload_session SET status = 2, update_time = NOW() " +
+            "WHERE upload_id = #{uploadId} AND status = 3 AND update_time < #{before}")
+    int abortStaleCompleting(@Param("uploadId") String uploadId, @Param("before") LocalDateTime before);
+}
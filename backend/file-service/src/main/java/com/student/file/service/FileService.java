@@ -2,7 +2,9 @@ package com.student.file.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.student.common.exception.BusinessException;
+import com.student.file.entity.FileBlob;
 import com.student.file.entity.FileInfo;
+import com.student.file.mapper.FileBlobMapper;
 import com.student.file.mapper.FileInfoMapper;
 import com.student.file.strategy.FileStorageStrategy;
 import com.student.file.util.FileValidationUtil;
@@ -10,10 +12,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,12 +34,26 @@ import java.util.UUID;
 @Service
 public class FileService {
 
+    private static final String BLOB_PREFIX = "cas/";
+
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
+    @Autowired
+    private FileBlobMapper fileBlobMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Value("${file.storage-type}")
     private String storageType;
 
+    /**
+     * 是否启用按内容去重的存储
+     */
+    @Value("${file.dedup.enabled:false}")
+    private boolean dedupEnabled;
+
     @Resource(name = "localStorageStrategy")
     private FileStorageStrategy localStorageStrategy;
 
@@ -36,13 +63,27 @@ public class FileService {
     /**
      * 获取当前存储策略
      */
-    private FileStorageStrategy getStorageStrategy() {
-        if ("minio".equalsIgnoreCase(storageType)) {
+    public FileStorageStrategy getStorageStrategy() {
+        return getStorageStrategy(storageType);
+    }
+
+    /**
+     * 获取指定存储类型的存储策略
+     */
+    public FileStorageStrategy getStorageStrategy(String type) {
+        if ("minio".equalsIgnoreCase(type)) {
             return minioStorageStrategy;
         }
         return localStorageStrategy;
     }
 
+    /**
+     * 当前存储类型
+     */
+    public String getStorageType() {
+        return storageType;
+    }
+
     /**
      * 上传文件（已添加安全清理）
      */
@@ -64,25 +105,21 @@ public class FileService {
             }
             String storageName = UUID.randomUUID().toString() + extension;
 
-            // 3. 上传文件到存储系统
             FileStorageStrategy strategy = getStorageStrategy();
+            if (dedupEnabled) {
+                return uploadDeduplicated(file, strategy, sanitizedName, businessType, businessId, userId, username);
+            }
+
+            // 3. 计算内容摘要（下载时作为ETag）
+            String contentHash = computeContentHash(file);
+
+            // 4. 上传文件到存储系统
             String filePath = strategy.upload(file, storageName);
             String accessUrl = strategy.getAccessUrl(filePath);
 
-            // 4. 保存文件信息到数据库（使用清理后的文件名）
-            FileInfo fileInfo = new FileInfo();
-            fileInfo.setOriginalName(sanitizedName);  // 使用清理后的文件名
-            fileInfo.setStorageName(storageName);
-            fileInfo.setFilePath(filePath);
-            fileInfo.setFileSize(file.getSize());
-            fileInfo.setFileType(file.getContentType());
-            fileInfo.setStorageType(storageType);
-            fileInfo.setAccessUrl(accessUrl);
-            fileInfo.setUploadUserId(userId);
-            fileInfo.setUploadUserName(username);
-            fileInfo.setBusinessType(businessType);
-            fileInfo.setBusinessId(businessId);
-
+            // 5. 保存文件信息到数据库（使用清理后的文件名）
+            FileInfo fileInfo = buildFileInfo(file.getSize(), file.getContentType(), sanitizedName, storageName,
+                    filePath, contentHash, accessUrl, businessType, businessId, userId, username);
             fileInfoMapper.insert(fileInfo);
 
             log.info("文件上传成功: {} -> {} (清理前: {})", sanitizedName, filePath, originalName);
@@ -93,6 +130,162 @@ public class FileService {
         }
     }
 
+    /**
+     * 去重存储模式上传
+     *
+     * 上传流边写入临时位置边计算SHA-256，摘要算出后再按内容登记引用并写入file_info
+     */
+    private FileInfo uploadDeduplicated(MultipartFile file, FileStorageStrategy strategy, String sanitizedName,
+                                        String businessType, Long businessId, Long userId, String username)
+            throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String tempPath;
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            tempPath = strategy.storeTemp(inputStream, file.getSize(), file.getContentType());
+        }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+
+        return saveFromTemp(strategy, tempPath, contentHash, file.getSize(), file.getContentType(),
+                sanitizedName, businessType, businessId, userId, username);
+    }
+
+    /**
+     * 把已写入临时位置的文件保存为正式文件并写入file_info
+     *
+     * 去重存储模式下在同一事务内登记引用：首次出现的内容把临时文件移动到按摘要命名的路径，
+     * 已存在的内容直接丢弃临时文件；file_blob行锁保证登记引用与删除最后一个引用互斥。
+     * 普通模式下移动到按日期划分的路径。失败时删除临时文件。
+     *
+     * @param strategy    存储策略
+     * @param tempPath    临时文件路径
+     * @param contentHash 文件内容SHA-256
+     * @return 文件信息
+     */
+    public FileInfo saveFromTemp(FileStorageStrategy strategy, String tempPath, String contentHash, long fileSize,
+                                 String contentType, String sanitizedName, String businessType, Long businessId,
+                                 Long userId, String username) {
+        String targetPath;
+        String storageName;
+        if (dedupEnabled) {
+            storageName = contentHash;
+            targetPath = BLOB_PREFIX + contentHash.substring(0, 2) + "/" + contentHash;
+        } else {
+            storageName = UUID.randomUUID().toString() + FileValidationUtil.getFileExtension(sanitizedName);
+            targetPath = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd")) + "/" + storageName;
+        }
+
+        FileInfo fileInfo = buildFileInfo(fileSize, contentType, sanitizedName, storageName, targetPath, contentHash,
+                strategy.getAccessUrl(targetPath), businessType, businessId, userId, username);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                boolean created = true;
+                if (dedupEnabled) {
+                    FileBlob blob = new FileBlob();
+                    blob.setContentHash(contentHash);
+                    blob.setStorageType(storageType);
+                    blob.setFilePath(targetPath);
+                    blob.setFileSize(fileSize);
+                    created = fileBlobMapper.acquire(blob) == 1;
+                }
+                try {
+                    if (created) {
+                        strategy.promote(tempPath, targetPath);
+                    } else {
+                        strategy.delete(tempPath);
+                    }
+                } catch (Exception e) {
+                    throw new BusinessException("保存文件失败: " + e.getMessage());
+                }
+                fileInfoMapper.insert(fileInfo);
+                if (dedupEnabled) {
+                    log.info("去重存储: hash={}, 新内容={}", contentHash, created);
+                }
+            });
+        } catch (RuntimeException e) {
+            deleteQuietly(strategy, tempPath);
+            throw e;
+        }
+
+        log.info("文件上传成功: {} -> {}", sanitizedName, targetPath);
+        return fileInfo;
+    }
+
+    private FileInfo buildFileInfo(long fileSize, String contentType, String sanitizedName, String storageName,
+                                   String filePath, String contentHash, String accessUrl, String businessType,
+                                   Long businessId, Long userId, String username) {
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setOriginalName(sanitizedName);  // 使用清理后的文件名
+        fileInfo.setStorageName(storageName);
+        fileInfo.setFilePath(filePath);
+        fileInfo.setFileSize(fileSize);
+        fileInfo.setFileType(contentType);
+        fileInfo.setContentHash(contentHash);
+        fileInfo.setStorageType(storageType);
+        fileInfo.setAccessUrl(accessUrl);
+        fileInfo.setUploadUserId(userId);
+        fileInfo.setUploadUserName(username);
+        fileInfo.setBusinessType(businessType);
+        fileInfo.setBusinessId(businessId);
+        return fileInfo;
+    }
+
+    private void deleteQuietly(FileStorageStrategy strategy, String filePath) {
+        try {
+            strategy.delete(filePath);
+        } catch (Exception e) {
+            log.warn("删除文件失败: {}", filePath, e);
+        }
+    }
+
+    /**
+     * 删除已没有引用的去重文件
+     *
+     * 在新事务中加锁确认file_blob中仍无该内容：记录不存在时FOR UPDATE持有唯一索引上的间隙锁，
+     * 删除完成前并发上传的acquire会等待；期间已有新的上传登记了该内容则保留文件（已被重新写入）。
+     */
+    private void deleteUnreferencedBlob(FileStorageStrategy strategy, FileBlob blob) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (fileBlobMapper.selectForUpdate(blob.getContentHash(), blob.getStorageType()) != null) {
+                    log.info("文件内容已被重新引用，保留物理文件: hash={}", blob.getContentHash());
+                    return;
+                }
+                deleteQuietly(strategy, blob.getFilePath());
+            });
+        } catch (Exception e) {
+            log.warn("删除去重文件失败: hash={}", blob.getContentHash(), e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 计算文件内容的SHA-256摘要
+     */
+    private String computeContentHash(MultipartFile file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = file.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     /**
      * 下载文件
      */
@@ -139,6 +332,31 @@ public class FileService {
         }
     }
 
+    /**
+     * 获取文件在本地存储中的物理文件
+     *
+     * @return 本地文件，Minio存储或文件不存在时返回null
+     */
+    public File getLocalFile(FileInfo fileInfo) {
+        if ("minio".equalsIgnoreCase(fileInfo.getStorageType())) {
+            return null;
+        }
+        return localStorageStrategy.getLocalFile(fileInfo.getFilePath());
+    }
+
+    /**
+     * 获取下载重定向地址（Minio大文件返回预签名URL，由客户端直接下载）
+     *
+     * @param fileInfo   文件信息
+     * @param attachment 是否作为附件下载（在线播放时为false）
+     * @return 重定向地址，不需要重定向时返回null
+     */
+    public String getDownloadRedirectUrl(FileInfo fileInfo, boolean attachment) {
+        FileStorageStrategy strategy = getStorageStrategy(fileInfo.getStorageType());
+        return strategy.getDownloadRedirectUrl(fileInfo.getFilePath(), fileInfo.getFileSize(),
+                fileInfo.getFileType(), attachment ? fileInfo.getOriginalName() : null);
+    }
+
     /**
      * 删除文件
      */
@@ -157,17 +375,34 @@ public class FileService {
         }
 
         try {
-            // 删除物理文件
             FileStorageStrategy strategy;
             if ("minio".equalsIgnoreCase(fileInfo.getStorageType())) {
                 strategy = minioStorageStrategy;
             } else {
                 strategy = localStorageStrategy;
             }
-            strategy.delete(fileInfo.getFilePath());
 
-            // 删除数据库记录
-            fileInfoMapper.deleteById(fileId);
+            transactionTemplate.executeWithoutResult(status -> {
+                // 删除数据库记录
+                fileInfoMapper.deleteById(fileId);
+
+                // 删除物理文件：去重存储的文件只在最后一个引用删除时才删除；
+                // 存储删除放到事务提交后执行，事务回滚时物理文件仍在
+                FileBlob blob = fileInfo.getContentHash() == null ? null
+                        : fileBlobMapper.selectForUpdate(fileInfo.getContentHash(), fileInfo.getStorageType());
+                if (blob != null && blob.getFilePath().equals(fileInfo.getFilePath())) {
+                    fileBlobMapper.release(blob.getId());
+                    if (blob.getRefCount() <= 1) {
+                        fileBlobMapper.deleteById(blob.getId());
+                        afterCommit(() -> deleteUnreferencedBlob(strategy, blob));
+                    } else {
+                        log.info("文件内容仍被引用，保留物理文件: hash={}, refCount={}",
+                                blob.getContentHash(), blob.getRefCount() - 1);
+                    }
+                } else {
+                    afterCommit(() -> deleteQuietly(strategy, fileInfo.getFilePath()));
+                }
+            });
 
             log.info("文件删除成功: {}", fileInfo.getOriginalName());
         } catch (Exception e) {
@@ -0,0 +1,415 @@
+package com.student.file.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.student.common.exception.BusinessException;
+import com.student.file.entity.FileInfo;
+import com.student.file.entity.FileUploadChunk;
+import com.student.file.entity.FileUploadSession;
+import com.student.file.mapper.FileUploadChunkMapper;
+import com.student.file.mapper.FileUploadSessionMapper;
+import com.student.file.strategy.FileStorageStrategy;
+import com.student.file.util.FileValidationUtil;
+import com.student.file.vo.UploadSessionVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 分片上传服务
+ *
+ * 大文件（如课程录像）按固定大小切分，各分片由存储策略直接保存（本地为分片文件，Minio为分片对象），
+ * 客户端可以并行上传；已上传的分片记录在file_upload_chunk中，网络中断后查询会话即可只补传缺少的分片。
+ * 全部分片上传后在存储端按序合并，计算整个文件的SHA-256并与客户端提供的摘要比对，再写入file_info。
+ */
+@Slf4j
+@Service
+public class UploadSessionService {
+
+    /**
+     * 单个会话的最大分片数（与S3/Minio分片上传的上限一致）
+     */
+    private static final int MAX_CHUNKS = 10000;
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("^[0-9a-fA-F]{64}$");
+
+    @Autowired
+    private FileUploadSessionMapper sessionMapper;
+
+    @Autowired
+    private FileUploadChunkMapper chunkMapper;
+
+    @Autowired
+    private FileService fileService;
+
+    /**
+     * 分片上传允许的最大文件大小，默认4GB
+     */
+    @Value("${file.chunked.max-file-size:4294967296}")
+    private long maxFileSize;
+
+    /**
+     * 默认分片大小，默认8MB
+     */
+    @Value("${file.chunked.default-chunk-size:8388608}")
+    private long defaultChunkSize;
+
+    /**
+     * 最小分片大小，默认5MB（Minio合并分片时除最后一片外不能小于5MB）
+     */
+    @Value("${file.chunked.min-chunk-size:5242880}")
+    private long minChunkSize;
+
+    /**
+     * 最大分片大小，默认64MB
+     */
+    @Value("${file.chunked.max-chunk-size:67108864}")
+    private long maxChunkSize;
+
+    /**
+     * 会话有效期（小时）
+     */
+    @Value("${file.chunked.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    /**
+     * 合并中超过该时间（分钟）仍未结束的会话视为进程退出遗留，默认120分钟
+     */
+    @Value("${file.chunked.completing-timeout-minutes:120}")
+    private long completingTimeoutMinutes;
+
+    /**
+     * 创建上传会话
+     *
+     * @param fileName     文件名
+     * @param fileSize     文件大小(字节)
+     * @param contentType  文件类型
+     * @param chunkSize    分片大小，为空时使用默认值
+     * @param expectedHash 文件SHA-256，可为空；提供时合并后校验
+     * @return 会话状态
+     */
+    public UploadSessionVO initiate(String fileName, long fileSize, String contentType, Long chunkSize,
+                                    String expectedHash, String businessType, Long businessId,
+                                    Long userId, String username) {
+        if (userId == null) {
+            throw new BusinessException("未登录，无法创建上传会话");
+        }
+        FileValidationUtil.validateFileMeta(fileName, contentType, fileSize, maxFileSize);
+
+        long size = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (size < minChunkSize || size > maxChunkSize) {
+            throw new BusinessException(String.format("分片大小需在 %s 到 %s 之间",
+                    FileValidationUtil.formatFileSize(minChunkSize), FileValidationUtil.formatFileSize(maxChunkSize)));
+        }
+        long totalChunks = (fileSize + size - 1) / size;
+        if (totalChunks > MAX_CHUNKS) {
+            throw new BusinessException("分片数量超过限制，请增大分片大小");
+        }
+        if (expectedHash != null && !SHA256_PATTERN.matcher(expectedHash).matches()) {
+            throw new BusinessException("文件摘要格式错误，应为SHA-256十六进制字符串");
+        }
+
+        FileUploadSession session = new FileUploadSession();
+        session.setUploadId(UUID.randomUUID().toString().replace("-", ""));
+        session.setFileName(FileValidationUtil.sanitizeFileName(fileName));
+        session.setFileSize(fileSize);
+        session.setContentType(contentType);
+        session.setChunkSize(size);
+        session.setTotalChunks((int) totalChunks);
+        session.setStorageType(fileService.getStorageType());
+        session.setExpectedHash(expectedHash == null ? null : expectedHash.toLowerCase());
+        session.setBusinessType(businessType);
+        session.setBusinessId(businessId);
+        session.setUploadUserId(userId);
+        session.setUploadUserName(username);
+        session.setStatus(FileUploadSession.STATUS_UPLOADING);
+        session.setExpireTime(LocalDateTime.now().plusHours(sessionTtlHours));
+        sessionMapper.insert(session);
+
+        log.info("创建分片上传会话: uploadId={}, fileName={}, size={}, chunks={}",
+                session.getUploadId(), session.getFileName(),
+                FileValidationUtil.formatFileSize(fileSize), totalChunks);
+        return toVO(session, new ArrayList<>());
+    }
+
+    /**
+     * 上传一个分片（同一分片可以重复上传，以最后一次为准）
+     *
+     * 写入期间会话可能已开始合并或被取消，写入后再检查一次状态：合并中的会话由合并结束时统一清理，
+     * 已结束的会话立即删除分片，不留下无人引用的分片
+     *
+     * @param uploadId      会话ID
+     * @param chunkIndex    分片序号(从0开始)
+     * @param inputStream   分片数据
+     * @param contentLength 请求体长度
+     */
+    public void uploadChunk(String uploadId, int chunkIndex, InputStream inputStream, long contentLength,
+                            Long userId) {
+        FileUploadSession session = getOwnedSession(uploadId, userId);
+        if (session.getStatus() != FileUploadSession.STATUS_UPLOADING) {
+            throw new BusinessException("上传会话已结束");
+        }
+        if (session.getExpireTime().isBefore(LocalDateTime.now())) {
+            throw new BusinessException("上传会话已过期");
+        }
+        if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+            throw new BusinessException("分片序号超出范围");
+        }
+        long expectedSize = expectedChunkSize(session, chunkIndex);
+        if (contentLength != expectedSize) {
+            throw new BusinessException(String.format("分片大小不正确，分片 %d 应为 %d 字节", chunkIndex, expectedSize));
+        }
+
+        FileStorageStrategy strategy = fileService.getStorageStrategy(session.getStorageType());
+        String etag;
+        try {
+            etag = strategy.storePart(uploadId, chunkIndex, inputStream, expectedSize);
+        } catch (Exception e) {
+            log.error("分片上传失败: uploadId={}, chunkIndex={}", uploadId, chunkIndex, e);
+            throw new BusinessException("分片上传失败: " + e.getMessage());
+        }
+
+        FileUploadChunk chunk = new FileUploadChunk();
+        chunk.setUploadId(uploadId);
+        chunk.setChunkIndex(chunkIndex);
+        chunk.setChunkSize(expectedSize);
+        chunk.setEtag(etag);
+        chunkMapper.upsert(chunk);
+
+        FileUploadSession current = sessionMapper.selectById(session.getId());
+        if (current.getStatus() != FileUploadSession.STATUS_UPLOADING) {
+            if (current.getStatus() != FileUploadSession.STATUS_COMPLETING) {
+                cleanUp(current);
+            }
+            log.warn("分片写入时会话已结束: uploadId={}, chunkIndex={}, status={}",
+                    uploadId, chunkIndex, current.getStatus());
+            throw new BusinessException("上传会话已结束");
+        }
+
+        log.debug("分片上传成功: uploadId={}, chunkIndex={}, etag={}", uploadId, chunkIndex, etag);
+    }
+
+    /**
+     * 查询会话状态（断点续传时据此补传缺少的分片）
+     */
+    public UploadSessionVO getStatus(String uploadId, Long userId) {
+        FileUploadSession session = getOwnedSession(uploadId, userId);
+        List<Integer> uploaded = new ArrayList<>();
+        for (FileUploadChunk chunk : chunkMapper.selectByUploadId(uploadId)) {
+            uploaded.add(chunk.getChunkIndex());
+        }
+        return toVO(session, uploaded);
+    }
+
+    /**
+     * 合并分片并保存文件
+     *
+     * 已完成的会话重复调用时直接返回文件信息，客户端在合并响应丢失后可以安全重试
+     */
+    public FileInfo complete(String uploadId, Long userId) {
+        FileUploadSession session = getOwnedSession(uploadId, userId);
+        if (session.getStatus() == FileUploadSession.STATUS_COMPLETED) {
+            return fileService.getById(session.getFileId());
+        }
+
+        List<FileUploadChunk> chunks = chunkMapper.selectByUploadId(uploadId);
+        if (chunks.size() != session.getTotalChunks()) {
+            throw new BusinessException(String.format("分片未上传完整: 已上传 %d/%d",
+                    chunks.size(), session.getTotalChunks()));
+        }
+
+        if (sessionMapper.compareAndSetStatus(uploadId,
+                FileUploadSession.STATUS_UPLOADING, FileUploadSession.STATUS_COMPLETING) == 0) {
+            throw new BusinessException("上传会话正在合并或已结束");
+        }
+
+        FileStorageStrategy strategy = fileService.getStorageStrategy(session.getStorageType());
+        String tempPath;
+        try {
+            tempPath = strategy.composeParts(uploadId, session.getTotalChunks(), session.getContentType());
+        } catch (Exception e) {
+            // 合并失败时分片仍在，恢复为上传中以便重试
+            sessionMapper.compareAndSetStatus(uploadId,
+                    FileUploadSession.STATUS_COMPLETING, FileUploadSession.STATUS_UPLOADING);
+            log.error("分片合并失败: uploadId={}", uploadId, e);
+            throw new BusinessException("分片合并失败: " + e.getMessage());
+        }
+
+        // 合并成功后分片已删除，之后失败只能取消会话
+        try {
+            String contentHash = computeContentHash(strategy, tempPath);
+            if (session.getExpectedHash() != null && !session.getExpectedHash().equals(contentHash)) {
+                deleteQuietly(strategy, tempPath);
+                throw new BusinessException("文件校验失败，请重新上传");
+            }
+
+            FileInfo fileInfo = fileService.saveFromTemp(strategy, tempPath, contentHash, session.getFileSize(),
+                    session.getContentType(), session.getFileName(), session.getBusinessType(),
+                    session.getBusinessId(), session.getUploadUserId(), session.getUploadUserName());
+
+            FileUploadSession update = new FileUploadSession();
+            update.setId(session.getId());
+            update.setStatus(FileUploadSession.STATUS_COMPLETED);
+            update.setFileId(fileInfo.getId());
+            sessionMapper.updateById(update);
+            // 合并时已删除分片，再清理一次合并期间写入的迟到分片
+            cleanUp(session);
+
+            log.info("分片上传完成: uploadId={}, fileId={}, hash={}", uploadId, fileInfo.getId(), contentHash);
+            return fileInfo;
+        } catch (BusinessException e) {
+            markAborted(uploadId, FileUploadSession.STATUS_COMPLETING);
+            cleanUp(session);
+            throw e;
+        } catch (Exception e) {
+            markAborted(uploadId, FileUploadSession.STATUS_COMPLETING);
+            cleanUp(session);
+            deleteQuietly(strategy, tempPath);
+            log.error("分片上传完成失败: uploadId={}", uploadId, e);
+            throw new BusinessException("文件保存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 取消上传会话并删除已上传的分片
+     */
+    public void abort(String uploadId, Long userId) {
+        FileUploadSession session = getOwnedSession(uploadId, userId);
+        if (!markAborted(uploadId, FileUploadSession.STATUS_UPLOADING)) {
+            throw new BusinessException("上传会话已结束");
+        }
+        cleanUp(session);
+        log.info("取消分片上传: uploadId={}", uploadId);
+    }
+
+    /**
+     * 清理过期未完成的会话
+     *
+     * @param limit 本次最多清理的会话数
+     * @return 清理的会话数
+     */
+    public int cleanExpiredSessions(int limit) {
+        int cleaned = 0;
+        for (FileUploadSession session : sessionMapper.selectExpired(LocalDateTime.now(), limit)) {
+            if (markAborted(session.getUploadId(), FileUploadSession.STATUS_UPLOADING)) {
+                cleanUp(session);
+                cleaned++;
+            }
+        }
+        return cleaned;
+    }
+
+    /**
+     * 清理合并中停留过久的会话：合并或计算摘要期间进程退出时，会话停留在合并中，
+     * 客户端既不能重试也不能取消，分片和合并结果也不会被其他清理任务删除
+     *
+     * @param limit 本次最多清理的会话数
+     * @return 清理的会话数
+     */
+    public int cleanStaleCompletingSessions(int limit) {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(completingTimeoutMinutes);
+        int cleaned = 0;
+        for (FileUploadSession session : sessionMapper.selectStaleCompleting(before, limit)) {
+            if (sessionMapper.abortStaleCompleting(session.getUploadId(), before) == 0) {
+                continue;
+            }
+            cleanUp(session);
+            FileStorageStrategy strategy = fileService.getStorageStrategy(session.getStorageType());
+            try {
+                strategy.deleteComposed(session.getUploadId());
+            } catch (Exception e) {
+                log.warn("删除合并结果失败: uploadId={}", session.getUploadId(), e);
+            }
+            log.warn("合并中遗留的分片上传会话已取消: uploadId={}", session.getUploadId());
+            cleaned++;
+        }
+        return cleaned;
+    }
+
+    private FileUploadSession getOwnedSession(String uploadId, Long userId) {
+        LambdaQueryWrapper<FileUploadSession> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(FileUploadSession::getUploadId, uploadId);
+        FileUploadSession session = sessionMapper.selectOne(wrapper);
+        if (session == null) {
+            throw new BusinessException("上传会话不存在");
+        }
+        // 会话创建时必须有上传人，没有上传人的会话一律拒绝
+        if (session.getUploadUserId() == null || !session.getUploadUserId().equals(userId)) {
+            throw new BusinessException("无权访问该上传会话");
+        }
+        return session;
+    }
+
+    private long expectedChunkSize(FileUploadSession session, int chunkIndex) {
+        if (chunkIndex < session.getTotalChunks() - 1) {
+            return session.getChunkSize();
+        }
+        return session.getFileSize() - session.getChunkSize() * (session.getTotalChunks() - 1);
+    }
+
+    /**
+     * 读取合并后的文件计算SHA-256（分片并行、乱序到达，无法在接收时增量计算整个文件的摘要）
+     */
+    private String computeContentHash(FileStorageStrategy strategy, String filePath) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[256 * 1024];
+        try (InputStream inputStream = strategy.download(filePath)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private boolean markAborted(String uploadId, int expected) {
+        return sessionMapper.compareAndSetStatus(uploadId, expected, FileUploadSession.STATUS_ABORTED) > 0;
+    }
+
+    private void cleanUp(FileUploadSession session) {
+        FileStorageStrategy strategy = fileService.getStorageStrategy(session.getStorageType());
+        try {
+            strategy.deleteParts(session.getUploadId(), session.getTotalChunks());
+        } catch (Exception e) {
+            log.warn("删除分片失败: uploadId={}", session.getUploadId(), e);
+        }
+        deleteChunkRecords(session.getUploadId());
+    }
+
+    private void deleteChunkRecords(String uploadId) {
+        LambdaQueryWrapper<FileUploadChunk> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(FileUploadChunk::getUploadId, uploadId);
+        chunkMapper.delete(wrapper);
+    }
+
+    private void deleteQuietly(FileStorageStrategy strategy, String filePath) {
+        try {
+            strategy.delete(filePath);
+        } catch (Exception e) {
+            log.warn("清理临时文件失败: {}", filePath, e);
+        }
+    }
+
+    private UploadSessionVO toVO(FileUploadSession session, List<Integer> uploadedChunks) {
+        UploadSessionVO vo = new UploadSessionVO();
+        vo.setUploadId(session.getUploadId());
+        vo.setFileName(session.getFileName());
+        vo.setFileSize(session.getFileSize());
+        vo.setChunkSize(session.getChunkSize());
+        vo.setTotalChunks(session.getTotalChunks());
+        vo.setUploadedChunks(uploadedChunks);
+        vo.setStatus(session.getStatus());
+        vo.setFileId(session.getFileId());
+        vo.setExpireTime(session.getExpireTime());
+        return vo;
+    }
+}
@@ -2,7 +2,9 @@ package com.student.file.strategy;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.InputStream;
+import java.time.Instant;
 
 /**
  * 文件存储策略接口
@@ -17,6 +19,62 @@ public interface FileStorageStrategy {
      */
     String upload(MultipartFile file, String storageName) throws Exception;
 
+    /**
+     * 将数据流写入临时位置（去重存储模式下，算出内容摘要之前先写到这里）
+     * @param inputStream 数据流
+     * @param size 数据大小
+     * @param contentType MIME类型
+     * @return 临时文件路径
+     */
+    String storeTemp(InputStream inputStream, long size, String contentType) throws Exception;
+
+    /**
+     * 将临时文件移动到最终路径
+     * @param tempPath 临时文件路径
+     * @param targetPath 最终路径
+     */
+    void promote(String tempPath, String targetPath) throws Exception;
+
+    /**
+     * 保存分片上传的一个分片
+     * @param uploadId 上传会话ID
+     * @param chunkIndex 分片序号（从0开始）
+     * @param inputStream 分片数据流
+     * @param size 分片大小
+     * @return 分片ETag（分片内容MD5）
+     */
+    String storePart(String uploadId, int chunkIndex, InputStream inputStream, long size) throws Exception;
+
+    /**
+     * 按序号合并全部分片到临时位置，合并成功后删除分片
+     * @param uploadId 上传会话ID
+     * @param totalChunks 分片数量
+     * @param contentType MIME类型
+     * @return 合并后的临时文件路径（之后通过promote移动到最终路径）
+     */
+    String composeParts(String uploadId, int totalChunks, String contentType) throws Exception;
+
+    /**
+     * 删除上传会话的全部分片
+     * @param uploadId 上传会话ID
+     * @param totalChunks 分片数量
+     */
+    void deleteParts(String uploadId, int totalChunks) throws Exception;
+
+    /**
+     * 删除composeParts的合并结果（合并或校验期间进程退出时遗留，不存在时忽略）
+     * @param uploadId 上传会话ID
+     */
+    void deleteComposed(String uploadId) throws Exception;
+
+    /**
+     * 删除临时位置下早于指定时间的文件（上传中途进程退出时遗留的临时文件、合并结果），
+     * 不包括分片目录，分片由过期会话清理任务删除
+     * @param olderThan 最后修改时间早于该时间的才删除
+     * @return 删除的文件数
+     */
+    int deleteStaleTemp(Instant olderThan) throws Exception;
+
     /**
      * 下载文件
      * @param filePath 文件路径
@@ -33,6 +91,27 @@ public interface FileStorageStrategy {
      */
     InputStream downloadRange(String filePath, long start, long end) throws Exception;
 
+    /**
+     * 获取本地文件（用于零拷贝发送和按区间响应）
+     * @param filePath 文件路径
+     * @return 本地文件，非本地存储或文件不存在时返回null
+     */
+    default File getLocalFile(String filePath) {
+        return null;
+    }
+
+    /**
+     * 获取下载重定向地址（对象存储的大文件由客户端直接下载，不经过file-service）
+     * @param filePath 文件路径
+     * @param fileSize 文件大小
+     * @param contentType 响应的MIME类型
+     * @param attachmentName 作为附件下载时的文件名，在线播放时为null
+     * @return 重定向地址，不支持或未启用时返回null
+     */
+    default String getDownloadRedirectUrl(String filePath, long fileSize, String contentType, String attachmentName) {
+        return null;
+    }
+
     /**
      * 删除文件
      * @param filePath 文件路径
@@ -8,13 +8,24 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * 本地硬盘存储策略
@@ -23,6 +34,10 @@ import java.time.format.DateTimeFormatter;
 @Component("localStorageStrategy")
 public class LocalStorageStrategy implements FileStorageStrategy {
 
+    private static final String TEMP_DIR = "tmp";
+
+    private static final String PART_DIR = TEMP_DIR + File.separator + "upload";
+
     @Value("${file.local.upload-path}")
     private String uploadPath;
 
@@ -50,6 +65,122 @@ public class LocalStorageStrategy implements FileStorageStrategy {
         return filePath;
     }
 
+    @Override
+    public String storeTemp(InputStream inputStream, long size, String contentType) throws Exception {
+        String filePath = TEMP_DIR + File.separator + UUID.randomUUID();
+        Path tempFile = Paths.get(uploadPath, filePath);
+        Files.createDirectories(tempFile.getParent());
+        Files.copy(inputStream, tempFile);
+        return filePath;
+    }
+
+    @Override
+    public void promote(String tempPath, String targetPath) throws Exception {
+        Path source = Paths.get(uploadPath, tempPath);
+        Path target = Paths.get(uploadPath, targetPath);
+        Files.createDirectories(target.getParent());
+        // 临时目录与目标目录在同一文件系统下，移动是原子的
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("文件已保存到本地: {}", target.toAbsolutePath());
+    }
+
+    @Override
+    public String storePart(String uploadId, int chunkIndex, InputStream inputStream, long size) throws Exception {
+        Path partDir = Paths.get(uploadPath, PART_DIR, uploadId);
+        Files.createDirectories(partDir);
+
+        // 先写到唯一的临时文件再原子移动，同一分片重传时不会读到写了一半的文件
+        Path partFile = partDir.resolve(partName(chunkIndex));
+        Path writing = partDir.resolve(partName(chunkIndex) + "." + UUID.randomUUID() + ".uploading");
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        try {
+            long written;
+            try (InputStream in = new DigestInputStream(inputStream, digest)) {
+                written = Files.copy(in, writing);
+            }
+            if (written != size) {
+                throw new IOException("分片大小不一致: 期望 " + size + "，实际 " + written);
+            }
+            Files.move(writing, partFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(writing);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Override
+    public String composeParts(String uploadId, int totalChunks, String contentType) throws Exception {
+        Path partDir = Paths.get(uploadPath, PART_DIR, uploadId);
+        String filePath = TEMP_DIR + File.separator + uploadId;
+        Path target = Paths.get(uploadPath, filePath);
+        Files.createDirectories(target.getParent());
+
+        // 分片按序号依次拼接，transferTo由内核直接在文件间复制
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < totalChunks; i++) {
+                try (FileChannel in = FileChannel.open(partDir.resolve(partName(i)), StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+
+        deleteParts(uploadId, totalChunks);
+        log.info("分片已合并: uploadId={}, chunks={}", uploadId, totalChunks);
+        return filePath;
+    }
+
+    @Override
+    public void deleteParts(String uploadId, int totalChunks) throws Exception {
+        Path partDir = Paths.get(uploadPath, PART_DIR, uploadId);
+        if (!Files.isDirectory(partDir)) {
+            return;
+        }
+        // 连同未写完的临时分片一起删除
+        try (Stream<Path> parts = Files.list(partDir)) {
+            for (Path part : (Iterable<Path>) parts::iterator) {
+                Files.deleteIfExists(part);
+            }
+        }
+        Files.deleteIfExists(partDir);
+    }
+
+    @Override
+    public void deleteComposed(String uploadId) throws Exception {
+        Files.deleteIfExists(Paths.get(uploadPath, TEMP_DIR, uploadId));
+    }
+
+    @Override
+    public int deleteStaleTemp(Instant olderThan) throws Exception {
+        Path tempDir = Paths.get(uploadPath, TEMP_DIR);
+        if (!Files.isDirectory(tempDir)) {
+            return 0;
+        }
+        int deleted = 0;
+        // 只处理临时目录下的文件，分片子目录跳过
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(olderThan)
+                        && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private String partName(int chunkIndex) {
+        return String.format("%05d", chunkIndex);
+    }
+
     @Override
     public InputStream download(String filePath) throws Exception {
         File file = new File(uploadPath + File.separator + filePath);
@@ -66,44 +197,17 @@ public class LocalStorageStrategy implements FileStorageStrategy {
             throw new RuntimeException("文件不存在: " + filePath);
         }
 
-        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-        randomAccessFile.seek(start);
-
+        // 按区间读取通道，读到end后返回-1；关闭流时关闭通道
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        channel.position(start);
         long contentLength = end - start + 1;
+        return new BoundedInputStream(Channels.newInputStream(channel), contentLength);
+    }
 
-        return new InputStream() {
-            private long bytesRead = 0;
-
-            @Override
-            public int read() throws java.io.IOException {
-                if (bytesRead >= contentLength) {
-                    return -1;
-                }
-                bytesRead++;
-                return randomAccessFile.read();
-            }
-
-            @Override
-            public int read(byte[] b, int off, int len) throws java.io.IOException {
-                if (bytesRead >= contentLength) {
-                    return -1;
-                }
-
-                long remaining = contentLength - bytesRead;
-                int toRead = (int) Math.min(len, remaining);
-
-                int actualRead = randomAccessFile.read(b, off, toRead);
-                if (actualRead > 0) {
-                    bytesRead += actualRead;
-                }
-                return actualRead;
-            }
-
-            @Override
-            public void close() throws java.io.IOException {
-                randomAccessFile.close();
-            }
-        };
+    @Override
+    public File getLocalFile(String filePath) {
+        File file = new File(uploadPath + File.separator + filePath);
+        return file.isFile() ? file : null;
     }
 
     @Override
@@ -117,4 +221,53 @@ public class LocalStorageStrategy implements FileStorageStrategy {
     public String getAccessUrl(String filePath) {
         return accessUrl + "/" + filePath.replace(File.separator, "/");
     }
+
+    /**
+     * 限制可读字节数的输入流
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int actualRead = in.read(b, off, (int) Math.min(len, remaining));
+            if (actualRead > 0) {
+                remaining -= actualRead;
+            }
+            return actualRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
 }
@@ -2,15 +2,31 @@ package com.student.file.strategy.impl;
 
 import com.student.file.strategy.FileStorageStrategy;
 import io.minio.*;
+import io.minio.messages.DeleteError;
+import io.minio.http.Method;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
 import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Minio对象存储策略
@@ -19,6 +35,12 @@ import java.time.format.DateTimeFormatter;
 @Component("minioStorageStrategy")
 public class MinioStorageStrategy implements FileStorageStrategy {
 
+    private static final String TEMP_PREFIX = "tmp/";
+
+    private static final String PART_PREFIX = TEMP_PREFIX + "upload/";
+
+    private static final long MB = 1024 * 1024L;
+
     @Value("${file.minio.endpoint}")
     private String endpoint;
 
@@ -31,14 +53,97 @@ public class MinioStorageStrategy implements FileStorageStrategy {
     @Value("${file.minio.bucket-name}")
     private String bucketName;
 
+    /**
+     * 区域；显式指定后客户端不再请求GetBucketLocation，生成预签名URL也无需联网
+     */
+    @Value("${file.minio.region:us-east-1}")
+    private String region;
+
+    /**
+     * 分片上传的分片大小，默认16MB
+     */
+    @Value("${file.minio.part-size:16777216}")
+    private long partSize;
+
+    /**
+     * 连接池最大空闲连接数
+     */
+    @Value("${file.minio.http.max-idle-connections:32}")
+    private int maxIdleConnections;
+
+    /**
+     * 空闲连接保活时间（秒）
+     */
+    @Value("${file.minio.http.keep-alive-seconds:300}")
+    private long keepAliveSeconds;
+
+    /**
+     * 最大并发请求数
+     */
+    @Value("${file.minio.http.max-requests:256}")
+    private int maxRequests;
+
+    /**
+     * 单个主机最大并发请求数（所有请求都发往同一个Minio，默认值5远远不够）
+     */
+    @Value("${file.minio.http.max-requests-per-host:128}")
+    private int maxRequestsPerHost;
+
+    @Value("${file.minio.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${file.minio.http.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    @Value("${file.minio.http.write-timeout-ms:60000}")
+    private long writeTimeoutMs;
+
+    /**
+     * 是否对大文件下载返回预签名URL重定向，由客户端直接从Minio下载
+     */
+    @Value("${file.minio.presigned-redirect.enabled:false}")
+    private boolean presignedRedirectEnabled;
+
+    /**
+     * 触发重定向的最小文件大小，默认32MB；小文件仍由file-service转发，便于缓存
+     */
+    @Value("${file.minio.presigned-redirect.min-size:33554432}")
+    private long presignedRedirectMinSize;
+
+    /**
+     * 重定向URL有效期（秒）
+     */
+    @Value("${file.minio.presigned-redirect.expiry-seconds:600}")
+    private int presignedRedirectExpirySeconds;
+
+    /**
+     * 客户端访问Minio的地址，为空时与endpoint相同（Minio只在内网可达时需要配置为对外地址）
+     */
+    @Value("${file.minio.presigned-redirect.endpoint:}")
+    private String presignedEndpoint;
+
     private MinioClient minioClient;
 
+    /**
+     * 仅用于生成重定向URL的客户端（签名包含主机名，需使用客户端可访问的地址）
+     */
+    private MinioClient presignClient;
+
     @PostConstruct
     public void init() {
         try {
+            OkHttpClient httpClient = buildHttpClient();
             minioClient = MinioClient.builder()
                     .endpoint(endpoint)
+                    .region(region)
+                    .credentials(accessKey, secretKey)
+                    .httpClient(httpClient)
+                    .build();
+            presignClient = presignedEndpoint.isEmpty() ? minioClient : MinioClient.builder()
+                    .endpoint(presignedEndpoint)
+                    .region(region)
                     .credentials(accessKey, secretKey)
+                    .httpClient(httpClient)
                     .build();
 
             // 检查bucket是否存在,不存在则创建
@@ -56,6 +161,37 @@ public class MinioStorageStrategy implements FileStorageStrategy {
         }
     }
 
+    /**
+     * 构建共享的OkHttp客户端：连接池和调度器按并发下载场景调整
+     */
+    private OkHttpClient buildHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    /**
+     * 选择分片大小：优先使用配置值，超大文件按10000个分片的上限放大，并对齐到1MB
+     */
+    private long choosePartSize(long objectSize) {
+        long size = Math.max(partSize, ObjectWriteArgs.MIN_MULTIPART_SIZE);
+        if (objectSize > 0) {
+            long required = (objectSize + ObjectWriteArgs.MAX_MULTIPART_COUNT - 1) / ObjectWriteArgs.MAX_MULTIPART_COUNT;
+            long aligned = (required + MB - 1) / MB * MB;
+            size = Math.max(size, aligned);
+        }
+        return Math.min(size, ObjectWriteArgs.MAX_PART_SIZE);
+    }
+
     @Override
     public String upload(MultipartFile file, String storageName) throws Exception {
         // 按日期创建对象前缀
@@ -67,7 +203,7 @@ public class MinioStorageStrategy implements FileStorageStrategy {
                 PutObjectArgs.builder()
                         .bucket(bucketName)
                         .object(objectName)
-                        .stream(file.getInputStream(), file.getSize(), -1)
+                        .stream(file.getInputStream(), file.getSize(), choosePartSize(file.getSize()))
                         .contentType(file.getContentType())
                         .build()
         );
@@ -76,6 +212,136 @@ public class MinioStorageStrategy implements FileStorageStrategy {
         return objectName;
     }
 
+    @Override
+    public String storeTemp(InputStream inputStream, long size, String contentType) throws Exception {
+        String objectName = TEMP_PREFIX + UUID.randomUUID();
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .stream(inputStream, size, choosePartSize(size))
+                        .contentType(contentType)
+                        .build()
+        );
+        return objectName;
+    }
+
+    @Override
+    public void promote(String tempPath, String targetPath) throws Exception {
+        // 服务端复制，数据不经过file-service
+        minioClient.copyObject(
+                CopyObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(targetPath)
+                        .source(CopySource.builder().bucket(bucketName).object(tempPath).build())
+                        .build()
+        );
+        delete(tempPath);
+        log.info("文件已上传到Minio: {}", targetPath);
+    }
+
+    @Override
+    public String storePart(String uploadId, int chunkIndex, InputStream inputStream, long size) throws Exception {
+        ObjectWriteResponse response = minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(partObjectName(uploadId, chunkIndex))
+                        .stream(inputStream, size, choosePartSize(size))
+                        .build()
+        );
+        return response.etag() == null ? null : response.etag().replace("\"", "");
+    }
+
+    @Override
+    public String composeParts(String uploadId, int totalChunks, String contentType) throws Exception {
+        // 服务端合并（S3 UploadPartCopy），分片数据不再经过file-service；除最后一片外每片需不小于5MB
+        List<ComposeSource> sources = new ArrayList<>(totalChunks);
+        for (int i = 0; i < totalChunks; i++) {
+            sources.add(ComposeSource.builder().bucket(bucketName).object(partObjectName(uploadId, i)).build());
+        }
+        String objectName = TEMP_PREFIX + uploadId;
+        ComposeObjectArgs.Builder builder = ComposeObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .sources(sources);
+        if (contentType != null) {
+            builder.headers(Map.of("Content-Type", contentType));
+        }
+        minioClient.composeObject(builder.build());
+
+        deleteParts(uploadId, totalChunks);
+        log.info("分片已合并: uploadId={}, chunks={}", uploadId, totalChunks);
+        return objectName;
+    }
+
+    @Override
+    public void deleteParts(String uploadId, int totalChunks) throws Exception {
+        List<DeleteObject> objects = new ArrayList<>(totalChunks);
+        for (int i = 0; i < totalChunks; i++) {
+            objects.add(new DeleteObject(partObjectName(uploadId, i)));
+        }
+        Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                RemoveObjectsArgs.builder()
+                        .bucket(bucketName)
+                        .objects(objects)
+                        .build()
+        );
+        // removeObjects是惰性执行的，需要遍历结果才会真正删除
+        for (Result<DeleteError> result : results) {
+            DeleteError error = result.get();
+            log.warn("删除分片失败: object={}, message={}", error.objectName(), error.message());
+        }
+    }
+
+    @Override
+    public void deleteComposed(String uploadId) throws Exception {
+        // 对象不存在时removeObject不报错
+        minioClient.removeObject(RemoveObjectArgs.builder()
+                .bucket(bucketName)
+                .object(TEMP_PREFIX + uploadId)
+                .build());
+    }
+
+    @Override
+    public int deleteStaleTemp(Instant olderThan) throws Exception {
+        // 非递归列出：tmp/upload/ 下的分片以目录前缀返回，跳过
+        List<DeleteObject> objects = new ArrayList<>();
+        Iterable<Result<Item>> items = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucketName)
+                        .prefix(TEMP_PREFIX)
+                        .recursive(false)
+                        .build()
+        );
+        for (Result<Item> result : items) {
+            Item item = result.get();
+            if (!item.isDir() && item.lastModified() != null && item.lastModified().toInstant().isBefore(olderThan)) {
+                objects.add(new DeleteObject(item.objectName()));
+            }
+        }
+        if (objects.isEmpty()) {
+            return 0;
+        }
+
+        int deleted = objects.size();
+        Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                RemoveObjectsArgs.builder()
+                        .bucket(bucketName)
+                        .objects(objects)
+                        .build()
+        );
+        for (Result<DeleteError> result : results) {
+            DeleteError error = result.get();
+            deleted--;
+            log.warn("删除临时对象失败: object={}, message={}", error.objectName(), error.message());
+        }
+        return deleted;
+    }
+
+    private String partObjectName(String uploadId, int chunkIndex) {
+        return PART_PREFIX + uploadId + "/" + String.format("%05d", chunkIndex);
+    }
+
     @Override
     public InputStream download(String filePath) throws Exception {
         return minioClient.getObject(
@@ -99,6 +365,36 @@ public class MinioStorageStrategy implements FileStorageStrategy {
         );
     }
 
+    @Override
+    public String getDownloadRedirectUrl(String filePath, long fileSize, String contentType, String attachmentName) {
+        if (!presignedRedirectEnabled || fileSize < presignedRedirectMinSize) {
+            return null;
+        }
+        try {
+            // 由Minio按这些参数设置响应头，浏览器拿到的文件名和类型与经file-service下载时一致
+            Map<String, String> responseHeaders = new HashMap<>();
+            if (contentType != null) {
+                responseHeaders.put("response-content-type", contentType);
+            }
+            if (attachmentName != null) {
+                String encodedName = URLEncoder.encode(attachmentName, StandardCharsets.UTF_8).replace("+", "%20");
+                responseHeaders.put("response-content-disposition", "attachment; filename*=UTF-8''" + encodedName);
+            }
+            return presignClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.GET)
+                            .bucket(bucketName)
+                            .object(filePath)
+                            .expiry(presignedRedirectExpirySeconds)
+                            .extraQueryParams(responseHeaders)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.warn("生成Minio下载URL失败，改为经file-service下载: {}", filePath, e);
+            return null;
+        }
+    }
+
     @Override
     public void delete(String filePath) throws Exception {
         minioClient.removeObject(
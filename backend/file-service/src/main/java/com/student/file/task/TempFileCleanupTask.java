@@ -0,0 +1,42 @@
+package com.student.file.task;
+
+import com.student.file.service.FileService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 临时文件清理任务
+ * 上传、合并分片中途进程退出时，tmp/ 下的临时文件不会再被移动或删除，超过保留时间后由此任务删除
+ */
+@Slf4j
+@Component
+public class TempFileCleanupTask {
+
+    @Autowired
+    private FileService fileService;
+
+    /**
+     * 临时文件保留时间，需大于单次上传或合并的最长耗时
+     */
+    @Value("${file.temp.max-age-hours:24}")
+    private long maxAgeHours;
+
+    @Scheduled(fixedDelayString = "${file.temp.cleanup-interval-ms:3600000}")
+    public void cleanStaleTempFiles() {
+        try {
+            Instant olderThan = Instant.now().minus(Duration.ofHours(maxAgeHours));
+            int deleted = fileService.getStorageStrategy().deleteStaleTemp(olderThan);
+            if (deleted > 0) {
+                log.info("遗留临时文件清理完成: files={}", deleted);
+            }
+        } catch (Exception e) {
+            log.error("遗留临时文件清理失败", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.student.file.task;
+
+import com.student.file.service.UploadSessionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 过期分片上传会话清理任务
+ * 删除超过有效期仍未完成的会话的分片，避免中途放弃的上传长期占用存储；
+ * 合并中停留过久的会话（合并期间进程退出）同样取消并删除分片和合并结果
+ */
+@Slf4j
+@Component
+public class UploadSessionCleanupTask {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Value("${file.chunked.cleanup-batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${file.chunked.cleanup-interval-ms:3600000}")
+    public void cleanExpiredSessions() {
+        try {
+            int total = 0;
+            int cleaned;
+            do {
+                cleaned = uploadSessionService.cleanExpiredSessions(batchSize);
+                total += cleaned;
+            } while (cleaned == batchSize);
+
+            if (total > 0) {
+                log.info("过期分片上传会话清理完成: sessions={}", total);
+            }
+
+            int stale = 0;
+            do {
+                cleaned = uploadSessionService.cleanStaleCompletingSessions(batchSize);
+                stale += cleaned;
+            } while (cleaned == batchSize);
+
+            if (stale > 0) {
+                log.info("合并中遗留的分片上传会话清理完成: sessions={}", stale);
+            }
+        } catch (Exception e) {
+            log.error("过期分片上传会话清理失败", e);
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class FileValidationUtil {
      * - 图片：JPEG, PNG, GIF, BMP, WebP
      * - 文档：PDF, Word, Excel, PowerPoint, TXT
      * - 压缩包：ZIP, RAR
+     * - 音视频：MP4, WebM, MOV, MP3（课程录像，通过分片上传）
      */
     private static final Set<String> ALLOWED_MIME_TYPES = new HashSet<>(Arrays.asList(
             // 图片类型
@@ -61,7 +62,13 @@ public class FileValidationUtil {
             "application/zip",
             "application/x-zip-compressed",
             "application/x-rar-compressed",
-            "application/x-7z-compressed"));
+            "application/x-7z-compressed",
+
+            // 音视频文件
+            "video/mp4",
+            "video/webm",
+            "video/quicktime",
+            "audio/mpeg"));
 
     /**
      * 允许的文件扩展名（作为MimeType的补充校验）
@@ -72,7 +79,9 @@ public class FileValidationUtil {
             // 文档
             ".pdf", ".doc", ".docx", ".xls", ".xlsx", ".ppt", ".pptx", ".txt", ".csv",
             // 压缩包
-            ".zip", ".rar", ".7z"));
+            ".zip", ".rar", ".7z",
+            // 音视频
+            ".mp4", ".webm", ".mov", ".mp3"));
 
     /**
      * 危险文件扩展名黑名单（即使MimeType通过也要拒绝）
@@ -99,6 +108,21 @@ public class FileValidationUtil {
         validateFileName(file);
     }
 
+    /**
+     * 校验文件元信息（分片上传在接收数据前只有文件名、类型和大小）
+     *
+     * @param originalFilename 原始文件名
+     * @param contentType      MimeType
+     * @param fileSize         文件大小（字节）
+     * @param maxFileSize      最大允许大小（字节）
+     * @throws BusinessException 校验失败时抛出
+     */
+    public static void validateFileMeta(String originalFilename, String contentType, long fileSize, long maxFileSize) {
+        validateFileSize(fileSize, maxFileSize);
+        validateFileType(originalFilename, contentType);
+        validateFileName(originalFilename);
+    }
+
     /**
      * 校验文件是否为空
      */
@@ -115,14 +139,23 @@ public class FileValidationUtil {
      * @throws BusinessException 文件过大时抛出
      */
     public static void validateFileSize(MultipartFile file) {
-        long fileSize = file.getSize();
+        validateFileSize(file.getSize(), MAX_FILE_SIZE);
+    }
 
+    /**
+     * 校验文件大小
+     *
+     * @param fileSize    文件大小（字节）
+     * @param maxFileSize 最大允许大小（字节）
+     * @throws BusinessException 文件过大时抛出
+     */
+    public static void validateFileSize(long fileSize, long maxFileSize) {
         if (fileSize <= 0) {
             throw new BusinessException("文件大小异常");
         }
 
-        if (fileSize > MAX_FILE_SIZE) {
-            String maxSizeMB = String.format("%.2f", MAX_FILE_SIZE / 1024.0 / 1024.0);
+        if (fileSize > maxFileSize) {
+            String maxSizeMB = String.format("%.2f", maxFileSize / 1024.0 / 1024.0);
             String actualSizeMB = String.format("%.2f", fileSize / 1024.0 / 1024.0);
             throw new BusinessException(
                     String.format("文件大小超过限制，最大允许 %s MB，当前文件 %s MB", maxSizeMB, actualSizeMB));
@@ -138,9 +171,17 @@ public class FileValidationUtil {
      * @throws BusinessException 文件类型不允许时抛出
      */
     public static void validateFileType(MultipartFile file) {
-        String originalFilename = file.getOriginalFilename();
-        String contentType = file.getContentType();
+        validateFileType(file.getOriginalFilename(), file.getContentType());
+    }
 
+    /**
+     * 校验文件类型（MimeType + 扩展名双重校验）
+     *
+     * @param originalFilename 原始文件名
+     * @param contentType      MimeType
+     * @throws BusinessException 文件类型不允许时抛出
+     */
+    public static void validateFileType(String originalFilename, String contentType) {
         // 1. 校验文件名是否存在
         if (originalFilename == null || originalFilename.trim().isEmpty()) {
             throw new BusinessException("文件名不能为空");
@@ -180,8 +221,16 @@ public class FileValidationUtil {
      * @throws BusinessException 文件名不安全时抛出
      */
     public static void validateFileName(MultipartFile file) {
-        String originalFilename = file.getOriginalFilename();
+        validateFileName(file.getOriginalFilename());
+    }
 
+    /**
+     * 校验文件名安全性
+     *
+     * @param originalFilename 原始文件名
+     * @throws BusinessException 文件名不安全时抛出
+     */
+    public static void validateFileName(String originalFilename) {
         if (originalFilename == null || originalFilename.trim().isEmpty()) {
             throw new BusinessException("文件名不能为空");
         }
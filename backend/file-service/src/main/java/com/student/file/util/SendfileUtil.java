@@ -0,0 +1,56 @@
+package com.student.file.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 零拷贝文件发送工具类
+ *
+ * Tomcat的NIO连接器支持sendfile：在请求上设置文件名和字节范围后不写响应体，
+ * Tomcat在提交响应时直接用FileChannel.transferTo把文件区间发送到socket，
+ * 数据不经过JVM堆，也不占用请求线程做缓冲区拷贝。
+ */
+@Slf4j
+public class SendfileUtil {
+
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private SendfileUtil() {
+    }
+
+    /**
+     * 请求Tomcat以sendfile方式发送文件区间
+     *
+     * 返回true时调用方必须设置Content-Length为count，且不能再写入响应体
+     *
+     * @param request 当前请求
+     * @param file    本地文件
+     * @param start   起始字节位置
+     * @param count   发送的字节数
+     * @return 容器是否接受了sendfile
+     */
+    public static boolean trySendfile(HttpServletRequest request, File file, long start, long count) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            return false;
+        }
+        try {
+            // Tomcat要求规范路径，结束位置不包含在内
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("sendfile不可用，回退到普通输出: {}", file, e);
+            request.removeAttribute(SENDFILE_FILENAME_ATTR);
+            request.removeAttribute(SENDFILE_START_ATTR);
+            request.removeAttribute(SENDFILE_END_ATTR);
+            return false;
+        }
+    }
+}
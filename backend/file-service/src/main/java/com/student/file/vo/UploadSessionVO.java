@@ -0,0 +1,58 @@
+package com.student.file.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 分片上传会话状态
+ */
+@Data
+public class UploadSessionVO {
+
+    /**
+     * 上传会话ID
+     */
+    private String uploadId;
+
+    /**
+     * 文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小(字节，最后一片可以更小)
+     */
+    private Long chunkSize;
+
+    /**
+     * 分片数量
+     */
+    private Integer totalChunks;
+
+    /**
+     * 已上传的分片序号，断点续传时只需上传其余分片
+     */
+    private List<Integer> uploadedChunks;
+
+    /**
+     * 状态: 0-上传中 1-已完成 2-已取消 3-合并中
+     */
+    private Integer status;
+
+    /**
+     * 合并完成后的文件ID
+     */
+    private Long fileId;
+
+    /**
+     * 过期时间
+     */
+    private LocalDateTime expireTime;
+}
@@ -0,0 +1,102 @@
+package com.student.gateway.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.student.common.util.JwtPrincipal;
+import com.student.common.util.JwtUtil;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT验签结果缓存
+ * 以token的SHA-256摘要为key缓存验签后的用户身份，同一token的后续请求无需再做HMAC验签与JSON解析。
+ * 缓存条目的存活时间不超过token本身的剩余有效期，过期token不会被缓存命中。
+ */
+@Component
+@Slf4j
+public class TokenVerificationCache {
+
+    private final Cache<String, JwtPrincipal> cache;
+
+    private final long maxTtlMillis;
+
+    public TokenVerificationCache(
+            @Value("${gateway.auth.token-cache.max-size:100000}") long maxSize,
+            @Value("${gateway.auth.token-cache.max-ttl-seconds:600}") long maxTtlSeconds) {
+        this.maxTtlMillis = TimeUnit.SECONDS.toMillis(maxTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PrincipalExpiry())
+                .build();
+        log.info("Token verification cache initialized: maxSize={}, maxTtl={}s", maxSize, maxTtlSeconds);
+    }
+
+    /**
+     * 获取token对应的用户身份，未命中时验签并写入缓存
+     *
+     * @param token JWT字符串（不含Bearer前缀）
+     * @return 用户身份
+     * @throws JwtException token无效或已过期
+     */
+    public JwtPrincipal verify(String token) {
+        String key = digest(token);
+        JwtPrincipal principal = cache.getIfPresent(key);
+        if (principal != null) {
+            // Caffeine按条目过期时间淘汰存在延迟，这里再做一次精确判断
+            if (!principal.isExpiredAt(System.currentTimeMillis())) {
+                return principal;
+            }
+            cache.invalidate(key);
+            throw new JwtException("Token expired");
+        }
+
+        principal = JwtUtil.verify(token);
+        cache.put(key, principal);
+        return principal;
+    }
+
+    /**
+     * 计算token摘要，避免在内存中长期保存原始token
+     */
+    private String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 条目存活时间 = min(token剩余有效期, 最大缓存时间)
+     */
+    private class PrincipalExpiry implements Expiry<String, JwtPrincipal> {
+
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal value, long currentTime) {
+            long remainingMillis = value.getExpiresAtMillis() - System.currentTimeMillis();
+            long ttlMillis = Math.max(0, Math.min(remainingMillis, maxTtlMillis));
+            return TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
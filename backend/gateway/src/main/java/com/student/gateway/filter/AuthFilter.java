@@ -1,6 +1,8 @@
 package com.student.gateway.filter;
 
-import com.student.common.util.JwtUtil;
+import com.student.common.util.JwtPrincipal;
+import com.student.gateway.auth.TokenVerificationCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
@@ -23,6 +25,9 @@ public class AuthFilter implements GlobalFilter, Ordered {
             "/student/add"
     };
 
+    @Autowired
+    private TokenVerificationCache tokenVerificationCache;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         String path = exchange.getRequest().getPath().toString();
@@ -45,16 +50,14 @@ public class AuthFilter implements GlobalFilter, Ordered {
                 token = token.substring(7);
             }
 
-            if (JwtUtil.isTokenExpired(token)) {
-                exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                return exchange.getResponse().setComplete();
-            }
+            // 验签结果按token缓存，过期或无效token抛出异常后返回401
+            JwtPrincipal principal = tokenVerificationCache.verify(token);
 
-            Long userId = JwtUtil.getUserId(token);
-            String username = JwtUtil.getUsername(token);
-            String userType = JwtUtil.getUserType(token);
-            Long studentId = JwtUtil.getStudentId(token);
-            Long teacherId = JwtUtil.getTeacherId(token); 
+            Long userId = principal.getUserId();
+            String username = principal.getUsername();
+            String userType = principal.getUserType();
+            Long studentId = principal.getStudentId();
+            Long teacherId = principal.getTeacherId();
 
             ServerHttpRequest.Builder builder = exchange.getRequest().mutate()
                     .header("userId", String.valueOf(userId))
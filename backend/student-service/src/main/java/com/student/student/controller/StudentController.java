@@ -2,6 +2,7 @@ package com.student.student.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.student.common.annotation.RequireRole;
+import com.student.common.result.CursorPage;
 import com.student.common.result.Result;
 import com.student.student.entity.Student;
 import com.student.student.service.StudentService;
@@ -33,6 +34,18 @@ public class StudentController {
         return Result.success(studentService.list(page, size, name, classId));
     }
 
+    @Operation(summary = "游标分页查询学生列表", description = "按创建时间倒序滚动加载，cursor为上一页返回的nextCursor，默认不返回总数")
+    @RequireRole({"admin", "teacher"})
+    @GetMapping("/list/cursor")
+    public Result<CursorPage<StudentVO>> listByCursor(
+            @Parameter(description = "上一页返回的游标，第一页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "学生姓名") @RequestParam(required = false) String name,
+            @Parameter(description = "班级ID") @RequestParam(required = false) Long classId,
+            @Parameter(description = "是否返回总数") @RequestParam(defaultValue = "false") boolean withTotal) {
+        return Result.success(studentService.listByCursor(cursor, size, name, classId, withTotal));
+    }
+
     @Operation(summary = "获取学生自己的信息", description = "学生登录后获取自己的详细信息")
     @RequireRole({"student"})
     @GetMapping("/me")
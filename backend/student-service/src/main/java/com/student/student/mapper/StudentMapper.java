@@ -9,6 +9,9 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Mapper
 public interface StudentMapper extends BaseMapper<Student> {
 
@@ -29,6 +32,44 @@ public interface StudentMapper extends BaseMapper<Student> {
             "</script>")
     IPage<StudentVO> selectStudentVOPage(Page<?> page, @Param("name") String name, @Param("classId") Long classId);
 
+    /**
+     * 游标分页查询学生，按(create_time, id)倒序，从游标之后取limit条
+     */
+    @Select("<script>" +
+            "SELECT s.id, s.name, s.student_no, s.class_id, s.gender, s.age, " +
+            "s.phone, s.address, s.avatar, s.avatar_file_id as avatarFileId, " +
+            "s.create_time, s.update_time, c.class_name as className " +
+            "FROM student s " +
+            "LEFT JOIN class c ON s.class_id = c.id " +
+            "WHERE 1=1 " +
+            "<if test='name != null and name != \"\"'>" +
+            "  AND s.name LIKE CONCAT('%', #{name}, '%') " +
+            "</if>" +
+            "<if test='classId != null'>" +
+            "  AND s.class_id = #{classId} " +
+            "</if>" +
+            "<if test='afterId != null'>" +
+            "  AND (s.create_time &lt; #{afterTime} OR (s.create_time = #{afterTime} AND s.id &lt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY s.create_time DESC, s.id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<StudentVO> selectStudentVOsAfter(@Param("name") String name, @Param("classId") Long classId,
+                                          @Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId,
+                                          @Param("limit") int limit);
+
+    @Select("<script>" +
+            "SELECT COUNT(*) FROM student s " +
+            "WHERE 1=1 " +
+            "<if test='name != null and name != \"\"'>" +
+            "  AND s.name LIKE CONCAT('%', #{name}, '%') " +
+            "</if>" +
+            "<if test='classId != null'>" +
+            "  AND s.class_id = #{classId} " +
+            "</if>" +
+            "</script>")
+    Long countStudents(@Param("name") String name, @Param("classId") Long classId);
+
     @Select("SELECT s.id, s.name, s.student_no, s.class_id, s.gender, s.age, " +
             "s.phone, s.address, s.avatar, s.avatar_file_id as avatarFileId, " +
             "s.create_time, s.update_time, c.class_name as className " +
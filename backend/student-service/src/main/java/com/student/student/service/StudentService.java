@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.student.common.exception.BusinessException;
+import com.student.common.result.CursorPage;
+import com.student.common.util.PageCursor;
 import com.student.common.mq.dto.StudentRegistrationPayload;
 import com.student.common.mq.producer.MessageProducer;
 import com.student.student.entity.Student;
@@ -15,6 +17,8 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Slf4j
 @Service
 public class StudentService {
@@ -30,6 +34,27 @@ public class StudentService {
         return studentMapper.selectStudentVOPage(pageParam, name, classId);
     }
 
+    /**
+     * 游标分页查询学生（按创建时间倒序，深翻页不变慢）
+     *
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param withTotal 是否同时返回总数（额外执行一次COUNT）
+     */
+    public CursorPage<StudentVO> listByCursor(String cursor, int size, String name, Long classId, boolean withTotal) {
+        int pageSize = CursorPage.normalizeSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        List<StudentVO> rows = studentMapper.selectStudentVOsAfter(name, classId,
+                after == null ? null : after.getSortValueAsDateTime(),
+                after == null ? null : after.getId(),
+                pageSize + 1);
+
+        CursorPage<StudentVO> page = CursorPage.of(rows, pageSize, StudentVO::getCreateTime, StudentVO::getId);
+        if (withTotal) {
+            page.setTotal(studentMapper.countStudents(name, classId));
+        }
+        return page;
+    }
+
     public void add(Student student, String password, String email) {
         LambdaQueryWrapper<Student> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Student::getStudentNo, student.getStudentNo());
@@ -2,6 +2,7 @@ package com.student.teacher.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.student.common.annotation.RequireRole;
+import com.student.common.result.CursorPage;
 import com.student.common.result.Result;
 import com.student.teacher.entity.CourseInfo;
 import com.student.teacher.entity.Teacher;
@@ -89,6 +90,21 @@ public class TeacherController {
         return Result.success(teacherService.list(page, size, teacherName, department));
     }
 
+    /**
+     * 游标分页查询教师列表（管理员）
+     */
+    @Operation(summary = "游标分页查询教师列表", description = "按ID升序滚动加载，cursor为上一页返回的nextCursor，默认不返回总数")
+    @RequireRole({"admin"})
+    @GetMapping("/list/cursor")
+    public Result<CursorPage<Teacher>> listByCursor(
+            @Parameter(description = "上一页返回的游标，第一页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "教师姓名") @RequestParam(required = false) String teacherName,
+            @Parameter(description = "部门") @RequestParam(required = false) String department,
+            @Parameter(description = "是否返回总数") @RequestParam(defaultValue = "false") boolean withTotal) {
+        return Result.success(teacherService.listByCursor(cursor, size, teacherName, department, withTotal));
+    }
+
     /**
      * 获取所有教师列表（用于下拉选择）
      */
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.student.common.exception.BusinessException;
+import com.student.common.result.CursorPage;
+import com.student.common.util.PageCursor;
 import com.student.common.mq.dto.TeacherNameChangePayload;
 import com.student.common.mq.dto.TeacherRegistrationPayload;
 import com.student.common.mq.producer.MessageProducer;
@@ -39,16 +41,43 @@ public class TeacherService {
      */
     public IPage<Teacher> list(int page, int size, String teacherName, String department) {
         Page<Teacher> pageParam = new Page<>(page, size);
-        LambdaQueryWrapper<Teacher> wrapper = new LambdaQueryWrapper<>();
+        LambdaQueryWrapper<Teacher> wrapper = teacherFilter(teacherName, department);
+        return teacherMapper.selectPage(pageParam, wrapper);
+    }
+
+    /**
+     * 游标分页查询教师列表（按ID升序，深翻页不变慢）
+     *
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param withTotal 是否同时返回总数（额外执行一次COUNT）
+     */
+    public CursorPage<Teacher> listByCursor(String cursor, int size, String teacherName, String department,
+                                            boolean withTotal) {
+        int pageSize = CursorPage.normalizeSize(size);
+        LambdaQueryWrapper<Teacher> wrapper = teacherFilter(teacherName, department);
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            wrapper.gt(Teacher::getId, after.getId());
+        }
+        wrapper.orderByAsc(Teacher::getId)
+               .last("LIMIT " + (pageSize + 1));
 
+        CursorPage<Teacher> page = CursorPage.of(teacherMapper.selectList(wrapper), pageSize, t -> null, Teacher::getId);
+        if (withTotal) {
+            page.setTotal(teacherMapper.selectCount(teacherFilter(teacherName, department)));
+        }
+        return page;
+    }
+
+    private LambdaQueryWrapper<Teacher> teacherFilter(String teacherName, String department) {
+        LambdaQueryWrapper<Teacher> wrapper = new LambdaQueryWrapper<>();
         if (teacherName != null && !teacherName.isEmpty()) {
             wrapper.like(Teacher::getTeacherName, teacherName);
         }
         if (department != null && !department.isEmpty()) {
             wrapper.eq(Teacher::getDepartment, department);
         }
-
-        return teacherMapper.selectPage(pageParam, wrapper);
+        return wrapper;
     }
 
     /**
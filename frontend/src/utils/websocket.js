@@ -11,12 +11,13 @@ class WebSocketManager {
     this.connected = false
     this.userId = null
     this.messageHandlers = []
+    this.unreadHandlers = []
   }
 
   /**
    * 连接WebSocket
    */
-  connect(userId) {
+  connect(userId, token) {
     if (this.connected) {
       console.log('WebSocket已连接')
       return
@@ -24,12 +25,13 @@ class WebSocketManager {
 
     this.userId = userId
 
-    // 创建SockJS连接
-    const socket = new SockJS('http://localhost:8084/ws/notification')
-
-    // 创建STOMP客户端
+    // 创建STOMP客户端（每次重连新建SockJS连接，可能连到另一个实例）
     this.client = new Client({
-      webSocketFactory: () => socket,
+      webSocketFactory: () => new SockJS('http://localhost:8084/ws/notification'),
+      // CONNECT帧携带JWT，服务端据此绑定用户身份
+      connectHeaders: {
+        Authorization: `Bearer ${token}`
+      },
       reconnectDelay: 5000,
       heartbeatIncoming: 4000,
       heartbeatOutgoing: 4000,
@@ -40,13 +42,19 @@ class WebSocketManager {
         console.log('WebSocket连接成功')
         this.connected = true
 
-        // 订阅用户私有队列
-        this.client.subscribe(`/user/${userId}/queue/notification`, (message) => {
+        // 订阅用户私有队列（服务端按连接时认证的用户路由）
+        this.client.subscribe('/user/queue/notification', (message) => {
           console.log('收到通知:', message.body)
           const notification = JSON.parse(message.body)
           this.handleNotification(notification)
         })
 
+        // 订阅未读数量变化
+        this.client.subscribe('/user/queue/unread', (message) => {
+          const { unreadCount } = JSON.parse(message.body)
+          this.unreadHandlers.forEach(handler => handler(unreadCount))
+        })
+
         // 订阅广播主题
         this.client.subscribe('/topic/notification', (message) => {
           console.log('收到广播通知:', message.body)
@@ -132,6 +140,23 @@ class WebSocketManager {
     }
   }
 
+  /**
+   * 注册未读数量处理器
+   */
+  onUnreadCount(handler) {
+    this.unreadHandlers.push(handler)
+  }
+
+  /**
+   * 移除未读数量处理器
+   */
+  offUnreadCount(handler) {
+    const index = this.unreadHandlers.indexOf(handler)
+    if (index > -1) {
+      this.unreadHandlers.splice(index, 1)
+    }
+  }
+
   /**
    * 检查是否已连接
    */
@@ -0,0 +1,14 @@
+USE student_system;
+
+-- 创建课程日历展开索引表
+-- 已有事件的展开结果由course-service启动时补建
+CREATE TABLE IF NOT EXISTS `course_calendar_occurrence` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `event_id` BIGINT NOT NULL COMMENT '日历事件ID',
+  `course_id` BIGINT NOT NULL COMMENT '课程ID',
+  `occurrence_date` DATE NOT NULL COMMENT '发生日期',
+  `start_time` TIME COMMENT '开始时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_event_date` (`event_id`, `occurrence_date`),
+  INDEX `idx_course_date` (`course_id`, `occurrence_date`, `start_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='课程日历展开索引表';
@@ -0,0 +1,15 @@
+USE student_system;
+
+-- 创建去重存储物理文件表（file.dedup.enabled=true 时使用）
+CREATE TABLE IF NOT EXISTS `file_blob` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `content_hash` CHAR(64) NOT NULL COMMENT '文件内容SHA-256(十六进制)',
+  `storage_type` VARCHAR(20) NOT NULL COMMENT '存储类型: local, minio',
+  `file_path` VARCHAR(500) NOT NULL COMMENT '物理文件路径',
+  `file_size` BIGINT NOT NULL COMMENT '文件大小(字节)',
+  `ref_count` INT NOT NULL DEFAULT 1 COMMENT '引用计数(引用该文件的file_info记录数)',
+  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_hash_storage` (`content_hash`, `storage_type`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='去重存储物理文件表';
@@ -0,0 +1,7 @@
+USE student_system;
+
+-- 为file_info表添加内容摘要字段（下载时作为ETag）
+ALTER TABLE file_info ADD COLUMN content_hash CHAR(64) COMMENT '文件内容SHA-256(十六进制)' AFTER file_type;
+
+-- 查看表结构
+DESCRIBE file_info;
@@ -0,0 +1,17 @@
+USE student_system;
+
+-- 游标分页（keyset）使用的组合索引：按 (筛选列, 排序列) 建索引，InnoDB二级索引自带主键id，
+-- "排序列 < 游标值 OR (排序列 = 游标值 AND id < 游标id)" 可直接在索引上定位，深翻页不再扫描前面的行
+
+-- 我的通知：WHERE user_id = ? ORDER BY receive_time DESC, id DESC
+ALTER TABLE notification_receive ADD INDEX idx_user_receive_time (user_id, receive_time);
+
+-- 课程选课学生：WHERE course_id = ? AND status = 1 ORDER BY student_number, id
+ALTER TABLE course_enrollment ADD INDEX idx_course_status_number (course_id, status, student_number);
+
+-- 附件管理：WHERE status = 1 [AND course_id = ?] ORDER BY create_time DESC, id DESC
+ALTER TABLE course_attachment ADD INDEX idx_status_create_time (status, create_time);
+ALTER TABLE course_attachment ADD INDEX idx_course_status_create_time (course_id, status, create_time);
+
+-- 学生列表：ORDER BY create_time DESC, id DESC
+ALTER TABLE student ADD INDEX idx_create_time (create_time);
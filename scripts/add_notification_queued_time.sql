@@ -0,0 +1,7 @@
+USE student_system;
+
+-- 为course_notification表添加投递到队列的时间（定时通知遗留检查只处理未投递到队列的认领）
+ALTER TABLE course_notification ADD COLUMN queued_time DATETIME COMMENT '投递到通知队列的时间' AFTER send_status;
+
+-- 查看表结构
+DESCRIBE course_notification;
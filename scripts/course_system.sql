@@ -62,7 +62,9 @@ CREATE TABLE IF NOT EXISTS `course_attachment` (
   INDEX `idx_course_id` (`course_id`),
   INDEX `idx_file_id` (`file_id`),
   INDEX `idx_type` (`attachment_type`),
-  INDEX `idx_es_indexed` (`es_indexed`)
+  INDEX `idx_es_indexed` (`es_indexed`),
+  INDEX `idx_status_create_time` (`status`, `create_time`),
+  INDEX `idx_course_status_create_time` (`course_id`, `status`, `create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='课程附件表';
 
 -- -------------------------------------------------------------------
@@ -88,7 +90,8 @@ CREATE TABLE IF NOT EXISTS `course_enrollment` (
   UNIQUE KEY `uk_course_student` (`course_id`, `student_id`, `status`),
   INDEX `idx_student` (`student_id`),
   INDEX `idx_course` (`course_id`),
-  INDEX `idx_status` (`status`)
+  INDEX `idx_status` (`status`),
+  INDEX `idx_course_status_number` (`course_id`, `status`, `student_number`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='学生选课表';
 
 -- -------------------------------------------------------------------
@@ -136,7 +139,8 @@ CREATE TABLE IF NOT EXISTS `notification_receive` (
   UNIQUE KEY `uk_notification_user` (`notification_id`, `user_id`),
   INDEX `idx_user_id` (`user_id`),
   INDEX `idx_is_read` (`is_read`),
-  INDEX `idx_receive_time` (`receive_time`)
+  INDEX `idx_receive_time` (`receive_time`),
+  INDEX `idx_user_receive_time` (`user_id`, `receive_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='通知接收记录表';
 
 -- -------------------------------------------------------------------
@@ -166,6 +170,20 @@ CREATE TABLE IF NOT EXISTS `course_calendar` (
   INDEX `idx_event_type` (`event_type`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='课程日历表';
 
+-- -------------------------------------------------------------------
+-- 课程日历展开索引表（周期性事件按重复规则展开，每次发生一行）
+-- -------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS `course_calendar_occurrence` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `event_id` BIGINT NOT NULL COMMENT '日历事件ID',
+  `course_id` BIGINT NOT NULL COMMENT '课程ID',
+  `occurrence_date` DATE NOT NULL COMMENT '发生日期',
+  `start_time` TIME COMMENT '开始时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_event_date` (`event_id`, `occurrence_date`),
+  INDEX `idx_course_date` (`course_id`, `occurrence_date`, `start_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='课程日历展开索引表';
+
 -- -------------------------------------------------------------------
 -- 初始化测试数据
 -- -------------------------------------------------------------------
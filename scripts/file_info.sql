@@ -6,6 +6,7 @@ CREATE TABLE IF NOT EXISTS `file_info` (
   `file_path` VARCHAR(500) NOT NULL COMMENT '文件路径',
   `file_size` BIGINT NOT NULL COMMENT '文件大小(字节)',
   `file_type` VARCHAR(100) COMMENT '文件类型(MIME)',
+  `content_hash` CHAR(64) COMMENT '文件内容SHA-256(十六进制)',
   `storage_type` VARCHAR(20) NOT NULL COMMENT '存储类型: local, minio',
   `access_url` VARCHAR(500) COMMENT '访问URL',
   `upload_user_id` BIGINT COMMENT '上传用户ID',
@@ -19,3 +20,55 @@ CREATE TABLE IF NOT EXISTS `file_info` (
   INDEX `idx_user` (`upload_user_id`),
   INDEX `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件信息表';
+
+-- 创建去重存储物理文件表（内容相同的上传共用一个物理文件）
+CREATE TABLE IF NOT EXISTS `file_blob` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `content_hash` CHAR(64) NOT NULL COMMENT '文件内容SHA-256(十六进制)',
+  `storage_type` VARCHAR(20) NOT NULL COMMENT '存储类型: local, minio',
+  `file_path` VARCHAR(500) NOT NULL COMMENT '物理文件路径',
+  `file_size` BIGINT NOT NULL COMMENT '文件大小(字节)',
+  `ref_count` INT NOT NULL DEFAULT 1 COMMENT '引用计数(引用该文件的file_info记录数)',
+  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_hash_storage` (`content_hash`, `storage_type`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='去重存储物理文件表';
+
+-- 创建分片上传会话表
+CREATE TABLE IF NOT EXISTS `file_upload_session` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `upload_id` CHAR(32) NOT NULL COMMENT '上传会话ID(UUID)',
+  `file_name` VARCHAR(255) NOT NULL COMMENT '原始文件名',
+  `file_size` BIGINT NOT NULL COMMENT '文件大小(字节)',
+  `content_type` VARCHAR(100) NOT NULL COMMENT '文件类型(MIME)',
+  `chunk_size` BIGINT NOT NULL COMMENT '分片大小(字节)',
+  `total_chunks` INT NOT NULL COMMENT '分片数量',
+  `storage_type` VARCHAR(20) NOT NULL COMMENT '存储类型: local, minio',
+  `expected_hash` CHAR(64) DEFAULT NULL COMMENT '客户端提供的文件SHA-256',
+  `business_type` VARCHAR(50) DEFAULT NULL COMMENT '业务类型',
+  `business_id` BIGINT DEFAULT NULL COMMENT '业务ID',
+  `upload_user_id` BIGINT NOT NULL COMMENT '上传用户ID',
+  `upload_user_name` VARCHAR(50) DEFAULT NULL COMMENT '上传用户名',
+  `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态: 0-上传中 1-已完成 2-已取消 3-合并中',
+  `file_id` BIGINT DEFAULT NULL COMMENT '合并完成后的文件ID',
+  `expire_time` DATETIME NOT NULL COMMENT '过期时间',
+  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_upload_id` (`upload_id`),
+  KEY `idx_status_expire` (`status`, `expire_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片上传会话表';
+
+-- 创建分片上传分片表
+CREATE TABLE IF NOT EXISTS `file_upload_chunk` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `upload_id` CHAR(32) NOT NULL COMMENT '上传会话ID',
+  `chunk_index` INT NOT NULL COMMENT '分片序号(从0开始)',
+  `chunk_size` BIGINT NOT NULL COMMENT '分片大小(字节)',
+  `etag` VARCHAR(64) DEFAULT NULL COMMENT '分片ETag(分片内容MD5)',
+  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_upload_chunk` (`upload_id`, `chunk_index`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片上传分片表';
@@ -48,7 +48,8 @@ CREATE TABLE IF NOT EXISTS `student` (
     `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
     UNIQUE KEY `uk_student_no` (`student_no`),
-    KEY `idx_class_id` (`class_id`)
+    KEY `idx_class_id` (`class_id`),
+    KEY `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='学生表';
 
 -- 数据字典表
@@ -0,0 +1,105 @@
+#!/bin/bash
+
+# =====================================================
+# course-service 压测脚本（平台线程 vs 虚拟线程）
+# =====================================================
+#
+# 依赖 wrk (https://github.com/wg/wrk)，直接压 course-service（不经过网关），用请求头模拟登录用户。
+#
+# 用法：
+#   1. 以平台线程启动 course-service：
+#        java -jar course-service.jar --spring.threads.virtual.enabled=false
+#      执行：./loadtest_course_service.sh run platform
+#   2. 以虚拟线程启动 course-service：
+#        java -jar course-service.jar --spring.threads.virtual.enabled=true
+#      执行：./loadtest_course_service.sh run virtual
+#   3. 对比结果：./loadtest_course_service.sh compare platform virtual
+#
+# 可用环境变量调整：BASE_URL、DURATION、THREADS、CONNECTIONS（可写多个，空格分隔）、
+# COURSE_ID、STUDENT_ID、USER_ID、SEMESTER
+
+BASE_URL="${BASE_URL:-http://localhost:8084}"
+DURATION="${DURATION:-30s}"
+THREADS="${THREADS:-8}"
+CONNECTIONS="${CONNECTIONS:-200 800 2000}"
+COURSE_ID="${COURSE_ID:-1}"
+STUDENT_ID="${STUDENT_ID:-1}"
+USER_ID="${USER_ID:-1}"
+SEMESTER="${SEMESTER:-2024-2025-2}"
+RESULT_DIR="${RESULT_DIR:-$(dirname "$0")/loadtest-results}"
+
+# 压测接口：名称|路径（均为I/O密集：MySQL、Redis、Elasticsearch、学生服务Feign调用）
+ENDPOINTS=(
+    "course-list|/course/list?current=1&size=20&semester=${SEMESTER}"
+    "course-detail|/course/${COURSE_ID}"
+    "calendar-range|/course/calendar/${COURSE_ID}/range?startDate=2025-03-01&endDate=2025-03-31"
+    "my-enrollments|/course/enrollment/my"
+    "attachment-search|/course/attachment/search/keyword?keyword=spring&page=0&size=10"
+)
+
+run() {
+    local label="$1"
+    if [ -z "$label" ]; then
+        echo "用法: $0 run <label>"
+        exit 1
+    fi
+    if ! command -v wrk > /dev/null; then
+        echo "未找到 wrk，请先安装"
+        exit 1
+    fi
+
+    mkdir -p "$RESULT_DIR"
+    local result_file="$RESULT_DIR/${label}.tsv"
+    echo -e "endpoint\tconnections\trequests_per_sec\tp50\tp99\terrors" > "$result_file"
+
+    for entry in "${ENDPOINTS[@]}"; do
+        local name="${entry%%|*}"
+        local path="${entry#*|}"
+        for conn in $CONNECTIONS; do
+            echo "[$label] $name  connections=$conn  duration=$DURATION"
+            local output
+            output=$(wrk -t"$THREADS" -c"$conn" -d"$DURATION" --latency \
+                -H "userId: ${USER_ID}" \
+                -H "userType: student" \
+                -H "studentId: ${STUDENT_ID}" \
+                "${BASE_URL}${path}")
+
+            local rps p50 p99 errors
+            rps=$(echo "$output" | awk '/Requests\/sec/ {print $2}')
+            p50=$(echo "$output" | awk '$1 == "50%" {print $2}')
+            p99=$(echo "$output" | awk '$1 == "99%" {print $2}')
+            errors=$(echo "$output" | awk '/Non-2xx|Socket errors/ {printf "%s ", $0}')
+            echo -e "${name}\t${conn}\t${rps}\t${p50}\t${p99}\t${errors:-0}" >> "$result_file"
+            echo "    req/s=${rps}  p50=${p50}  p99=${p99}  ${errors}"
+        done
+    done
+
+    echo ""
+    echo "结果已保存: $result_file"
+}
+
+compare() {
+    local base="$RESULT_DIR/$1.tsv"
+    local other="$RESULT_DIR/$2.tsv"
+    if [ ! -f "$base" ] || [ ! -f "$other" ]; then
+        echo "用法: $0 compare <label1> <label2>（先分别执行 run）"
+        exit 1
+    fi
+
+    printf "%-20s %6s | %12s %10s | %12s %10s\n" "endpoint" "conn" "$1 req/s" "$1 p99" "$2 req/s" "$2 p99"
+    join -t $'\t' \
+        <(tail -n +2 "$base" | awk -F'\t' '{print $1"@"$2"\t"$3"\t"$5}' | sort) \
+        <(tail -n +2 "$other" | awk -F'\t' '{print $1"@"$2"\t"$3"\t"$5}' | sort) \
+    | while IFS=$'\t' read -r key rps1 p991 rps2 p992; do
+        printf "%-20s %6s | %12s %10s | %12s %10s\n" "${key%@*}" "${key#*@}" "$rps1" "$p991" "$rps2" "$p992"
+    done
+}
+
+case "$1" in
+    run) run "$2" ;;
+    compare) compare "$2" "$3" ;;
+    *)
+        echo "用法: $0 run <label> | compare <label1> <label2>"
+        exit 1
+        ;;
+esac